@@ -0,0 +1,53 @@
+package bench.com.grapedrink.chessmap.logic;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
+import com.grapedrink.chessmap.logic.bitboards.PieceContainer;
+import com.grapedrink.chessmap.logic.utils.FenUtils;
+
+/**
+ * The positions every benchmark runs over: openings, middlegames,
+ * endgames and positions in check, written as FEN.
+ */
+public class BenchmarkPositions {
+
+	public static final String[] POSITIONS = {
+		FenUtils.START_POSITION,
+		"rnbqkbnr/ppp2ppp/8/1B1pp3/4P3/8/PPPP1PPP/RNBQK1NR b KQkq - 0 1",
+		"r1bqkbnr/pppp1ppp/2n5/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 0 1",
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+		"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 1",
+		"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+		"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 0 1",
+		"2r3k1/pp3ppp/4p3/3pP3/3P1P2/2q5/P1Q3PP/1R4K1 w - - 0 1",
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+		"8/8/4k3/3p4/3P4/4K3/8/8 w - - 0 1",
+		"6k1/5ppp/8/8/8/8/5PPP/3r2K1 w - - 0 1",
+		"4k3/8/8/8/8/8/4q3/4K3 w - - 0 1",
+	};
+
+	private BenchmarkPositions() {}
+
+	public static PieceBoard[] getPieceBoards() {
+		PieceBoard[] boards = new PieceBoard[POSITIONS.length];
+		for (int i=0; i<POSITIONS.length; ++i) {
+			boards[i] = new PieceBoard();
+			FenUtils.getPieces(POSITIONS[i], boards[i]);
+		}
+		return boards;
+	}
+
+	public static PieceContainer[] getPieceContainers() {
+		PieceBoard[] boards = getPieceBoards();
+		PieceContainer[] containers = new PieceContainer[boards.length];
+		for (int i=0; i<boards.length; ++i) {
+			String[] fields = POSITIONS[i].split(" ");
+			containers[i] = new PieceContainer();
+			containers[i].setPosition(boards[i], FenUtils.getCastlingRights(fields[2]), FenUtils.getEnPassantSquare(fields[3]));
+		}
+		return containers;
+	}
+
+	public static boolean isBlacksTurn(int position) {
+		return "b".equals(POSITIONS[position].split(" ")[1]);
+	}
+}
@@ -0,0 +1,114 @@
+package bench.com.grapedrink.chessmap.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.grapedrink.chessmap.logic.bitboards.Perft;
+import com.grapedrink.chessmap.logic.bitboards.PieceContainer;
+import com.grapedrink.chessmap.logic.bitboards.Position;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+import com.grapedrink.chessmap.logic.history.Turn;
+import com.grapedrink.chessmap.logic.utils.MoveGenerator;
+
+/**
+ * Making and undoing moves, game state queries, and perft,
+ * measured through PieceContainer, RulesEngine and Position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+	private PieceContainer[] containers;
+	private int[][] legalMoves;
+	private int[] legalMoveCounts;
+	private Position[] positions;
+	private RulesEngine perftEngine;
+
+	@Setup
+	public void setUp() {
+		containers = BenchmarkPositions.getPieceContainers();
+		legalMoves = new int[containers.length][MoveGenerator.MAX_MOVES];
+		legalMoveCounts = new int[containers.length];
+		for (int i=0; i<containers.length; ++i) {
+			legalMoveCounts[i] = containers[i].getLegalMoves(BenchmarkPositions.isBlacksTurn(i), null, legalMoves[i]);
+		}
+		positions = new Position[BenchmarkPositions.POSITIONS.length];
+		for (int i=0; i<positions.length; ++i) {
+			positions[i] = Position.fromFen(BenchmarkPositions.POSITIONS[i]);
+		}
+		perftEngine = Perft.getEngine(BenchmarkPositions.POSITIONS[3]);
+	}
+
+	/**
+	 * Plays and undoes every legal move in every position.
+	 */
+	@Benchmark
+	public void setMoveAndUndo(Blackhole blackhole) {
+		Turn turn;
+		for (int i=0; i<containers.length; ++i) {
+			for (int j=0; j<legalMoveCounts[i]; ++j) {
+				turn = containers[i].setMove(legalMoves[i][j]);
+				containers[i].setMove(turn);
+				blackhole.consume(turn);
+			}
+		}
+	}
+
+	/**
+	 * Plays and undoes every legal move in every position,
+	 * through the allocation free make and unmake path.
+	 */
+	@Benchmark
+	public void makeAndUnmakeMove(Blackhole blackhole) {
+		for (int i=0; i<containers.length; ++i) {
+			for (int j=0; j<legalMoveCounts[i]; ++j) {
+				containers[i].makeMove(legalMoves[i][j]);
+				blackhole.consume(containers[i].getZobristKey());
+				containers[i].unmakeMove();
+			}
+		}
+	}
+
+	@Benchmark
+	public void getLegalMoves(Blackhole blackhole) {
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		for (int i=0; i<containers.length; ++i) {
+			blackhole.consume(containers[i].getLegalMoves(BenchmarkPositions.isBlacksTurn(i), null, moves));
+		}
+	}
+
+	/**
+	 * Judges whether the game is over in every position, through
+	 * Position, which unlike RulesEngine does not cache the answer.
+	 */
+	@Benchmark
+	public void getGameStatus(Blackhole blackhole) {
+		for (Position position : positions) {
+			blackhole.consume(position.getGameStatus());
+		}
+	}
+
+	/**
+	 * perft(3) from Kiwipete, 97862 nodes.
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public long perft() {
+		return perftEngine.perft(3);
+	}
+}
@@ -0,0 +1,87 @@
+package bench.com.grapedrink.chessmap.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
+import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.utils.DefenseUtils;
+import com.grapedrink.chessmap.logic.utils.GameUtils;
+import com.grapedrink.chessmap.logic.utils.MoveUtils;
+import com.grapedrink.chessmap.logic.utils.SquareIterator;
+
+/**
+ * The logic.utils calls made for every square the GUI highlights.
+ * Each operation covers every position in BenchmarkPositions, and the
+ * per-piece calls cover every piece of the active player.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+	private PieceBoard[] boards;
+	private long[] activePieces;
+	private final SquareIterator iterator = new SquareIterator();
+
+	@Setup
+	public void setUp() {
+		boards = BenchmarkPositions.getPieceBoards();
+		activePieces = new long[boards.length];
+		for (int i=0; i<boards.length; ++i) {
+			activePieces[i] = BenchmarkPositions.isBlacksTurn(i) ? boards[i].getBlackPieces() : boards[i].getWhitePieces();
+		}
+	}
+
+	@Benchmark
+	public void getDefendedSquaresForColor(Blackhole blackhole) {
+		for (PieceBoard board : boards) {
+			blackhole.consume(DefenseUtils.getDefendedSquaresForColor(board, PieceColor.WHITE));
+			blackhole.consume(DefenseUtils.getDefendedSquaresForColor(board, PieceColor.BLACK));
+		}
+	}
+
+	@Benchmark
+	public void getValidMoves(Blackhole blackhole) {
+		for (int i=0; i<boards.length; ++i) {
+			iterator.reset(activePieces[i]);
+			while (iterator.hasNext()) {
+				blackhole.consume(MoveUtils.getValidMoves(iterator.nextPosition(), boards[i], null));
+			}
+		}
+	}
+
+	@Benchmark
+	public void getCheckBlockingMoves(Blackhole blackhole) {
+		for (int i=0; i<boards.length; ++i) {
+			iterator.reset(activePieces[i]);
+			while (iterator.hasNext()) {
+				blackhole.consume(MoveUtils.getCheckBlockingMoves(iterator.nextPosition(), boards[i]));
+			}
+		}
+	}
+
+	@Benchmark
+	public void isPinned(Blackhole blackhole) {
+		for (int i=0; i<boards.length; ++i) {
+			iterator.reset(activePieces[i]);
+			while (iterator.hasNext()) {
+				blackhole.consume(GameUtils.isPinned(iterator.nextPosition(), boards[i]));
+			}
+		}
+	}
+}
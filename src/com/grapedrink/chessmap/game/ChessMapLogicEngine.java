@@ -3,17 +3,15 @@ package com.grapedrink.chessmap.game;
 import java.util.Collection;
 import java.util.Map;
 
+import com.grapedrink.chessmap.logic.bitboards.GameStatus;
 import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.Position;
 
 /*
  * TODO : implement painting/teaching NON-ABSTRACT functions such as:
  *            getValidMoves()
- *            getPointDistribution(boolean isBlack)
- *            getNetPointDistribution()
  *            getDefendedSquares(boolean isBlack)
  *            getNetDefendedSquares()
- *            getDefenseCount(boolean isBlack)
- *            getNetDefenseCount()
  *            
  *        Default function value will be return null, so UI can
  *        know whether or not the subclass has overriden it
@@ -148,10 +146,87 @@ public abstract class ChessMapLogicEngine {
 
 	public abstract Collection<String> getTotalDefense(PieceColor activePlayer);
 
+	/**
+	 * Returns how many pieces of color defend each square.
+	 * Squares nobody of that color defends are not listed.
+	 * 
+	 * ex: <"f3", 3> in the starting position, for white
+	 * 
+	 * Returns null unless the subclass supports it.
+	 * 
+	 * @param color
+	 * @return defenders per square
+	 */
+	public Map<String, Integer> getDefenseCount(PieceColor color) {
+		return null;
+	}
+
+	/**
+	 * Returns the points each of color's pieces is worth,
+	 * by the square it stands on, in centipawns.
+	 * 
+	 * ex: <"e2", 80> in the starting position, for white
+	 * 
+	 * Returns null unless the subclass supports it.
+	 * 
+	 * @param color
+	 * @return points per square
+	 */
+	public Map<String, Integer> getPointDistribution(PieceColor color) {
+		return null;
+	}
+
+	/**
+	 * Returns the points of each piece on the board, positive
+	 * for white's pieces and negative for black's.
+	 * 
+	 * Returns null unless the subclass supports it.
+	 * 
+	 * @return signed points per square
+	 */
+	public Map<String, Integer> getNetPointDistribution() {
+		return null;
+	}
+
+	/**
+	 * Returns white's defenders minus black's defenders for each square,
+	 * so a positive count means white controls the square.
+	 * Squares neither color defends are not listed.
+	 * 
+	 * Returns null unless the subclass supports it.
+	 * 
+	 * @return net defenders per square
+	 */
+	public Map<String, Integer> getNetDefenseCount() {
+		return null;
+	}
+
 	/**
 	 * Returns null if nobody has won.
 	 * 
 	 * @return
 	 */
 	public abstract PieceColor getWinner();
+	
+	/**
+	 * Returns an immutable snapshot of the current position, which
+	 * can be analyzed on another thread while the game goes on.
+	 * 
+	 * Returns null unless the subclass supports it, in which case
+	 * the UI analyzes the position on the event dispatch thread.
+	 * 
+	 * @return position
+	 */
+	public Position getPosition() {
+		return null;
+	}
+	
+	/**
+	 * Returns whether the game is over, and why: checkmate,
+	 * stalemate, or a draw by repetition, the fifty move rule
+	 * or insufficient material.
+	 * 
+	 * @return status
+	 */
+	public abstract GameStatus getGameStatus();
 }
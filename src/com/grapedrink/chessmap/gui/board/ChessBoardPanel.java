@@ -131,12 +131,28 @@ public class ChessBoardPanel extends JPanel {
 		}
 	}
 	
+	/**
+	 * Resets the square colors but keeps the borders,
+	 * such as the highlighted moves of a clicked piece.
+	 */
+	public void resetSquareColors() {
+		for (ChessBoardSquare square : board.values()) {
+			square.resetColor();
+		}
+	}
+	
 	public void highlight(Iterable<String> positions, SquareColor squareColor, PieceColor pieceColor) {
 		for (String position : positions) {
 			board.get(position).setColor(squareColor, pieceColor);
 		}
 	}
 
+	public void highlightNetDefense(Map<String, Integer> netDefenseCount) {
+		for (Map.Entry<String, Integer> entry : netDefenseCount.entrySet()) {
+			board.get(entry.getKey()).setNetDefenseColor(entry.getValue());
+		}
+	}
+
 	public void highlightBorders(Iterable<String> positions) {
 		for (String position : positions) {
 			board.get(position).setBorderPainted(true);
@@ -36,6 +36,10 @@ public class ChessBoardSquare extends JButton {
 		super.setBackground(SquareColor.get(color, super.getName(), pieceColor));
 	}
 	
+	public void setNetDefenseColor(int netCount) {
+		super.setBackground(SquareColor.getNetDefenseColor(super.getName(), netCount));
+	}
+	
 	public void resetColor() {
 		super.setBackground(defaultColor);
 	}
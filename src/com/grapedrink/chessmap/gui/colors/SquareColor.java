@@ -7,7 +7,8 @@ import com.grapedrink.chessmap.logic.bitboards.PieceColor;
 public enum SquareColor {
 	DEFAULT_SQUARE_COLOR,
 	DEFENDED_SQUARES,
-	AVAILABLE_MOVES_FOR_PIECE;
+	AVAILABLE_MOVES_FOR_PIECE,
+	BEST_MOVE;
 	
 	protected static final Color RED    = Color.decode("#FF0000");
 	protected static final Color BLUE   = Color.decode("#0000FF");
@@ -24,6 +25,10 @@ public enum SquareColor {
 	protected static final Color BLUE_LIGHT   = Color.decode("#0000E5");
 	protected static final Color PURPLE_DARK  = Color.decode("#990099");
 	protected static final Color PURPLE_LIGHT = Color.decode("#E500E5");
+	protected static final Color ORANGE_DARK  = Color.decode("#D2781E");
+	protected static final Color ORANGE_LIGHT = Color.decode("#F5A542");
+	
+	protected static final int MAX_NET_COUNT = 3;
 	
 	/**
 	 * Returns the painted color of this square, depending on the position
@@ -41,11 +46,41 @@ public enum SquareColor {
 			return getDefendedSquareColor(position, color);
 		case AVAILABLE_MOVES_FOR_PIECE:
 			return isDark(position) ? YELLOW_DARK : YELLOW_LIGHT;
+		case BEST_MOVE:
+			return isDark(position) ? ORANGE_DARK : ORANGE_LIGHT;
 		default:
 			return null;
 		}
 	}
 	
+	/**
+	 * Returns the painted color of a square by how many more pieces
+	 * white defends it with than black: shades of red where white
+	 * controls it, blue where black does, and purple where both
+	 * defend it equally.  The shade deepens with each extra defender,
+	 * up to MAX_NET_COUNT.
+	 * 
+	 * @param position
+	 * @param netCount white's defenders minus black's
+	 * @return color
+	 */
+	public static Color getNetDefenseColor(String position, int netCount) {
+		Color base = get(DEFAULT_SQUARE_COLOR, position, null);
+		if (netCount == 0) {
+			return isDark(position) ? PURPLE_DARK : PURPLE_LIGHT;
+		}
+		Color full = get(DEFENDED_SQUARES, position, netCount > 0 ? PieceColor.WHITE : PieceColor.BLACK);
+		float weight = Math.min(Math.abs(netCount), MAX_NET_COUNT) / (float) MAX_NET_COUNT;
+		return new Color(
+				blend(base.getRed(), full.getRed(), weight),
+				blend(base.getGreen(), full.getGreen(), weight),
+				blend(base.getBlue(), full.getBlue(), weight));
+	}
+	
+	private static int blend(int from, int to, float weight) {
+		return Math.round(from + (to - from) * weight);
+	}
+	
 	/**
 	 * Returns true if the square at position is dark, false otherwise
 	 * 
@@ -1,8 +1,14 @@
 package com.grapedrink.chessmap.gui.icons;
 
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 
 import com.grapedrink.chessmap.gui.controlpanel.GuiConstants;
@@ -34,4 +40,30 @@ public class IconHelper {
 	public ImageIcon get(String pieceCode) {
 		return icons.get(pieceCode);
 	}
+	
+	/**
+	 * Reads the icon for pieceCode and scales it to dim by dim pixels,
+	 * without Swing, so that it can be drawn into images off screen.
+	 * 
+	 * @param pieceCode
+	 * @param dim side length in pixels
+	 * @return scaled icon
+	 * @throws UncheckedIOException if the icon cannot be read
+	 */
+	public static BufferedImage getScaledImage(String pieceCode, int dim) throws UncheckedIOException {
+		BufferedImage original;
+		try {
+			original = ImageIO.read(IconHelper.class.getResource(String.format("%s.png", pieceCode)));
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		BufferedImage scaled = new BufferedImage(dim, dim, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = scaled.createGraphics();
+		graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+		graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+		graphics.drawImage(original, 0, 0, dim, dim, null);
+		graphics.dispose();
+		return scaled;
+	}
 }
@@ -0,0 +1,55 @@
+package com.grapedrink.chessmap.gui.render;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.Position;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+
+/**
+ * What BoardRenderer needs to draw one position: the pieces and
+ * how many pieces of each color defend every square.  Captured from
+ * an engine on the thread that owns it, then safe to render on any
+ * thread, since nothing in it changes after capture.
+ */
+public final class BoardFrame {
+
+	private final Position position;
+	private final int[] whiteCounts;
+	private final int[] blackCounts;
+
+	private BoardFrame(Position position, int[] whiteCounts, int[] blackCounts) {
+		this.position = position;
+		this.whiteCounts = whiteCounts;
+		this.blackCounts = blackCounts;
+	}
+
+	/**
+	 * @param engine
+	 * @return frame of the engine's current position
+	 */
+	public static BoardFrame capture(RulesEngine engine) {
+		return new BoardFrame(engine.getPosition(),
+				engine.getAttackerCounts(PieceColor.WHITE, new int[64]),
+				engine.getAttackerCounts(PieceColor.BLACK, new int[64]));
+	}
+
+	public Position getPosition() {
+		return position;
+	}
+
+	/**
+	 * @param index piece index, as in PieceBoard
+	 * @return positions of the piece
+	 */
+	public long getPieces(int index) {
+		return position.getPieces(index);
+	}
+
+	/**
+	 * @param square square index
+	 * @param color BLACK or WHITE
+	 * @return number of pieces of color defending square
+	 */
+	public int getAttackerCount(int square, PieceColor color) {
+		return PieceColor.BLACK.equals(color) ? blackCounts[square] : whiteCounts[square];
+	}
+}
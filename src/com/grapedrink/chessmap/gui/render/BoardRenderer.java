@@ -0,0 +1,148 @@
+package com.grapedrink.chessmap.gui.render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import com.grapedrink.chessmap.gui.colors.SquareColor;
+import com.grapedrink.chessmap.gui.controlpanel.GuiConstants;
+import com.grapedrink.chessmap.gui.icons.IconHelper;
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
+import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.PieceContainer;
+import com.grapedrink.chessmap.logic.utils.ConvertUtils;
+
+/**
+ * Draws a position and an overlay straight into a BufferedImage,
+ * without Swing components, using the board's SquareColor palette
+ * and piece icons.  The icons are scaled once, when the renderer
+ * is built, and only read afterwards, so one renderer can draw
+ * frames on many threads at once.
+ */
+public class BoardRenderer {
+
+	/**
+	 * POSITIONS[square], such as "h1" for 0
+	 */
+	private static final String[] POSITIONS = new String[64];
+
+	static {
+		for (int square=0; square<64; ++square) {
+			POSITIONS[square] = ConvertUtils.getPositionAsString(1L << square);
+		}
+	}
+
+	private final int tileSize;
+	private final boolean rank1AtBottom;
+
+	/**
+	 * sprites[index], with index as in PieceBoard
+	 */
+	private final BufferedImage[] sprites;
+
+	public BoardRenderer() {
+		this(GuiConstants.ChessBoard.SIDE_LENGTH, true);
+	}
+
+	/**
+	 * @param tileSize side length of a square in pixels
+	 * @param rank1AtBottom false to draw the board from black's side
+	 */
+	public BoardRenderer(int tileSize, boolean rank1AtBottom) {
+		if (tileSize < 1) {
+			throw new IllegalArgumentException(String.format("Invalid tile size.  Tile size = {%d}", tileSize));
+		}
+		this.tileSize = tileSize;
+		this.rank1AtBottom = rank1AtBottom;
+		this.sprites = new BufferedImage[PieceBoard.SIZE];
+		for (int index=0; index<PieceBoard.SIZE; ++index) {
+			sprites[index] = IconHelper.getScaledImage(PieceContainer.PIECE_CODES[index], tileSize);
+		}
+	}
+
+	/**
+	 * @return side length of the whole board in pixels
+	 */
+	public int getImageSize() {
+		return tileSize * 8;
+	}
+
+	/**
+	 * @param frame
+	 * @param overlay
+	 * @return new image of frame
+	 */
+	public BufferedImage render(BoardFrame frame, Overlay overlay) {
+		BufferedImage image = new BufferedImage(getImageSize(), getImageSize(), BufferedImage.TYPE_INT_RGB);
+		render(frame, overlay, image);
+		return image;
+	}
+
+	/**
+	 * Draws frame over the whole of image, so that one image
+	 * can be reused for every frame drawn on a thread.
+	 *
+	 * @param frame
+	 * @param overlay
+	 * @param image at least getImageSize() pixels on each side
+	 */
+	public void render(BoardFrame frame, Overlay overlay, BufferedImage image) {
+		Graphics2D graphics = image.createGraphics();
+		try {
+			for (int square=0; square<64; ++square) {
+				graphics.setColor(getSquareColor(frame, overlay, square));
+				graphics.fillRect(getX(square), getY(square), tileSize, tileSize);
+			}
+			for (int index=0; index<PieceBoard.SIZE; ++index) {
+				for (long board = frame.getPieces(index); board != 0L; board &= board - 1) {
+					int square = Long.numberOfTrailingZeros(board);
+					graphics.drawImage(sprites[index], getX(square), getY(square), null);
+				}
+			}
+		}
+		finally {
+			graphics.dispose();
+		}
+	}
+
+	private int getX(int square) {
+		int file = 7 - (square & 7);
+		return (rank1AtBottom ? file : 7 - file) * tileSize;
+	}
+
+	private int getY(int square) {
+		int rank = square >>> 3;
+		return (rank1AtBottom ? 7 - rank : rank) * tileSize;
+	}
+
+	/**
+	 * Picks a square's color the way CheckBoxPanel highlights it.
+	 */
+	private static Color getSquareColor(BoardFrame frame, Overlay overlay, int square) {
+		String position = POSITIONS[square];
+		int white = frame.getAttackerCount(square, PieceColor.WHITE);
+		int black = frame.getAttackerCount(square, PieceColor.BLACK);
+		switch (overlay) {
+		case WHITE_DEFENSE:
+			return white > 0 ? SquareColor.get(SquareColor.DEFENDED_SQUARES, position, PieceColor.WHITE) : getDefaultColor(position);
+		case BLACK_DEFENSE:
+			return black > 0 ? SquareColor.get(SquareColor.DEFENDED_SQUARES, position, PieceColor.BLACK) : getDefaultColor(position);
+		case DEFENSE:
+			if (white > 0 && black > 0) {
+				return SquareColor.get(SquareColor.DEFENDED_SQUARES, position, PieceColor.BOTH);
+			}
+			if (white > 0 || black > 0) {
+				return SquareColor.get(SquareColor.DEFENDED_SQUARES, position, white > 0 ? PieceColor.WHITE : PieceColor.BLACK);
+			}
+			return getDefaultColor(position);
+		case NET_DEFENSE:
+			return white > 0 || black > 0 ? SquareColor.getNetDefenseColor(position, white - black) : getDefaultColor(position);
+		default:
+			return getDefaultColor(position);
+		}
+	}
+
+	private static Color getDefaultColor(String position) {
+		return SquareColor.get(SquareColor.DEFAULT_SQUARE_COLOR, position, null);
+	}
+}
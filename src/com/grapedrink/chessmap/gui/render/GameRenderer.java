@@ -0,0 +1,203 @@
+package com.grapedrink.chessmap.gui.render;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+import com.grapedrink.chessmap.logic.pgn.PgnReader;
+
+/**
+ * Writes a PNG of every position of a game.  The game is replayed
+ * on the calling thread, which captures a BoardFrame per ply and
+ * hands it to a ForkJoinPool to draw and encode, with only a few
+ * frames in flight, so a database of any size is rendered in
+ * bounded memory.  Each pool thread draws into its own image.
+ *
+ * Encoding costs far more than drawing, so frames are compressed
+ * at the fastest deflate level, which makes them a little larger
+ * than ImageIO.write would.
+ *
+ *     java com.grapedrink.chessmap.gui.render.GameRenderer games.pgn outdir [overlay]
+ */
+public class GameRenderer {
+
+	private static final int FRAMES_IN_FLIGHT_PER_THREAD = 4;
+
+	/**
+	 * PNG compression quality, where 1 is no compression,
+	 * 0.9 the fastest deflate level and 0 the smallest
+	 */
+	private static final float COMPRESSION_QUALITY = 0.9f;
+
+	private final ForkJoinPool pool;
+	private final BoardRenderer renderer;
+	private final Overlay overlay;
+	private final ThreadLocal<Encoder> encoders;
+
+	public GameRenderer(BoardRenderer renderer, Overlay overlay) {
+		this(ForkJoinPool.commonPool(), renderer, overlay);
+	}
+
+	/**
+	 * @param pool where frames are drawn and written
+	 * @param renderer
+	 * @param overlay painted under the pieces of every frame
+	 */
+	public GameRenderer(ForkJoinPool pool, BoardRenderer renderer, Overlay overlay) {
+		this.pool = pool;
+		this.renderer = renderer;
+		this.overlay = overlay;
+		this.encoders = ThreadLocal.withInitial(() -> new Encoder(renderer.getImageSize()));
+	}
+
+	/**
+	 * Writes every position of the game held by engine, from its start
+	 * position to its last move, as directory/prefix-PLY.png.  The engine
+	 * is left at the ply it was on.
+	 *
+	 * @param engine
+	 * @param directory
+	 * @param prefix
+	 * @return number of frames written
+	 * @throws UncheckedIOException if a frame cannot be written
+	 */
+	public int renderGame(RulesEngine engine, File directory, String prefix) throws UncheckedIOException {
+		Deque<ForkJoinTask<?>> pending = new ArrayDeque<>();
+		int frames = renderGame(engine, directory, prefix, pending);
+		joinAll(pending);
+		return frames;
+	}
+
+	/**
+	 * Writes every position of every game read from pgn, closing it
+	 * when done, with the game's index in the file as its prefix.
+	 * Games with an illegal move or bad FEN are skipped.
+	 *
+	 * @param pgn
+	 * @param directory
+	 * @return number of frames written
+	 * @throws IOException
+	 * @throws UncheckedIOException if a frame cannot be written
+	 */
+	public int renderGames(Reader pgn, File directory) throws IOException, UncheckedIOException {
+		Deque<ForkJoinTask<?>> pending = new ArrayDeque<>();
+		RulesEngine engine = new RulesEngine();
+		int frames = 0;
+		try (PgnReader reader = new PgnReader(pgn)) {
+			for (int game=0; ; ++game) {
+				try {
+					if (!reader.readGame(engine)) {
+						break;
+					}
+				}
+				catch (IllegalArgumentException e) {
+					continue;
+				}
+				frames += renderGame(engine, directory, String.format("%05d", game), pending);
+			}
+		}
+		joinAll(pending);
+		return frames;
+	}
+
+	private int renderGame(RulesEngine engine, File directory, String prefix, Deque<ForkJoinTask<?>> pending) {
+		int maxPending = pool.getParallelism() * FRAMES_IN_FLIGHT_PER_THREAD;
+		int current = engine.getPly();
+		int plies = engine.getPlyCount();
+		engine.setPly(0);
+		for (int ply=0; ply<=plies; ++ply) {
+			if (ply > 0) {
+				engine.getNextMove();
+			}
+			BoardFrame frame = BoardFrame.capture(engine);
+			File file = new File(directory, String.format("%s-%03d.png", prefix, ply));
+			pending.add(pool.submit(() -> write(frame, file)));
+			if (pending.size() > maxPending) {
+				pending.poll().join();
+			}
+		}
+		engine.setPly(current);
+		return plies + 1;
+	}
+
+	private void write(BoardFrame frame, File file) {
+		Encoder encoder = encoders.get();
+		renderer.render(frame, overlay, encoder.image);
+		try {
+			encoder.write(file);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void joinAll(Deque<ForkJoinTask<?>> pending) {
+		while (!pending.isEmpty()) {
+			pending.poll().join();
+		}
+	}
+
+	/**
+	 * The image one thread draws into and the PNG writer it encodes with.
+	 */
+	private static class Encoder {
+
+		private final BufferedImage image;
+		private final ImageWriter writer;
+		private final ImageWriteParam param;
+
+		Encoder(int size) {
+			image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+			writer = ImageIO.getImageWritersByFormatName("png").next();
+			param = writer.getDefaultWriteParam();
+			if (param.canWriteCompressed()) {
+				param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				param.setCompressionQuality(COMPRESSION_QUALITY);
+			}
+		}
+
+		void write(File file) throws IOException {
+			// the stream writes over an existing file without truncating it
+			file.delete();
+			try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+				writer.setOutput(output);
+				writer.write(null, new IIOImage(image, null, null), param);
+			}
+			finally {
+				writer.setOutput(null);
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("usage: GameRenderer games.pgn outdir [NONE|WHITE_DEFENSE|BLACK_DEFENSE|DEFENSE|NET_DEFENSE]");
+			return;
+		}
+		System.setProperty("java.awt.headless", "true");
+		ImageIO.setUseCache(false);
+		File directory = new File(args[1]);
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException(String.format("Invalid output directory.  Directory = {%s}", args[1]));
+		}
+		Overlay overlay = args.length > 2 ? Overlay.valueOf(args[2]) : Overlay.NET_DEFENSE;
+		long start = System.nanoTime();
+		int frames = new GameRenderer(new BoardRenderer(), overlay).renderGames(new FileReader(args[0]), directory);
+		long millis = Math.max((System.nanoTime() - start) / 1000000L, 1L);
+		System.out.println(String.format("%d frames in %d ms (%d frames/s)", frames, millis, frames * 1000L / millis));
+	}
+}
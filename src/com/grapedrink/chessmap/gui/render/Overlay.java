@@ -0,0 +1,22 @@
+package com.grapedrink.chessmap.gui.render;
+
+/**
+ * What BoardRenderer paints under the pieces, matching
+ * the checkboxes of the board's CheckBoxPanel.
+ */
+public enum Overlay {
+	NONE,
+	WHITE_DEFENSE,
+	BLACK_DEFENSE,
+
+	/**
+	 * Squares defended by white, by black, or by both
+	 */
+	DEFENSE,
+
+	/**
+	 * Squares shaded by how many more pieces
+	 * one color defends them with
+	 */
+	NET_DEFENSE
+}
@@ -0,0 +1,203 @@
+package com.grapedrink.chessmap.logic.analysis;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+import com.grapedrink.chessmap.logic.pgn.PgnReader;
+import com.grapedrink.chessmap.logic.utils.MoveGenerator;
+
+/**
+ * Replays a corpus of PGN games across a ForkJoinPool and reports
+ * the defended squares per color, mobility, checks and score of
+ * every position to a PlyListener.  Each task replays its games on its
+ * own RulesEngine, so no engine state is shared between threads.
+ *
+ * A PGN file is split into game texts on the calling thread and
+ * handed to the pool in batches, with only a few batches in flight,
+ * so a database of any size is analyzed in bounded memory.
+ *
+ *     java com.grapedrink.chessmap.logic.analysis.BatchAnalyzer games.pgn [metrics.csv]
+ */
+public class BatchAnalyzer {
+
+	public static final int DEFAULT_BATCH_SIZE = 512;
+	private static final int GAMES_PER_TASK = 16;
+
+	private final ForkJoinPool pool;
+	private final int batchSize;
+
+	public BatchAnalyzer() {
+		this(ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param pool where games are replayed
+	 * @param batchSize games read from a PGN file per submission
+	 */
+	public BatchAnalyzer(ForkJoinPool pool, int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException(String.format("Invalid batch size.  Batch size = {%d}", batchSize));
+		}
+		this.pool = pool;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Analyzes every game in games, where each is the PGN of one game.
+	 *
+	 * @param games
+	 * @param listener
+	 * @return totals and throughput
+	 */
+	public BatchResult analyze(List<String> games, PlyListener listener) {
+		long start = System.nanoTime();
+		BatchResult result = new BatchResult();
+		pool.invoke(new AnalysisTask(games, 0, games.size(), 0, listener, result));
+		result.setElapsedNanos(System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * Analyzes every game read from pgn, closing it when done.
+	 *
+	 * @param pgn
+	 * @param listener
+	 * @return totals and throughput
+	 * @throws IOException
+	 */
+	public BatchResult analyze(Reader pgn, PlyListener listener) throws IOException {
+		long start = System.nanoTime();
+		BatchResult result = new BatchResult();
+		Deque<ForkJoinTask<Void>> pending = new ArrayDeque<>();
+		int maxPending = pool.getParallelism() * 2;
+		try (PgnReader reader = new PgnReader(pgn)) {
+			List<String> batch = new ArrayList<>(batchSize);
+			int firstGame = 0;
+			String game;
+			while ((game = reader.readGameText()) != null) {
+				batch.add(game);
+				if (batch.size() == batchSize) {
+					pending.add(pool.submit(new AnalysisTask(batch, 0, batch.size(), firstGame, listener, result)));
+					firstGame += batch.size();
+					batch = new ArrayList<>(batchSize);
+					if (pending.size() > maxPending) {
+						pending.poll().join();
+					}
+				}
+			}
+			if (!batch.isEmpty()) {
+				pending.add(pool.submit(new AnalysisTask(batch, 0, batch.size(), firstGame, listener, result)));
+			}
+		}
+		while (!pending.isEmpty()) {
+			pending.poll().join();
+		}
+		result.setElapsedNanos(System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * Splits its range of games in half until it is small enough
+	 * to replay on one engine.
+	 */
+	private static class AnalysisTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<String> games;
+		private final int from;
+		private final int to;
+		private final int firstGame;
+		private final PlyListener listener;
+		private final BatchResult result;
+
+		AnalysisTask(List<String> games, int from, int to, int firstGame, PlyListener listener, BatchResult result) {
+			this.games = games;
+			this.from = from;
+			this.to = to;
+			this.firstGame = firstGame;
+			this.listener = listener;
+			this.result = result;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > GAMES_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new AnalysisTask(games, from, middle, firstGame, listener, result),
+						new AnalysisTask(games, middle, to, firstGame, listener, result));
+				return;
+			}
+			RulesEngine engine = new RulesEngine();
+			int[] moves = new int[MoveGenerator.MAX_MOVES];
+			for (int i=from; i<to; ++i) {
+				try (PgnReader reader = new PgnReader(new StringReader(games.get(i)))) {
+					reader.readGame(engine);
+				}
+				catch (IllegalArgumentException e) {
+					result.addFailedGame();
+					continue;
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				analyzeGame(engine, firstGame + i, moves);
+			}
+		}
+
+		/**
+		 * Reports every position of the game held by engine,
+		 * from its start position to its last move.
+		 */
+		private void analyzeGame(RulesEngine engine, int game, int[] moves) {
+			int plies = engine.getPlyCount();
+			int checks = 0;
+			engine.setPly(0);
+			for (int ply=0; ply<=plies; ++ply) {
+				if (ply > 0) {
+					engine.getNextMove();
+				}
+				int whiteDefended = Long.bitCount(engine.getDefendedSquares(PieceColor.WHITE));
+				int blackDefended = Long.bitCount(engine.getDefendedSquares(PieceColor.BLACK));
+				boolean isCheck = engine.isInCheck();
+				if (isCheck) {
+					++checks;
+				}
+				listener.onPly(game, ply, whiteDefended, blackDefended, engine.getLegalMoves(moves), isCheck, engine.getNetScore());
+			}
+			result.addGame(plies + 1, checks);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("usage: BatchAnalyzer games.pgn [metrics.csv]");
+			return;
+		}
+		BatchResult result;
+		if (args.length > 1) {
+			try (PrintWriter csv = new PrintWriter(args[1], "UTF-8")) {
+				csv.println("game,ply,white_defended,black_defended,mobility,check,score");
+				result = new BatchAnalyzer().analyze(new FileReader(args[0]), (game, ply, white, black, mobility, isCheck, score) ->
+						csv.println(game + "," + ply + "," + white + "," + black + "," + mobility + "," + (isCheck ? 1 : 0) + "," + score));
+			}
+		}
+		else {
+			result = new BatchAnalyzer().analyze(new FileReader(args[0]), (game, ply, white, black, mobility, isCheck, score) -> {});
+		}
+		System.out.println(result);
+	}
+}
@@ -0,0 +1,78 @@
+package com.grapedrink.chessmap.logic.analysis;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totals for one BatchAnalyzer run, counted from every thread.
+ */
+public class BatchResult {
+
+	private final LongAdder games;
+	private final LongAdder failedGames;
+	private final LongAdder positions;
+	private final LongAdder checks;
+	private long elapsedNanos;
+
+	BatchResult() {
+		games = new LongAdder();
+		failedGames = new LongAdder();
+		positions = new LongAdder();
+		checks = new LongAdder();
+	}
+
+	void addGame(int gamePositions, int gameChecks) {
+		games.increment();
+		positions.add(gamePositions);
+		checks.add(gameChecks);
+	}
+
+	void addFailedGame() {
+		failedGames.increment();
+	}
+
+	void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = Math.max(elapsedNanos, 1L);
+	}
+
+	/**
+	 * @return number of games replayed
+	 */
+	public long getGames() {
+		return games.sum();
+	}
+
+	/**
+	 * @return number of games skipped for an illegal move or bad FEN
+	 */
+	public long getFailedGames() {
+		return failedGames.sum();
+	}
+
+	/**
+	 * @return number of positions analyzed, including each start position
+	 */
+	public long getPositions() {
+		return positions.sum();
+	}
+
+	/**
+	 * @return number of positions with the player to move in check
+	 */
+	public long getChecks() {
+		return checks.sum();
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public long getPositionsPerSecond() {
+		return getPositions() * 1000000000L / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d games (%d failed), %d positions in %d ms (%d positions/s)",
+				getGames(), getFailedGames(), getPositions(), elapsedNanos / 1000000L, getPositionsPerSecond());
+	}
+}
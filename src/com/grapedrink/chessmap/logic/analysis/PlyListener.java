@@ -0,0 +1,21 @@
+package com.grapedrink.chessmap.logic.analysis;
+
+/**
+ * Receives the metrics of each position BatchAnalyzer visits.
+ * Called from several threads at once, so implementations
+ * must be thread safe.
+ */
+@FunctionalInterface
+public interface PlyListener {
+
+	/**
+	 * @param game index of the game in the corpus, starting at 0
+	 * @param ply plies played to reach the position, 0 for the start
+	 * @param whiteDefended number of squares defended by white
+	 * @param blackDefended number of squares defended by black
+	 * @param mobility number of legal moves for the player to move
+	 * @param isCheck whether the player to move is in check
+	 * @param score white's material and placement minus black's, in centipawns
+	 */
+	void onPly(int game, int ply, int whiteDefended, int blackDefended, int mobility, boolean isCheck, int score);
+}
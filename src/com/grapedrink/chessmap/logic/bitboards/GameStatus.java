@@ -0,0 +1,30 @@
+package com.grapedrink.chessmap.logic.bitboards;
+
+/**
+ * Whether the game can go on from the current position,
+ * and if not, why it ended.
+ */
+public enum GameStatus {
+	ONGOING,
+	CHECKMATE,
+	STALEMATE,
+
+	/**
+	 * The same position, with the same player to move,
+	 * has occurred three times.
+	 */
+	REPETITION,
+
+	/**
+	 * Fifty moves by each player without a capture or pawn move.
+	 */
+	FIFTY_MOVE_RULE,
+	INSUFFICIENT_MATERIAL;
+
+	/**
+	 * @return whether the game ended without a winner
+	 */
+	public boolean isDraw() {
+		return this != ONGOING && this != CHECKMATE;
+	}
+}
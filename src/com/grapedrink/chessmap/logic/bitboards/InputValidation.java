@@ -10,7 +10,7 @@ public class InputValidation {
 	}
 	
 	private static boolean isPosition(String str) {
-		return !(str.length() != 2 || str.charAt(0) < 'a' || str.charAt(0) > 'h' || str.charAt(1) < '1' || str.charAt(1) > '8');
+		return !(str == null || str.length() != 2 || str.charAt(0) < 'a' || str.charAt(0) > 'h' || str.charAt(1) < '1' || str.charAt(1) > '8');
 	}
 	
 	/**
@@ -28,8 +28,7 @@ public class InputValidation {
 	
 	/**
 	 * Wrapper class for throwing exceptions.  Throws an exception if
-	 * a String is not a valid position (ex: "a" or "foo").
-	 * Null is considered a valid position.
+	 * a String is not a valid position (ex: "a", "foo" or null).
 	 * 
 	 * @param position position to validate
 	 * @throws IllegalArgumentException
@@ -0,0 +1,74 @@
+package com.grapedrink.chessmap.logic.bitboards;
+
+import java.io.PrintStream;
+import java.util.Map;
+
+import com.grapedrink.chessmap.logic.utils.FenUtils;
+
+/**
+ * Counts the leaf nodes of the legal move tree (perft) and reports
+ * how quickly the rules engine got there.  The counts for well known
+ * positions are published, so a mismatch means a move generation bug,
+ * and the nodes per second serve as the engine's throughput benchmark.
+ * 
+ *     java com.grapedrink.chessmap.logic.bitboards.Perft depth [fen] [divide]
+ * 
+ * ex: Perft 4 "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -"
+ */
+public class Perft {
+
+	private Perft() {}
+
+	/**
+	 * Returns an engine holding the position in fen.
+	 * 
+	 * ex: getEngine(FenUtils.START_POSITION)
+	 * 
+	 * @param fen
+	 * @return engine
+	 * @throws IllegalArgumentException if fen is malformed
+	 */
+	public static RulesEngine getEngine(String fen) throws IllegalArgumentException {
+		RulesEngine engine = new RulesEngine();
+		engine.setFen(fen);
+		return engine;
+	}
+
+	/**
+	 * Runs perft on engine to depth and prints
+	 * the node count, time taken and nodes per second.
+	 * 
+	 * @param engine
+	 * @param depth plies to search
+	 * @param out where to report
+	 * @return number of leaf nodes
+	 */
+	public static long run(RulesEngine engine, int depth, PrintStream out) {
+		long start = System.nanoTime();
+		long nodes = engine.perft(depth);
+		long elapsed = Math.max(System.nanoTime() - start, 1L);
+		out.println(String.format("perft(%d) = %d in %d ms (%d nodes/s)",
+				depth, nodes, elapsed / 1000000L, nodes * 1000000000L / elapsed));
+		return nodes;
+	}
+
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.out.println("usage: Perft depth [fen] [divide]");
+			return;
+		}
+		int depth = Integer.parseInt(args[0]);
+		RulesEngine engine = getEngine(args.length >= 2 && !"divide".equals(args[1]) ? args[1] : FenUtils.START_POSITION);
+		if ("divide".equals(args[args.length - 1])) {
+			long total = 0L;
+			for (Map.Entry<String, Long> entry : engine.perftDivide(depth).entrySet()) {
+				System.out.println(String.format("%s: %d", entry.getKey(), entry.getValue()));
+				total += entry.getValue();
+			}
+			System.out.println(String.format("total: %d", total));
+		}
+		else {
+			run(engine, depth, System.out);
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package com.grapedrink.chessmap.logic.bitboards;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Primitive representation of the twelve piece bitboards.
+ *
+ * The bitboards are indexed in the same order as
+ * PieceContainer.PIECE_CODES, so index 0 holds the black
+ * bishops and index 11 holds the white rooks.  Black pieces
+ * occupy indices 0 through 5 and white pieces occupy indices
+ * 6 through 11, with each color's pieces ordered like PieceType.
+ *
+ * The per-color and total occupancy words are cached, and are
+ * kept up to date whenever a bitboard is replaced.
+ */
+public class PieceBoard {
+
+	public static final int BLACK_BISHOP = 0;
+	public static final int BLACK_KING   = 1;
+	public static final int BLACK_KNIGHT = 2;
+	public static final int BLACK_PAWN   = 3;
+	public static final int BLACK_QUEEN  = 4;
+	public static final int BLACK_ROOK   = 5;
+	public static final int WHITE_BISHOP = 6;
+	public static final int WHITE_KING   = 7;
+	public static final int WHITE_KNIGHT = 8;
+	public static final int WHITE_PAWN   = 9;
+	public static final int WHITE_QUEEN  = 10;
+	public static final int WHITE_ROOK   = 11;
+
+	public static final int BLACK_OFFSET = 0;
+	public static final int WHITE_OFFSET = 6;
+	public static final int SIZE = 12;
+
+	// values() clones its array on every call
+	private static final PieceType[] TYPES = PieceType.values();
+
+	private final long[] pieces;
+	private long blackPieces;
+	private long whitePieces;
+
+	public PieceBoard() {
+		pieces = new long[SIZE];
+	}
+
+	/**
+	 * Returns a copy of this board.  The copy
+	 * shares no state with the original.
+	 *
+	 * @return copy
+	 */
+	public PieceBoard copy() {
+		PieceBoard copy = new PieceBoard();
+		System.arraycopy(pieces, 0, copy.pieces, 0, SIZE);
+		copy.blackPieces = blackPieces;
+		copy.whitePieces = whitePieces;
+		return copy;
+	}
+
+	/**
+	 * Removes every piece from the board.
+	 */
+	public void clear() {
+		for (int i=0; i<SIZE; ++i) {
+			pieces[i] = 0L;
+		}
+		blackPieces = 0L;
+		whitePieces = 0L;
+	}
+
+	public long get(int index) {
+		return pieces[index];
+	}
+
+	public long get(String pieceCode) {
+		return pieces[getIndex(pieceCode)];
+	}
+
+	/**
+	 * Replaces the bitboard at index, updating the cached occupancy.
+	 *
+	 * @param index index of the bitboard
+	 * @param positions new bitboard
+	 */
+	public void set(int index, long positions) {
+		pieces[index] = positions;
+		if (index < WHITE_OFFSET) {
+			blackPieces = pieces[0] | pieces[1] | pieces[2] | pieces[3] | pieces[4] | pieces[5];
+		}
+		else {
+			whitePieces = pieces[6] | pieces[7] | pieces[8] | pieces[9] | pieces[10] | pieces[11];
+		}
+	}
+
+	public void set(String pieceCode, long positions) {
+		set(getIndex(pieceCode), positions);
+	}
+
+	public long getBlackPieces() {
+		return blackPieces;
+	}
+
+	public long getWhitePieces() {
+		return whitePieces;
+	}
+
+	public long getAllPieces() {
+		return blackPieces | whitePieces;
+	}
+
+	/**
+	 * Returns the pieces belonging to color,
+	 * or 0L if color is neither black nor white.
+	 *
+	 * @param color
+	 * @return pieces
+	 */
+	public long getPieces(PieceColor color) {
+		switch (color) {
+		case BLACK:
+			return blackPieces;
+		case WHITE:
+			return whitePieces;
+		case BOTH:
+			return blackPieces | whitePieces;
+		default:
+			return 0L;
+		}
+	}
+
+	/**
+	 * Returns the index of the bitboard containing position,
+	 * or -1 if no piece is present.
+	 *
+	 * @param position
+	 * @return index
+	 */
+	public int getIndex(long position) {
+		int start;
+		if ((blackPieces & position) != 0L) {
+			start = BLACK_OFFSET;
+		}
+		else if ((whitePieces & position) != 0L) {
+			start = WHITE_OFFSET;
+		}
+		else {
+			return -1;
+		}
+		for (int i=start; i<start+6; ++i) {
+			if ((pieces[i] & position) != 0L) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the bitboard holding pieceCode,
+	 * such as 1 for "bK".
+	 *
+	 * @param pieceCode
+	 * @return index
+	 * @throws IllegalArgumentException if pieceCode is not valid
+	 */
+	public static int getIndex(String pieceCode) throws IllegalArgumentException {
+		if (pieceCode != null && pieceCode.length() == 2) {
+			PieceType type = PieceType.get(pieceCode.charAt(1));
+			PieceColor color = PieceColor.get(pieceCode.charAt(0));
+			if (!PieceType.NONE.equals(type) && !PieceColor.NEITHER.equals(color)) {
+				return getIndex(color, type);
+			}
+		}
+		throw new IllegalArgumentException(String.format("Invalid PieceCode detected.  PieceCode = {%s}", pieceCode));
+	}
+
+	public static int getIndex(PieceColor color, PieceType type) {
+		return (PieceColor.BLACK.equals(color) ? BLACK_OFFSET : WHITE_OFFSET) + type.ordinal();
+	}
+
+	public static String getPieceCode(int index) {
+		return PieceContainer.PIECE_CODES[index];
+	}
+
+	public static PieceColor getColor(int index) {
+		return index < WHITE_OFFSET ? PieceColor.BLACK : PieceColor.WHITE;
+	}
+
+	public static PieceType getType(int index) {
+		return TYPES[index % 6];
+	}
+
+	public static boolean isBlack(int index) {
+		return index < WHITE_OFFSET;
+	}
+
+	/**
+	 * Returns a Map<String, Long> view of this board,
+	 * keyed by piece code.  The map is a copy, and
+	 * changes to it are not reflected in this board.
+	 *
+	 * @return pieces
+	 */
+	public Map<String, Long> toMap() {
+		Map<String, Long> map = new HashMap<>();
+		for (int i=0; i<SIZE; ++i) {
+			map.put(PieceContainer.PIECE_CODES[i], pieces[i]);
+		}
+		return map;
+	}
+}
@@ -1,15 +1,20 @@
 package com.grapedrink.chessmap.logic.bitboards;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
 
 import com.grapedrink.chessmap.logic.history.Turn;
+import com.grapedrink.chessmap.logic.utils.AttackMap;
 import com.grapedrink.chessmap.logic.utils.BoardConstants;
 import com.grapedrink.chessmap.logic.utils.ConvertUtils;
 import com.grapedrink.chessmap.logic.utils.DefenseUtils;
-import com.grapedrink.chessmap.logic.utils.GameUtils;
+import com.grapedrink.chessmap.logic.utils.EvaluationUtils;
+import com.grapedrink.chessmap.logic.utils.LegalityContext;
+import com.grapedrink.chessmap.logic.utils.MoveGenerator;
 import com.grapedrink.chessmap.logic.utils.MoveUtils;
+import com.grapedrink.chessmap.logic.utils.PackedMove;
 import com.grapedrink.chessmap.logic.utils.PieceUtils;
+import com.grapedrink.chessmap.logic.utils.ZobristUtils;
 
 public class PieceContainer {
 
@@ -18,7 +23,64 @@ public class PieceContainer {
 	private boolean h1CastleAllowed;
 	private boolean h8CastleAllowed;
 	private boolean isPromotion;
-	private Map<String, Long> pieces;
+	private PieceBoard pieces;
+	private AttackMap attackMap;
+	private long zobristKey;
+	private int hashedCastlingRights;
+	private int enPassantSquare;
+	
+	/**
+	 * Material and placement of each color, indexed by
+	 * isBlack ? 1 : 0, kept up to date as pieces are set.
+	 */
+	private final int[] material = new int[2];
+	private final int[] placement = new int[2];
+	
+	/**
+	 * Undo records for makeMove, four longs per move:
+	 * the Zobrist key before the move, then the move itself
+	 * packed with what it changed (see pushUndoRecord),
+	 * then the material and placement before the move.
+	 */
+	private long[] undoStack;
+	private int undoCount;
+	
+	/**
+	 * Legality contexts for white and black, each valid
+	 * while the Zobrist key matches the one it was built for.
+	 */
+	private final LegalityContext[] contexts = {new LegalityContext(), new LegalityContext()};
+	private final long[] contextKeys = new long[2];
+	private final boolean[] isContextCurrent = new boolean[2];
+
+	/**
+	 * Flags for the castles still allowed, named after the
+	 * rook's starting square, as returned by getCastlingRights().
+	 */
+	public static final int CASTLE_A1 = 1;
+	public static final int CASTLE_H1 = 2;
+	public static final int CASTLE_A8 = 4;
+	public static final int CASTLE_H8 = 8;
+
+	/**
+	 * CASTLING_MASKS[square] keeps the castles still allowed
+	 * after a piece moves from or to square.
+	 */
+	private static final int[] CASTLING_MASKS = new int[64];
+	
+	static {
+		for (int square=0; square<64; ++square) {
+			CASTLING_MASKS[square] = CASTLE_A1 | CASTLE_H1 | CASTLE_A8 | CASTLE_H8;
+		}
+		CASTLING_MASKS[0] &= ~CASTLE_H1;
+		CASTLING_MASKS[3] &= ~(CASTLE_A1 | CASTLE_H1);
+		CASTLING_MASKS[7] &= ~CASTLE_A1;
+		CASTLING_MASKS[56] &= ~CASTLE_H8;
+		CASTLING_MASKS[59] &= ~(CASTLE_A8 | CASTLE_H8);
+		CASTLING_MASKS[63] &= ~CASTLE_A8;
+	}
+	
+	private static final int UNDO_RECORD_SIZE = 4;
 
 	public static final String[] PIECE_CODES = {"bB", "bK", "bN", "bP", "bQ", "bR", "wB", "wK", "wN", "wP", "wQ", "wR"};
 	
@@ -55,40 +117,122 @@ public class PieceContainer {
 	
 	public void setNewGame() {
 		isPromotion = false;
+		enPassantSquare = -1;
+		undoCount = 0;
 		a1CastleAllowed = true;
 		a8CastleAllowed = true;
 		h1CastleAllowed = true;
 		h8CastleAllowed = true;
 		for(int i=0; i<PIECE_CODES.length; ++i) {
-			pieces.put(PIECE_CODES[i], INITIAL_POSITIONS[i]);
+			setPieces(i, INITIAL_POSITIONS[i]);
 		}
+		updateCastlingKey();
 	}
 	
 	private void resetBoard() {
-		pieces = new HashMap<>();
-		for(int i=0; i<PIECE_CODES.length; ++i) {
-			pieces.put(PIECE_CODES[i], 0L);
+		pieces = new PieceBoard();
+		attackMap = new AttackMap(pieces);
+		enPassantSquare = -1;
+		undoStack = new long[UNDO_RECORD_SIZE * MoveGenerator.MAX_MOVES];
+		undoCount = 0;
+		hashedCastlingRights = getCastlingRights();
+		zobristKey = ZobristUtils.getKey(pieces, hashedCastlingRights);
+		Arrays.fill(material, 0);
+		Arrays.fill(placement, 0);
+	}
+	
+	/**
+	 * Sets the positions of the piece at index, updating the Zobrist
+	 * key, attack map, material and placement by the squares that changed.
+	 * 
+	 * @param index
+	 * @param positions
+	 */
+	private void setPieces(int index, long positions) {
+		long previous = pieces.get(index);
+		long changed = previous ^ positions;
+		int color = PieceBoard.isBlack(index) ? 1 : 0;
+		zobristKey ^= ZobristUtils.getPieceKey(index, changed);
+		attackMap.markChanged(changed);
+		material[color] += EvaluationUtils.getMaterial(index, positions & changed)
+				- EvaluationUtils.getMaterial(index, previous & changed);
+		placement[color] += EvaluationUtils.getPlacement(index, positions & changed)
+				- EvaluationUtils.getPlacement(index, previous & changed);
+		pieces.set(index, positions);
+	}
+	
+	private void setPieces(String pieceCode, long positions) {
+		setPieces(PieceBoard.getIndex(pieceCode), positions);
+	}
+	
+	/**
+	 * Swaps the castling key in the Zobrist key
+	 * if the castles allowed have changed.
+	 */
+	private void updateCastlingKey() {
+		int castlingRights = getCastlingRights();
+		if (castlingRights != hashedCastlingRights) {
+			zobristKey ^= ZobristUtils.getCastlingKey(hashedCastlingRights) ^ ZobristUtils.getCastlingKey(castlingRights);
+			hashedCastlingRights = castlingRights;
+		}
+	}
+	
+	/**
+	 * Returns the Zobrist key of the pieces and the castles
+	 * still allowed.  The side to move and en passant
+	 * square are tracked by RulesEngine.
+	 * 
+	 * @return key
+	 */
+	public long getZobristKey() {
+		return zobristKey;
+	}
+	
+	/**
+	 * Returns the Zobrist key of the whole position, including
+	 * the side to move and the en passant file.  The en passant
+	 * file only counts when a pawn is in place to capture, so that
+	 * a double push nobody can take does not change the position.
+	 * 
+	 * @param isBlacksTurn active player
+	 * @param mostRecent most recent turn, used for en passant
+	 * @return key
+	 */
+	public long getZobristKey(boolean isBlacksTurn, Turn mostRecent) {
+		return getZobristKey(isBlacksTurn, MoveUtils.getEnPassantSquare(pieces, mostRecent));
+	}
+	
+	/**
+	 * Returns the Zobrist key of the whole position, given the
+	 * square a pawn could capture onto en passant.
+	 * 
+	 * @param isBlacksTurn active player
+	 * @param enPassantSquare en passant square index, or -1 if there is none
+	 * @return key
+	 */
+	public long getZobristKey(boolean isBlacksTurn, int enPassantSquare) {
+		long key = isBlacksTurn ? zobristKey ^ ZobristUtils.getBlackToMoveKey() : zobristKey;
+		if (enPassantSquare >= 0) {
+			long capturingPawns = isBlacksTurn
+					? pieces.get(PieceBoard.BLACK_PAWN) & DefenseUtils.getPawnDefense(1L << enPassantSquare, 0)
+					: pieces.get(PieceBoard.WHITE_PAWN) & DefenseUtils.getPawnDefense(1L << enPassantSquare, 4);
+			if (capturingPawns != 0L) {
+				key ^= ZobristUtils.getEnPassantKey(enPassantSquare);
+			}
 		}
+		return key;
 	}
 	
 	public long getAllPieces() {
-		return getBlackPieces() | getWhitePieces();
+		return pieces.getAllPieces();
 	}
 
 	public long getBlackPieces() {
-		long colorPieces = 0L;
-		for (int i=0; i<6; ++i) {
-			colorPieces |= pieces.get(PIECE_CODES[i]);
-		}
-		return colorPieces;
+		return pieces.getBlackPieces();
 	}
 
 	public long getWhitePieces() {
-		long colorPieces = 0L;
-		for (int i=6; i<12; ++i) {
-			colorPieces |= pieces.get(PIECE_CODES[i]);
-		}
-		return colorPieces;
+		return pieces.getWhitePieces();
 	}
 
 	/**  
@@ -101,6 +245,20 @@ public class PieceContainer {
 	 * @throws IllegalArgumentException
 	 */
 	public Turn setMove(long src, long dst) throws IllegalArgumentException {
+		return setMove(src, dst, PieceType.QUEEN);
+	}
+	
+	/**
+	 * Moves a piece from src to dst, promoting a pawn
+	 * reaching the last rank to promotion.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @param promotion BISHOP, KNIGHT, QUEEN, or ROOK
+	 * @return turn
+	 * @throws IllegalArgumentException
+	 */
+	public Turn setMove(long src, long dst, PieceType promotion) throws IllegalArgumentException {
 		InputValidation.validatePosition(src);
 		InputValidation.validatePosition(dst);
 		String source = ConvertUtils.getPositionAsString(src);
@@ -108,43 +266,247 @@ public class PieceContainer {
 		boolean isBlack = PieceUtils.isBlack(src, pieces);
 		long prevEnemyPieces = isBlack ? getWhitePieces() : getBlackPieces(); 
 		Turn turn = new Turn(source, destination);
+		saveCastlingRights(turn);
 		
 		replacePiece(src, dst, turn);
 		long currEnemyPieces = isBlack ? getWhitePieces() : getBlackPieces();
 		handleEnPassant(prevEnemyPieces, currEnemyPieces, src, dst, turn);
-		handleCastlingAndPromotion(src, dst, turn);
+		handleCastlingAndPromotion(src, dst, turn, promotion);
+		updateCastlingKey();
 		
 		return turn;
 	}
 	
+	/**
+	 * Plays a move encoded as a PackedMove int,
+	 * such as one returned by getLegalMoves.
+	 * 
+	 * @param move
+	 * @return turn
+	 */
+	public Turn setMove(int move) {
+		long src = 1L << PackedMove.getSrc(move);
+		long dst = 1L << PackedMove.getDst(move);
+		return setMove(src, dst, PackedMove.isPromotion(move) ? PackedMove.getPromotion(move) : PieceType.QUEEN);
+	}
+	
+	/**
+	 * Plays a legal move encoded as a PackedMove int, recording
+	 * how to undo it on a primitive stack instead of in a Turn.
+	 * Nothing is allocated, which keeps search and replay cheap.
+	 * 
+	 * Moves made this way are taken back with unmakeMove,
+	 * most recent first, and should not be mixed with setMove.
+	 * 
+	 * @param move
+	 */
+	public void makeMove(int move) {
+		int src = PackedMove.getSrc(move);
+		int dst = PackedMove.getDst(move);
+		long source = 1L << src;
+		long destination = 1L << dst;
+		int piece = pieces.getIndex(source);
+		int captured = PackedMove.isEnPassant(move) ? -1 : pieces.getIndex(destination);
+		int castlingRights = getCastlingRights();
+		pushUndoRecord(move, captured, castlingRights);
+		
+		if (captured >= 0) {
+			setPieces(captured, pieces.get(captured) ^ destination);
+		}
+		if (PackedMove.isEnPassant(move)) {
+			int enemyPawn = PieceBoard.isBlack(piece) ? PieceBoard.WHITE_PAWN : PieceBoard.BLACK_PAWN;
+			long deadPawn = PieceBoard.isBlack(piece) ? destination << 8 : destination >>> 8;
+			setPieces(enemyPawn, pieces.get(enemyPawn) ^ deadPawn);
+		}
+		if (PackedMove.isPromotion(move)) {
+			int promotion = PieceBoard.getIndex(PieceBoard.getColor(piece), PackedMove.getPromotion(move));
+			setPieces(piece, pieces.get(piece) ^ source);
+			setPieces(promotion, pieces.get(promotion) | destination);
+		}
+		else {
+			setPieces(piece, pieces.get(piece) ^ source ^ destination);
+		}
+		if (PackedMove.isCastle(move)) {
+			int rook = PieceBoard.isBlack(piece) ? PieceBoard.BLACK_ROOK : PieceBoard.WHITE_ROOK;
+			setPieces(rook, pieces.get(rook) ^ getCastlingRookMove(dst));
+		}
+		
+		applyCastlingRights(castlingRights & CASTLING_MASKS[src] & CASTLING_MASKS[dst]);
+		updateCastlingKey();
+		enPassantSquare = PackedMove.isDoublePush(move) ? (src + dst) >>> 1 : -1;
+	}
+	
+	/**
+	 * Takes back the most recent move played with makeMove.
+	 * 
+	 * @throws IndexOutOfBoundsException if there is no move to take back
+	 */
+	public void unmakeMove() throws IndexOutOfBoundsException {
+		if (undoCount == 0) {
+			throw new IndexOutOfBoundsException();
+		}
+		undoCount -= UNDO_RECORD_SIZE;
+		long record = undoStack[undoCount + 1];
+		int move = (int) record;
+		int captured = (int) ((record >>> 32) & 0xF) - 1;
+		int castlingRights = (int) ((record >>> 36) & 0xF);
+		int previousEnPassant = (int) ((record >>> 40) & 0x7F) - 1;
+		
+		long source = 1L << PackedMove.getSrc(move);
+		long destination = 1L << PackedMove.getDst(move);
+		int piece = pieces.getIndex(destination);
+		attackMap.markChanged(source | destination);
+		if (PackedMove.isPromotion(move)) {
+			int pawn = PieceBoard.isBlack(piece) ? PieceBoard.BLACK_PAWN : PieceBoard.WHITE_PAWN;
+			pieces.set(piece, pieces.get(piece) ^ destination);
+			pieces.set(pawn, pieces.get(pawn) | source);
+		}
+		else {
+			pieces.set(piece, pieces.get(piece) ^ source ^ destination);
+		}
+		if (captured >= 0) {
+			pieces.set(captured, pieces.get(captured) | destination);
+		}
+		if (PackedMove.isEnPassant(move)) {
+			int enemyPawn = PieceBoard.isBlack(piece) ? PieceBoard.WHITE_PAWN : PieceBoard.BLACK_PAWN;
+			long deadPawn = PieceBoard.isBlack(piece) ? destination << 8 : destination >>> 8;
+			pieces.set(enemyPawn, pieces.get(enemyPawn) | deadPawn);
+			attackMap.markChanged(deadPawn);
+		}
+		if (PackedMove.isCastle(move)) {
+			int rook = PieceBoard.isBlack(piece) ? PieceBoard.BLACK_ROOK : PieceBoard.WHITE_ROOK;
+			long rookMove = getCastlingRookMove(PackedMove.getDst(move));
+			pieces.set(rook, pieces.get(rook) ^ rookMove);
+			attackMap.markChanged(rookMove);
+		}
+		
+		applyCastlingRights(castlingRights);
+		hashedCastlingRights = castlingRights;
+		enPassantSquare = previousEnPassant;
+		zobristKey = undoStack[undoCount];
+		material[0] = (int) undoStack[undoCount + 2];
+		material[1] = (int) (undoStack[undoCount + 2] >>> 32);
+		placement[0] = (int) undoStack[undoCount + 3];
+		placement[1] = (int) (undoStack[undoCount + 3] >>> 32);
+	}
+	
+	/**
+	 * Pushes the undo record for move.  The second long holds
+	 * 
+	 * Bits  0-31 : the move
+	 * Bits 32-35 : captured piece index + 1, or 0 for none
+	 * Bits 36-39 : castling rights before the move
+	 * Bits 40-46 : en passant square before the move + 1, or 0 for none
+	 * 
+	 * The third and fourth hold white's and black's material,
+	 * then white's and black's placement, as 32 bit halves.
+	 */
+	private void pushUndoRecord(int move, int captured, int castlingRights) {
+		if (undoCount == undoStack.length) {
+			undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+		}
+		undoStack[undoCount] = zobristKey;
+		undoStack[undoCount + 1] = (move & 0xFFFFFFFFL)
+				| ((long) (captured + 1) << 32)
+				| ((long) castlingRights << 36)
+				| ((long) (enPassantSquare + 1) << 40);
+		undoStack[undoCount + 2] = (material[0] & 0xFFFFFFFFL) | ((long) material[1] << 32);
+		undoStack[undoCount + 3] = (placement[0] & 0xFFFFFFFFL) | ((long) placement[1] << 32);
+		undoCount += UNDO_RECORD_SIZE;
+	}
+	
+	/**
+	 * Returns the rook's source and destination squares
+	 * for the castle whose king lands on kingDestination.
+	 */
+	private static long getCastlingRookMove(int kingDestination) {
+		switch (kingDestination) {
+		case 1:
+			return 0x0000000000000005L;
+		case 5:
+			return 0x0000000000000090L;
+		case 57:
+			return 0x0500000000000000L;
+		case 61:
+			return 0x9000000000000000L;
+		default:
+			return 0L;
+		}
+	}
+	
+	/**
+	 * Returns the square a pawn could capture onto en passant
+	 * after the most recent makeMove, or -1 if there is none.
+	 * 
+	 * @return en passant square index
+	 */
+	public int getEnPassantSquare() {
+		return enPassantSquare;
+	}
+	
+	/**
+	 * Returns the square a pawn could capture onto en passant
+	 * after mostRecent, or -1 if there is none.
+	 * 
+	 * @param mostRecent most recent turn, or null
+	 * @return en passant square index
+	 */
+	public int getEnPassantSquare(Turn mostRecent) {
+		return MoveUtils.getEnPassantSquare(pieces, mostRecent);
+	}
+	
+	/**
+	 * Sets the en passant square for the next makeMove
+	 * and getLegalMoves, or -1 if there is none.
+	 * 
+	 * @param enPassantSquare square index
+	 */
+	public void setEnPassantSquare(int enPassantSquare) {
+		this.enPassantSquare = enPassantSquare;
+	}
+	
 	private void replacePiece(long src, long dst, Turn turn) {
 		long currentPieces;
-		for (String pieceCode : pieces.keySet()) {
-			currentPieces = pieces.get(pieceCode);
+		for (int i=0; i<PieceBoard.SIZE; ++i) {
+			currentPieces = pieces.get(i);
 			if ((currentPieces & dst) == dst) {
-				turn.addPrevState(pieceCode, currentPieces);
-				pieces.put(pieceCode, currentPieces ^ dst);
+				turn.addPrevState(PIECE_CODES[i], currentPieces);
+				setPieces(i, currentPieces ^ dst);
 			}
 			if ((currentPieces & src) == src) {
-				turn.addPrevState(pieceCode, currentPieces);
-				pieces.put(pieceCode, (currentPieces ^ src) | dst);
+				turn.addPrevState(PIECE_CODES[i], currentPieces);
+				setPieces(i, (currentPieces ^ src) | dst);
 			}
 		}
 	}
 	
-	private void handleCastlingAndPromotion(long src, long dst, Turn turn) {
+	private void handleCastlingAndPromotion(long src, long dst, Turn turn, PieceType promotion) {
 		handleCastling(src, dst, turn);
-		disableCastlingIfNecessary(turn);
+		disableCastlingIfNecessary();
 		setPromotion(dst);
 		
 		/*
 		 * TODO : turn this into a user prompt, where they can pick any BNRQ piece
 		 */
 		if (isPromotion()) {
-			promotePawn(PieceUtils.isBlack(dst, pieces) ? "bQ" : "wQ", turn);
+			PieceColor color = PieceUtils.isBlack(dst, pieces) ? PieceColor.BLACK : PieceColor.WHITE;
+			promotePawn(PieceBoard.getPieceCode(PieceBoard.getIndex(color, promotion)), turn);
 		}
 	}
 	
+	/**
+	 * Records the castles allowed before a turn,
+	 * so that undoing the turn can restore them.
+	 * 
+	 * @param turn
+	 */
+	private void saveCastlingRights(Turn turn) {
+		turn.setA1(a1CastleAllowed);
+		turn.setH1(h1CastleAllowed);
+		turn.setA8(a8CastleAllowed);
+		turn.setH8(h8CastleAllowed);
+	}
+	
 	public void setMove(Turn turn) {
 		for (String pieceCode : turn.getPrevStates().keySet()) {
 			setPieceCode(pieceCode, turn.getPrevStates().get(pieceCode));
@@ -153,41 +515,42 @@ public class PieceContainer {
 		a8CastleAllowed = turn.getA8();
 		h1CastleAllowed = turn.getH1();
 		h8CastleAllowed = turn.getH8();
+		updateCastlingKey();
 	}
 	
 	private void handleCastling(long src, long dst, Turn turn) {
 		boolean playerIsBlack = dst == (dst & getBlackPieces());
 		long castlingRank = playerIsBlack ? BoardConstants.RANKS[7] : BoardConstants.RANKS[0];
-		boolean isKing = playerIsBlack ? (dst == (pieces.get("bK") & dst)) : (dst == (pieces.get("wK") & dst));
+		boolean isKing = playerIsBlack ? (dst == (pieces.get(PieceBoard.BLACK_KING) & dst)) : (dst == (pieces.get(PieceBoard.WHITE_KING) & dst));
 		boolean kingWasOnE = isKing && (castlingRank & BoardConstants.FILES[4]) == src;
 		boolean pieceMovedToC = (castlingRank & BoardConstants.FILES[2]) == dst;
 		boolean pieceMovedToG = (castlingRank & BoardConstants.FILES[6]) == dst;
 
 		if (playerIsBlack && kingWasOnE && pieceMovedToC) {
         	long a8d8 = BoardConstants.RANKS[7] & (BoardConstants.FILES[0] | BoardConstants.FILES[3]);
-        	turn.addPrevState("bR", pieces.get("bR"));
-        	pieces.put("bR", pieces.get("bR") ^ a8d8);
+        	turn.addPrevState("bR", pieces.get(PieceBoard.BLACK_ROOK));
+        	setPieces(PieceBoard.BLACK_ROOK, pieces.get(PieceBoard.BLACK_ROOK) ^ a8d8);
 			a8CastleAllowed = false;
 			h8CastleAllowed = false;
 		}
         else if (playerIsBlack && kingWasOnE && pieceMovedToG) {
         	long f8h8 = BoardConstants.RANKS[7] & (BoardConstants.FILES[5] | BoardConstants.FILES[7]);
-        	turn.addPrevState("bR", pieces.get("bR"));
-        	pieces.put("bR", pieces.get("bR") ^ f8h8);
+        	turn.addPrevState("bR", pieces.get(PieceBoard.BLACK_ROOK));
+        	setPieces(PieceBoard.BLACK_ROOK, pieces.get(PieceBoard.BLACK_ROOK) ^ f8h8);
 			a8CastleAllowed = false;
 			h8CastleAllowed = false;			
 		}
         else if (!playerIsBlack && kingWasOnE && pieceMovedToC) {
         	long a1d1 = BoardConstants.RANKS[0] & (BoardConstants.FILES[0] | BoardConstants.FILES[3]);
-        	turn.addPrevState("wR", pieces.get("wR"));
-        	pieces.put("wR", pieces.get("wR") ^ a1d1);
+        	turn.addPrevState("wR", pieces.get(PieceBoard.WHITE_ROOK));
+        	setPieces(PieceBoard.WHITE_ROOK, pieces.get(PieceBoard.WHITE_ROOK) ^ a1d1);
 			a1CastleAllowed = false;
 			h1CastleAllowed = false;			
 		}
         else if (!playerIsBlack && kingWasOnE && pieceMovedToG) {
         	long f1d1 = BoardConstants.RANKS[0] & (BoardConstants.FILES[5] | BoardConstants.FILES[7]);
-        	turn.addPrevState("wR", pieces.get("wR"));
-        	pieces.put("wR", pieces.get("wR") ^ f1d1);
+        	turn.addPrevState("wR", pieces.get(PieceBoard.WHITE_ROOK));
+        	setPieces(PieceBoard.WHITE_ROOK, pieces.get(PieceBoard.WHITE_ROOK) ^ f1d1);
         	a1CastleAllowed = false;
 			h1CastleAllowed = false;			
 		}
@@ -199,43 +562,39 @@ public class PieceContainer {
 			long oldPawnStructure = pieces.get(enemyPawnType);
 			long deadPawn = src > dst ? dst << 8 : dst >>> 8;
 			turn.addPrevState(enemyPawnType, oldPawnStructure);
-			pieces.put(enemyPawnType, oldPawnStructure ^ deadPawn);
+			setPieces(enemyPawnType, oldPawnStructure ^ deadPawn);
 		}
 	}
 	
 	private boolean isEnPassant(long prevEnemy, long currEnemy, long src, long dest) {
-		long pawnStructure = pieces.get("wP") | pieces.get("bP");
+		long pawnStructure = pieces.get(PieceBoard.WHITE_PAWN) | pieces.get(PieceBoard.BLACK_PAWN);
 		boolean enemyPiecesHaveNotChanged = prevEnemy == currEnemy;
 	    boolean pawnJustMoved = (dest & pawnStructure) == dest;
 	    boolean pieceMovedDiagonally = dest == (dest & ((src << 7) | (src << 9) | (src >>> 7) | (src >>> 9)));
 	    return pawnJustMoved && pieceMovedDiagonally && enemyPiecesHaveNotChanged;
 	}
 
-	private void disableCastlingIfNecessary(Turn turn) {
-        if ((ConvertUtils.getPositionAsLong("a1") & pieces.get("wR")) == 0L) {
+	private void disableCastlingIfNecessary() {
+        if ((ConvertUtils.getPositionAsLong("a1") & pieces.get(PieceBoard.WHITE_ROOK)) == 0L) {
         	a1CastleAllowed = false;
 		}
-        if ((ConvertUtils.getPositionAsLong("h1") & pieces.get("wR")) == 0L) {
+        if ((ConvertUtils.getPositionAsLong("h1") & pieces.get(PieceBoard.WHITE_ROOK)) == 0L) {
         	h1CastleAllowed = false;
 		}
-        if ((ConvertUtils.getPositionAsLong("e1") & pieces.get("wK")) == 0L) {
+        if ((ConvertUtils.getPositionAsLong("e1") & pieces.get(PieceBoard.WHITE_KING)) == 0L) {
         	a1CastleAllowed = false;
         	h1CastleAllowed = false;
 		}
-        if ((ConvertUtils.getPositionAsLong("a8") & pieces.get("bR")) == 0L) {
+        if ((ConvertUtils.getPositionAsLong("a8") & pieces.get(PieceBoard.BLACK_ROOK)) == 0L) {
         	a8CastleAllowed = false;
 		}
-        if ((ConvertUtils.getPositionAsLong("h8") & pieces.get("bR")) == 0L) {
+        if ((ConvertUtils.getPositionAsLong("h8") & pieces.get(PieceBoard.BLACK_ROOK)) == 0L) {
         	h8CastleAllowed = false;
 		}
-        if ((ConvertUtils.getPositionAsLong("e8") & pieces.get("bK")) == 0L) {
+        if ((ConvertUtils.getPositionAsLong("e8") & pieces.get(PieceBoard.BLACK_KING)) == 0L) {
         	a8CastleAllowed = false;
         	h8CastleAllowed = false;
 		}
-        turn.setA1(a1CastleAllowed);
-        turn.setH1(h1CastleAllowed);
-        turn.setA8(a8CastleAllowed);
-        turn.setH8(h8CastleAllowed);
 	}
 	
 	/**
@@ -262,24 +621,45 @@ public class PieceContainer {
 			long promotion = rank & pieces.get(String.format("%sP", color));
 			turn.addPrevState(pawnCode, pieces.get(pawnCode));
 			turn.addPrevState(pieceCode, pieces.get(pieceCode));
-			pieces.put(pawnCode, pieces.get(pawnCode) ^ promotion);
-			pieces.put(pieceCode, pieces.get(pieceCode) | promotion);
+			setPieces(pawnCode, pieces.get(pawnCode) ^ promotion);
+			setPieces(pieceCode, pieces.get(pieceCode) | promotion);
 		}
 		isPromotion = false;
 	}
 
 	public Turn addPieceToBoard(String pieceCode, String position) {
 		Turn turn = new Turn(pieceCode, position);
+		saveCastlingRights(turn);
 		//turn.addPrevState(pieceCode, pieces.get(pieceCode));
 		long pos = ConvertUtils.getPositionAsLong(position);
 		replacePiece(pos, pos, turn);
-		pieces.put(pieceCode, pieces.get(pieceCode) | pos);
-		handleCastlingAndPromotion(0L, ConvertUtils.getPositionAsLong(position), turn);
+		setPieces(pieceCode, pieces.get(pieceCode) | pos);
+		handleCastlingAndPromotion(0L, ConvertUtils.getPositionAsLong(position), turn, PieceType.QUEEN);
+		updateCastlingKey();
 		return turn;
 	}
 	
 	public void setPieceCode(String pieceCode, long positions) {
-		pieces.put(pieceCode, positions);
+		setPieces(pieceCode, positions);
+	}
+	
+	/**
+	 * Replaces the whole position at once, such as one read from a FEN,
+	 * without recording a turn per piece.  Clears the undo stack.
+	 * 
+	 * @param board positions of each piece, indexed as in PieceBoard
+	 * @param castlingRights CASTLE_* flags
+	 * @param enPassantSquare square index, or -1 if there is none
+	 */
+	public void setPosition(PieceBoard board, int castlingRights, int enPassantSquare) {
+		for (int i=0; i<PieceBoard.SIZE; ++i) {
+			setPieces(i, board.get(i));
+		}
+		applyCastlingRights(castlingRights);
+		updateCastlingKey();
+		this.enPassantSquare = enPassantSquare;
+		isPromotion = false;
+		undoCount = 0;
 	}
 	
 	// TODO : MFD
@@ -291,74 +671,50 @@ public class PieceContainer {
 	    return false;
 	}
 	
-	// TODO : MFD
-	private long getAvailableCastles(long position) {
-		long b1 = BoardConstants.RANKS[0] & BoardConstants.FILES[1];
-		long c1 = BoardConstants.RANKS[0] & BoardConstants.FILES[2];
-		long d1 = BoardConstants.RANKS[0] & BoardConstants.FILES[3];
-		long e1 = BoardConstants.RANKS[0] & BoardConstants.FILES[4];
-		long f1 = BoardConstants.RANKS[0] & BoardConstants.FILES[5];
-		long g1 = BoardConstants.RANKS[0] & BoardConstants.FILES[6];
-		long b8 = BoardConstants.RANKS[7] & BoardConstants.FILES[1];
-		long c8 = BoardConstants.RANKS[7] & BoardConstants.FILES[2];
-		long d8 = BoardConstants.RANKS[7] & BoardConstants.FILES[3];
-		long e8 = BoardConstants.RANKS[7] & BoardConstants.FILES[4];
-		long f8 = BoardConstants.RANKS[7] & BoardConstants.FILES[5];
-		long g8 = BoardConstants.RANKS[7] & BoardConstants.FILES[6];
-		long moves = 0L;
-		
-		if (!PieceUtils.isBlack(position, pieces) && isEmpty(b1|c1|d1) && a1CastleAllowed) {
-            if (!DefenseUtils.isDefendedByColor(c1|d1|e1, pieces, PieceColor.WHITE)) {
-				moves |= c1;
-			}
-		}
-		if (!PieceUtils.isBlack(position, pieces) && isEmpty(f1|g1) && h1CastleAllowed) {
-			if (!DefenseUtils.isDefendedByColor(e1|f1|g1, pieces, PieceColor.WHITE)) {
-				moves |= g1;
-			}
-		}
-		if (PieceUtils.isBlack(position, pieces)  && isEmpty(b8|c8|d8) && a8CastleAllowed) {
-			if (!DefenseUtils.isDefendedByColor(c8|d8|e8, pieces, PieceColor.WHITE)) {
-				moves |= c8;
-			}
-		}
-		if (PieceUtils.isBlack(position, pieces)  && isEmpty(f8|g8) && h8CastleAllowed) {
-			if (!DefenseUtils.isDefendedByColor(e8|f8|g8, pieces, PieceColor.WHITE)) {
-				moves |= g8;
-			}
+	/**
+	 * Returns the legal destinations of the piece at src,
+	 * including castles for a king.  The legality context of
+	 * its color is reused until the position changes, so asking
+	 * about every piece does the check and pin work only once.
+	 * 
+	 * @param src
+	 * @param mostRecent most recent turn, used for en passant
+	 * @return destinations
+	 */
+	public long getValidMoves(long src, Turn mostRecent) {
+		int index = pieces.getIndex(src);
+		if (index < 0) {
+			return 0L;
 		}
-		return moves;
+		return MoveGenerator.getLegalDestinations(pieces, getLegalityContext(PieceBoard.isBlack(index)), Long.numberOfTrailingZeros(src),
+				getCastlingRights(), MoveUtils.getEnPassantSquare(pieces, mostRecent));
 	}
 	
 	/**
-	 * Determines whether the squares represented by a long are empty or not
+	 * Returns whether color has any legal move,
+	 * stopping at the first one found.
 	 * 
-	 * @param boardSquares
-	 * @return
+	 * @param isBlack
+	 * @param enPassantSquare square a pawn may capture onto en passant, or -1
+	 * @return false if checkmated or stalemated
 	 */
-	private boolean isEmpty(long boardSquares) {
-		return (getAllPieces() & boardSquares) == 0L; 
+	public boolean hasLegalMoves(boolean isBlack, int enPassantSquare) {
+		return MoveGenerator.hasLegalMove(pieces, getLegalityContext(isBlack), enPassantSquare);
 	}
 	
-	// TODO : MFD
-	public long getValidMoves(long src, Turn mostRecent) {
-		String pieceCode = PieceUtils.getPieceCode(src, pieces);
-		if (pieceCode != null) {
-			PieceType type = PieceUtils.getPieceType(src, pieces);
-			if (PieceType.KING.equals(type)) {
-				if (GameUtils.isInCheck(src, pieces)) {
-					return MoveUtils.getValidMoves(src, pieces, mostRecent);
-				}
-				return MoveUtils.getValidMoves(src, pieces, mostRecent) | getAvailableCastles(src);
-			}
-			else {
-				if (GameUtils.isInCheck(src, pieces)) {
-					return MoveUtils.getCheckBlockingMoves(src, pieces);
-				}
-				return MoveUtils.getValidMoves(src, pieces, mostRecent);
-			}
+	/**
+	 * Returns the legality context of color for the current
+	 * position, recomputing it only if the pieces have moved
+	 * since it was last asked for.
+	 */
+	private LegalityContext getLegalityContext(boolean isBlack) {
+		int i = isBlack ? 1 : 0;
+		if (!isContextCurrent[i] || contextKeys[i] != zobristKey) {
+			contexts[i].update(pieces, isBlack, attackMap.getAttacks(!isBlack));
+			contextKeys[i] = zobristKey;
+			isContextCurrent[i] = true;
 		}
-		return 0L;
+		return contexts[i];
 	}
 	
 	/**
@@ -368,11 +724,198 @@ public class PieceContainer {
 	 * @return pieces
 	 */
 	public Map<String, Long> getPieces() {
-		Map<String, Long> deepCopy = new HashMap<>();
-		for (String key : pieces.keySet()) {
-			deepCopy.put(key, pieces.get(key));
+		return pieces.toMap();
+	}
+
+	/**
+	 * Returns the castles still allowed, as CASTLE_* flags.
+	 * 
+	 * @return castling rights
+	 */
+	public int getCastlingRights() {
+		return (a1CastleAllowed ? CASTLE_A1 : 0)
+				| (h1CastleAllowed ? CASTLE_H1 : 0)
+				| (a8CastleAllowed ? CASTLE_A8 : 0)
+				| (h8CastleAllowed ? CASTLE_H8 : 0);
+	}
+	
+	/**
+	 * Sets the castles still allowed from CASTLE_* flags.
+	 * 
+	 * @param castlingRights
+	 */
+	public void setCastlingRights(int castlingRights) {
+		applyCastlingRights(castlingRights);
+		updateCastlingKey();
+	}
+	
+	private void applyCastlingRights(int castlingRights) {
+		a1CastleAllowed = (castlingRights & CASTLE_A1) != 0;
+		h1CastleAllowed = (castlingRights & CASTLE_H1) != 0;
+		a8CastleAllowed = (castlingRights & CASTLE_A8) != 0;
+		h8CastleAllowed = (castlingRights & CASTLE_H8) != 0;
+	}
+	
+	/**
+	 * Writes every legal move for the active player into moves,
+	 * encoded as PackedMove ints, and returns how many were written.
+	 * 
+	 * @param isBlacksTurn active player
+	 * @param mostRecent most recent turn, used for en passant
+	 * @param moves array of at least MoveGenerator.MAX_MOVES
+	 * @return number of moves
+	 */
+	public int getLegalMoves(boolean isBlacksTurn, Turn mostRecent, int[] moves) {
+		int enPassantSquare = MoveUtils.getEnPassantSquare(pieces, mostRecent);
+		return MoveGenerator.getLegalMoves(pieces, getLegalityContext(isBlacksTurn), getCastlingRights(), enPassantSquare, moves);
+	}
+	
+	/**
+	 * Writes every legal move for the active player into moves,
+	 * using the en passant square left by makeMove.
+	 * 
+	 * @param isBlacksTurn active player
+	 * @param moves array of at least MoveGenerator.MAX_MOVES
+	 * @return number of moves
+	 */
+	public int getLegalMoves(boolean isBlacksTurn, int[] moves) {
+		return MoveGenerator.getLegalMoves(pieces, getLegalityContext(isBlacksTurn), getCastlingRights(), enPassantSquare, moves);
+	}
+	
+	/**
+	 * Returns all squares defended by color,
+	 * read from the incrementally kept attack map.
+	 * 
+	 * @param color
+	 * @return defended squares
+	 */
+	public long getDefendedSquares(PieceColor color) {
+		switch (color) {
+		case BLACK:
+			return attackMap.getAttacks(true);
+		case WHITE:
+			return attackMap.getAttacks(false);
+		default:
+			return 0L;
+		}
+	}
+	
+	/**
+	 * Returns how many pieces of color defend square.
+	 * 
+	 * @param square square index
+	 * @param color
+	 * @return number of defenders, 0 unless color is BLACK or WHITE
+	 */
+	public int getAttackerCount(int square, PieceColor color) {
+		switch (color) {
+		case BLACK:
+			return attackMap.getAttackerCount(square, true);
+		case WHITE:
+			return attackMap.getAttackerCount(square, false);
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Fills counts with how many pieces of color defend each square.
+	 * 
+	 * @param color
+	 * @param counts array of at least 64 entries, indexed by square
+	 * @return counts, all 0 unless color is BLACK or WHITE
+	 */
+	public int[] getAttackerCounts(PieceColor color, int[] counts) {
+		switch (color) {
+		case BLACK:
+			return attackMap.getAttackerCounts(true, counts);
+		case WHITE:
+			return attackMap.getAttackerCounts(false, counts);
+		default:
+			Arrays.fill(counts, 0, 64, 0);
+			return counts;
+		}
+	}
+	
+	/**
+	 * Returns the squares color defends with more pieces than the other color.
+	 * 
+	 * @param color
+	 * @return controlled squares, 0 unless color is BLACK or WHITE
+	 */
+	public long getControlledSquares(PieceColor color) {
+		switch (color) {
+		case BLACK:
+			return attackMap.getControlledSquares(true);
+		case WHITE:
+			return attackMap.getControlledSquares(false);
+		default:
+			return 0L;
 		}
-		return deepCopy;
+	}
+
+	/**
+	 * Returns the value of color's pieces, in centipawns,
+	 * kept up to date as pieces move.
+	 * 
+	 * @param color
+	 * @return material, 0 unless color is BLACK or WHITE
+	 */
+	public int getMaterial(PieceColor color) {
+		switch (color) {
+		case BLACK:
+			return material[1];
+		case WHITE:
+			return material[0];
+		default:
+			return 0;
+		}
+	}
+	
+	/**
+	 * Returns color's material plus the bonuses
+	 * for the squares its pieces stand on.
+	 * 
+	 * @param color
+	 * @return score, 0 unless color is BLACK or WHITE
+	 */
+	public int getScore(PieceColor color) {
+		switch (color) {
+		case BLACK:
+			return material[1] + placement[1];
+		case WHITE:
+			return material[0] + placement[0];
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns whether the king of the given color is attacked.
+	 * 
+	 * @param isBlack color of the king
+	 * @return false if not in check or there is no king
+	 */
+	public boolean isInCheck(boolean isBlack) {
+		long king = pieces.get(isBlack ? PieceBoard.BLACK_KING : PieceBoard.WHITE_KING);
+		return king != 0L && attackMap.getAttackerCount(Long.numberOfTrailingZeros(king), !isBlack) > 0;
+	}
+
+	/**
+	 * Returns the board itself, for reads within this package.
+	 * 
+	 * @return pieces
+	 */
+	PieceBoard getPieceBoard() {
+		return pieces;
+	}
+
+	/**
+	 * @param position
+	 * @return index of the piece at position, as in PieceBoard, or -1 if there is none
+	 */
+	public int getPieceIndex(long position) {
+		return pieces.getIndex(position);
 	}
 
 	public String getPieceCodeAtPosition(long position) {
@@ -0,0 +1,312 @@
+package com.grapedrink.chessmap.logic.bitboards;
+
+import com.grapedrink.chessmap.logic.utils.AttackMap;
+import com.grapedrink.chessmap.logic.utils.ConvertUtils;
+import com.grapedrink.chessmap.logic.utils.DefenseUtils;
+import com.grapedrink.chessmap.logic.utils.EvaluationUtils;
+import com.grapedrink.chessmap.logic.utils.FenUtils;
+import com.grapedrink.chessmap.logic.utils.GameUtils;
+import com.grapedrink.chessmap.logic.utils.LegalityContext;
+import com.grapedrink.chessmap.logic.utils.MoveGenerator;
+import com.grapedrink.chessmap.logic.utils.PackedMove;
+
+/**
+ * An immutable snapshot of a position: the bitboards, the side
+ * to move, the castles still allowed, the en passant square and
+ * the clocks.  Taking one from a RulesEngine copies twelve longs,
+ * and nothing in it changes afterwards, so it can be handed to
+ * any number of threads while the engine goes on being played.
+ *
+ * Queries build whatever scratch state they need per call,
+ * so they are safe to run concurrently on one Position.
+ *
+ * Like the halfmove clock, the number of times the position has
+ * occurred comes from the game it was taken from, so that the game
+ * status can be judged without the move history.
+ */
+public final class Position {
+
+	private final PieceBoard pieces;
+	private final boolean isBlacksTurn;
+	private final int castlingRights;
+	private final int enPassantSquare;
+	private final int halfmoveClock;
+	private final int fullmoveNumber;
+	private final long zobristKey;
+	private final int repetitionCount;
+
+	/**
+	 * @param pieces owned by this position from now on, and never changed
+	 */
+	Position(PieceBoard pieces, boolean isBlacksTurn, int castlingRights, int enPassantSquare,
+			int halfmoveClock, int fullmoveNumber, long zobristKey, int repetitionCount) {
+		this.pieces = pieces;
+		this.isBlacksTurn = isBlacksTurn;
+		this.castlingRights = castlingRights;
+		this.enPassantSquare = enPassantSquare;
+		this.halfmoveClock = halfmoveClock;
+		this.fullmoveNumber = fullmoveNumber;
+		this.zobristKey = zobristKey;
+		this.repetitionCount = repetitionCount;
+	}
+
+	/**
+	 * @param fen
+	 * @return position described by fen
+	 * @throws IllegalArgumentException if fen is malformed
+	 */
+	public static Position fromFen(String fen) throws IllegalArgumentException {
+		RulesEngine engine = new RulesEngine();
+		engine.setFen(fen);
+		return engine.getPosition();
+	}
+
+	/**
+	 * Returns the position after move, leaving this one as it was.
+	 * The next position's repetition count starts over at 1.
+	 *
+	 * @param move a legal move in this position, as a PackedMove int
+	 * @return next position
+	 */
+	public Position play(int move) {
+		long source = 1L << PackedMove.getSrc(move);
+		long destination = 1L << PackedMove.getDst(move);
+		int piece = pieces.getIndex(source);
+		boolean isReset = PieceBoard.getType(piece) == PieceType.PAWN || (pieces.getAllPieces() & destination) != 0L;
+
+		PieceContainer container = new PieceContainer();
+		container.setPosition(pieces.copy(), castlingRights, enPassantSquare);
+		container.makeMove(move);
+		int nextEnPassant = container.getEnPassantSquare();
+		return new Position(container.getPieceBoard(), !isBlacksTurn, container.getCastlingRights(), nextEnPassant,
+				isReset ? 0 : halfmoveClock + 1,
+				isBlacksTurn ? fullmoveNumber + 1 : fullmoveNumber,
+				container.getZobristKey(!isBlacksTurn, nextEnPassant), 1);
+	}
+
+	public boolean isBlacksTurn() {
+		return isBlacksTurn;
+	}
+
+	public PieceColor getActivePlayer() {
+		return isBlacksTurn ? PieceColor.BLACK : PieceColor.WHITE;
+	}
+
+	/**
+	 * @return PieceContainer.CASTLE_* flags still allowed
+	 */
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+
+	/**
+	 * @return square a pawn may capture onto en passant, or -1
+	 */
+	public int getEnPassantSquare() {
+		return enPassantSquare;
+	}
+
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+
+	public int getFullmoveNumber() {
+		return fullmoveNumber;
+	}
+
+	/**
+	 * Returns the same key RulesEngine.getZobristKey returned
+	 * when this position was taken.
+	 *
+	 * @return key
+	 */
+	public long getZobristKey() {
+		return zobristKey;
+	}
+
+	/**
+	 * Returns how many times this position had occurred in its game,
+	 * including when it was taken.  Not compared by equals.
+	 *
+	 * @return 1 if the position was new
+	 */
+	public int getRepetitionCount() {
+		return repetitionCount;
+	}
+
+	/**
+	 * @param index piece index, as in PieceBoard
+	 * @return positions of the piece
+	 */
+	public long getPieces(int index) {
+		return pieces.get(index);
+	}
+
+	/**
+	 * @param color
+	 * @return pieces of color, as in PieceBoard.getPieces
+	 */
+	public long getPieces(PieceColor color) {
+		return pieces.getPieces(color);
+	}
+
+	/**
+	 * Returns a copy of the board, for queries not offered here.
+	 * Changing the copy does not change this position.
+	 *
+	 * @return pieces
+	 */
+	public PieceBoard getPieceBoard() {
+		return pieces.copy();
+	}
+
+	/**
+	 * @param position
+	 * @return piece code at position, or null if the square is empty
+	 */
+	public String getPieceCode(long position) {
+		int index = pieces.getIndex(position);
+		return index < 0 ? null : PieceBoard.getPieceCode(index);
+	}
+
+	/**
+	 * Writes every legal move for the active player into moves,
+	 * encoded as PackedMove ints, and returns how many were written.
+	 *
+	 * @param moves array of at least MoveGenerator.MAX_MOVES
+	 * @return number of moves
+	 */
+	public int getLegalMoves(int[] moves) {
+		return MoveGenerator.getLegalMoves(pieces, new LegalityContext(pieces, isBlacksTurn), castlingRights, enPassantSquare, moves);
+	}
+
+	/**
+	 * @param square square index
+	 * @return squares the piece on square may legally move to
+	 */
+	public long getValidMoves(int square) {
+		long position = 1L << square;
+		if ((pieces.getPieces(getActivePlayer()) & position) == 0L) {
+			return 0L;
+		}
+		return MoveGenerator.getLegalDestinations(pieces, new LegalityContext(pieces, isBlacksTurn), square, castlingRights, enPassantSquare);
+	}
+
+	public boolean hasLegalMove() {
+		return MoveGenerator.hasLegalMove(pieces, new LegalityContext(pieces, isBlacksTurn), enPassantSquare);
+	}
+
+	/**
+	 * @return whether the active player's king is attacked
+	 */
+	public boolean isInCheck() {
+		return new LegalityContext(pieces, isBlacksTurn).isInCheck();
+	}
+
+	/**
+	 * @param color
+	 * @return every square defended by color
+	 */
+	public long getDefendedSquares(PieceColor color) {
+		return DefenseUtils.getDefendedSquaresForColor(pieces, color);
+	}
+
+	/**
+	 * @param position a single occupied square
+	 * @return squares defended by the piece on position
+	 */
+	public long getDefendedSquares(long position) {
+		return DefenseUtils.getDefendedSquares(position, pieces);
+	}
+
+	/**
+	 * Fills counts with how many pieces of color defend each square.
+	 *
+	 * @param color BLACK or WHITE
+	 * @param counts array of at least 64 entries, indexed by square
+	 * @return counts
+	 */
+	public int[] getAttackerCounts(PieceColor color, int[] counts) {
+		return new AttackMap(pieces).getAttackerCounts(PieceColor.BLACK.equals(color), counts);
+	}
+
+	/**
+	 * @param color
+	 * @return material plus placement of color's pieces, in centipawns
+	 */
+	public int getScore(PieceColor color) {
+		boolean isBlack = PieceColor.BLACK.equals(color);
+		return EvaluationUtils.getMaterial(pieces, isBlack) + EvaluationUtils.getPlacement(pieces, isBlack);
+	}
+
+	public boolean isInsufficientMaterial() {
+		return GameUtils.isInsufficientMaterial(pieces);
+	}
+
+	/**
+	 * Returns whether the game is over in this position, and why,
+	 * judged as RulesEngine.getGameStatus judges it.
+	 *
+	 * @return status
+	 */
+	public GameStatus getGameStatus() {
+		LegalityContext context = new LegalityContext(pieces, isBlacksTurn);
+		if (!MoveGenerator.hasLegalMove(pieces, context, enPassantSquare)) {
+			return context.isInCheck() ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+		}
+		if (repetitionCount >= 3) {
+			return GameStatus.REPETITION;
+		}
+		if (halfmoveClock >= 100) {
+			return GameStatus.FIFTY_MOVE_RULE;
+		}
+		if (isInsufficientMaterial()) {
+			return GameStatus.INSUFFICIENT_MATERIAL;
+		}
+		return GameStatus.ONGOING;
+	}
+
+	/**
+	 * Returns this position as a FEN, such as
+	 * "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1".
+	 *
+	 * @return fen
+	 */
+	public String getFen() {
+		StringBuilder fen = new StringBuilder(90);
+		FenUtils.appendPieces(pieces, fen);
+		fen.append(isBlacksTurn ? " b " : " w ");
+		FenUtils.appendCastlingRights(castlingRights, fen).append(' ');
+		fen.append(enPassantSquare < 0 ? "-" : ConvertUtils.getSquareAsString(enPassantSquare));
+		return fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber).toString();
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof Position)) {
+			return false;
+		}
+		Position position = (Position) other;
+		if (zobristKey != position.zobristKey || isBlacksTurn != position.isBlacksTurn
+				|| castlingRights != position.castlingRights || enPassantSquare != position.enPassantSquare
+				|| halfmoveClock != position.halfmoveClock || fullmoveNumber != position.fullmoveNumber) {
+			return false;
+		}
+		for (int index=0; index<PieceBoard.SIZE; ++index) {
+			if (pieces.get(index) != position.pieces.get(index)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(zobristKey);
+	}
+
+	@Override
+	public String toString() {
+		return getFen();
+	}
+}
@@ -0,0 +1,124 @@
+package com.grapedrink.chessmap.logic.bitboards;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers valid moves and whether the player to move has any legal
+ * move by position, keyed by Zobrist key, so that repainting or
+ * revisiting a position does not recompute them.
+ * Holds at most capacity positions, evicting the least recently used.
+ */
+public class PositionCache {
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final Map<Long, CachedPosition> entries;
+	private long hits;
+	private long misses;
+
+	private static class CachedPosition {
+		private final long[] validMoves = new long[64];
+		private long validMovesCached;
+		private Boolean hasLegalMoves;
+	}
+
+	public PositionCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity most positions held at once
+	 * @throws IllegalArgumentException if capacity is less than 1
+	 */
+	public PositionCache(final int capacity) throws IllegalArgumentException {
+		if (capacity < 1) {
+			throw new IllegalArgumentException(String.format("Capacity must be positive.  Capacity = {%d}", capacity));
+		}
+		entries = new LinkedHashMap<Long, CachedPosition>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, CachedPosition> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the valid moves of the piece on square in the position
+	 * with key, computing them with validMoves if they are not cached.
+	 * 
+	 * @param key Zobrist key
+	 * @param square square index, 0 through 63
+	 * @param validMoves computes the valid moves
+	 * @return valid moves
+	 */
+	public long getValidMoves(long key, int square, LongSupplier validMoves) {
+		CachedPosition position = getPosition(key);
+		if ((position.validMovesCached & (1L << square)) != 0L) {
+			++hits;
+		}
+		else {
+			++misses;
+			position.validMoves[square] = validMoves.getAsLong();
+			position.validMovesCached |= 1L << square;
+		}
+		return position.validMoves[square];
+	}
+
+	/**
+	 * Returns whether the player to move has a legal move in the
+	 * position with key, asking hasLegalMoves if it is not cached.
+	 * 
+	 * @param key Zobrist key, including the player to move
+	 * @param hasLegalMoves finds whether there is a legal move
+	 * @return false if the player to move is checkmated or stalemated
+	 */
+	public boolean hasLegalMoves(long key, BooleanSupplier hasLegalMoves) {
+		CachedPosition position = getPosition(key);
+		if (position.hasLegalMoves != null) {
+			++hits;
+		}
+		else {
+			++misses;
+			position.hasLegalMoves = hasLegalMoves.getAsBoolean();
+		}
+		return position.hasLegalMoves;
+	}
+
+	private CachedPosition getPosition(long key) {
+		CachedPosition position = entries.get(key);
+		if (position == null) {
+			position = new CachedPosition();
+			entries.put(key, position);
+		}
+		return position;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return number of positions held
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Removes every position and resets the hit and miss counters.
+	 */
+	public void clear() {
+		entries.clear();
+		hits = 0L;
+		misses = 0L;
+	}
+}
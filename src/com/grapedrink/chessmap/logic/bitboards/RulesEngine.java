@@ -4,34 +4,48 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
 
 import com.grapedrink.chessmap.game.ChessMapLogicEngine;
 import com.grapedrink.chessmap.logic.history.MoveHistory;
 import com.grapedrink.chessmap.logic.history.Turn;
 import com.grapedrink.chessmap.logic.utils.ConvertUtils;
-import com.grapedrink.chessmap.logic.utils.DefenseUtils;
+import com.grapedrink.chessmap.logic.utils.EvaluationUtils;
+import com.grapedrink.chessmap.logic.utils.FenUtils;
+import com.grapedrink.chessmap.logic.utils.GameUtils;
+import com.grapedrink.chessmap.logic.utils.MoveGenerator;
+import com.grapedrink.chessmap.logic.utils.PackedMove;
 import com.grapedrink.chessmap.logic.utils.PieceUtils;
+import com.grapedrink.chessmap.logic.utils.SanUtils;
 
 public class RulesEngine extends ChessMapLogicEngine {
 
 	PieceContainer pieceContainer;
 	MoveHistory history;
+	private final PositionCache cache;
 	
 	public RulesEngine() {
 		pieceContainer = new PieceContainer();
 		history = new MoveHistory();
+		history.setStartKey(getZobristKey());
+		cache = new PositionCache();
 	}
 	
 	@Override
 	public void setNewGame() {
 		pieceContainer.setNewGame();
 		history = new MoveHistory();
+		history.setStartKey(getZobristKey());
 	}
 
 	@Override
 	public Entry<String, String> getNextMove() throws IndexOutOfBoundsException {
 		Map.Entry<String, String> next = history.getNext().getMove();
-		if (PieceUtils.isPieceCode(next.getKey())) {
+		int packedMove = history.getPackedMove(history.getMoveCount());
+		if (packedMove != MoveHistory.NO_MOVE) {
+			makeMove(packedMove, history.getMoveCount() - 1);
+		}
+		else if (PieceUtils.isPieceCode(next.getKey())) {
 			pieceContainer.addPieceToBoard(next.getKey(), next.getValue());
 		}
 		else {
@@ -44,10 +58,82 @@ public class RulesEngine extends ChessMapLogicEngine {
 
 	@Override
 	public Entry<String, String> getPrevMove() throws IndexOutOfBoundsException {
+		int packedMove = history.hasPrev() ? history.getPackedMove(history.getMoveCount()) : MoveHistory.NO_MOVE;
 		Turn prev = history.getPrev();
-		pieceContainer.setMove(prev);
+		if (packedMove != MoveHistory.NO_MOVE) {
+			pieceContainer.unmakeMove();
+		}
+		else {
+			pieceContainer.setMove(prev);
+		}
 		return prev.getMove();
 	}
+	
+	/**
+	 * Walks the board forwards or backwards to ply, where ply 0 is
+	 * before the first turn, without reporting each step.
+	 * 
+	 * @param ply 0 through getPlyCount()
+	 * @throws IndexOutOfBoundsException
+	 */
+	public void setPly(int ply) throws IndexOutOfBoundsException {
+		if (ply < 0 || ply > history.size()) {
+			throw new IndexOutOfBoundsException(String.format("Ply %d is not in a history of %d turns", ply, history.size()));
+		}
+		while (history.getMoveCount() > ply) {
+			getPrevMove();
+		}
+		while (history.getMoveCount() < ply) {
+			getNextMove();
+		}
+	}
+	
+	/**
+	 * @return the current ply, 0 before the first turn
+	 */
+	public int getPly() {
+		return history.getMoveCount();
+	}
+	
+	/**
+	 * @return number of turns stored, including those after the current ply
+	 */
+	public int getPlyCount() {
+		return history.size();
+	}
+	
+	/**
+	 * Returns the turn that reached ply as a PackedMove,
+	 * or MoveHistory.NO_MOVE if it was not played as one,
+	 * such as a piece added with addPiece.
+	 * 
+	 * @param ply 1 through getPlyCount()
+	 * @return move
+	 * @throws IndexOutOfBoundsException
+	 */
+	public int getMove(int ply) throws IndexOutOfBoundsException {
+		return history.getPackedMove(ply);
+	}
+	
+	/**
+	 * Plays move with makeMove, first setting the en passant
+	 * square left by the turn at ply, since turns played
+	 * through setMove(Turn) do not track it.
+	 */
+	private void makeMove(int move, int ply) {
+		pieceContainer.setEnPassantSquare(pieceContainer.getEnPassantSquare(history.get(ply)));
+		pieceContainer.makeMove(move);
+	}
+	
+	/**
+	 * Returns whether moving src to dst resets the halfmove
+	 * clock, being a pawn move or a capture.
+	 */
+	private boolean isIrreversible(int src, int dst) {
+		PieceBoard pieces = pieceContainer.getPieceBoard();
+		long pawns = pieces.get(PieceBoard.BLACK_PAWN) | pieces.get(PieceBoard.WHITE_PAWN);
+		return ((pawns >>> src) & 1L) != 0L || ((pieces.getAllPieces() >>> dst) & 1L) != 0L;
+	}
 
 	@Override
 	public boolean hasNextMove() {
@@ -66,10 +152,82 @@ public class RulesEngine extends ChessMapLogicEngine {
 
 	@Override
 	public void setMove(String source, String destination) {
+		int move = getLegalMove(ConvertUtils.getPositionAsSquare(source), ConvertUtils.getPositionAsSquare(destination));
+		if (move != MoveHistory.NO_MOVE) {
+			setMove(move);
+			return;
+		}
 		long src = ConvertUtils.getPositionAsLong(source);
 		long dst = ConvertUtils.getPositionAsLong(destination);
+		boolean isIrreversible = isIrreversible(Long.numberOfTrailingZeros(src), Long.numberOfTrailingZeros(dst));
 		Turn turn = pieceContainer.setMove(src, dst);
-		history.addMove(turn);
+		history.addMove(turn, MoveHistory.NO_MOVE, isIrreversible, getKeyAfter(turn));
+	}
+	
+	/**
+	 * Plays a legal move encoded as a PackedMove int,
+	 * such as one returned by getLegalMoves or getSanMove.
+	 * 
+	 * @param move
+	 */
+	public void setMove(int move) {
+		boolean isIrreversible = PackedMove.isCapture(move) || isIrreversible(PackedMove.getSrc(move), PackedMove.getDst(move));
+		makeMove(move, history.getMoveCount());
+		String source = ConvertUtils.getSquareAsString(PackedMove.getSrc(move));
+		String destination = ConvertUtils.getSquareAsString(PackedMove.getDst(move));
+		Turn turn = new Turn(source, destination);
+		history.addMove(turn, move, isIrreversible, getKeyAfter(turn));
+	}
+	
+	/**
+	 * Returns the Zobrist key of the position after turn,
+	 * which has been played but not yet added to the history.
+	 */
+	private long getKeyAfter(Turn turn) {
+		return pieceContainer.getZobristKey(!history.isBlacksTurn(), turn);
+	}
+	
+	/**
+	 * Returns the legal move written in Standard Algebraic
+	 * Notation, such as "Nbd7" or "e8=Q", as a PackedMove.
+	 * 
+	 * @param san
+	 * @return move
+	 * @throws IllegalArgumentException if san is not exactly one legal move
+	 */
+	public int getSanMove(String san) throws IllegalArgumentException {
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = getLegalMoves(moves);
+		return SanUtils.getMove(san, pieceContainer.getPieceBoard(), moves, count);
+	}
+	
+	/**
+	 * Returns the legal move from src to dst as a PackedMove,
+	 * promoting to a queen, or NO_MOVE if there is none.
+	 */
+	private int getLegalMove(int src, int dst) {
+		return getLegalMove(src, dst, PieceType.QUEEN);
+	}
+	
+	/**
+	 * Returns the legal move from src to dst as a PackedMove,
+	 * or MoveHistory.NO_MOVE if there is none.
+	 * 
+	 * @param src square index
+	 * @param dst square index
+	 * @param promotion piece a pawn reaching the last rank becomes
+	 * @return move
+	 */
+	public int getLegalMove(int src, int dst, PieceType promotion) {
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = getLegalMoves(moves);
+		for (int i=0; i<count; ++i) {
+			if (PackedMove.getSrc(moves[i]) == src && PackedMove.getDst(moves[i]) == dst
+					&& (!PackedMove.isPromotion(moves[i]) || promotion.equals(PackedMove.getPromotion(moves[i])))) {
+				return moves[i];
+			}
+		}
+		return MoveHistory.NO_MOVE;
 	}
 
 	@Override
@@ -83,7 +241,222 @@ public class RulesEngine extends ChessMapLogicEngine {
 	public Iterable<String> getValidMoves(String source) {
 		InputValidation.validatePosition(source);
 		long src = ConvertUtils.getPositionAsLong(source);
-		return ConvertUtils.getPositionsAsStrings(pieceContainer.getValidMoves(src, history.mostRecent()));
+		long validMoves = cache.getValidMoves(getZobristKey(), Long.numberOfTrailingZeros(src),
+				() -> pieceContainer.getValidMoves(src, history.mostRecent()));
+		return ConvertUtils.getPositionsAsStrings(validMoves);
+	}
+
+	/**
+	 * Writes every legal move for the active player into moves,
+	 * encoded as PackedMove ints, and returns how many were written.
+	 * 
+	 * @param moves array of at least MoveGenerator.MAX_MOVES
+	 * @return number of moves
+	 */
+	public int getLegalMoves(int[] moves) {
+		return pieceContainer.getLegalMoves(history.isBlacksTurn(), history.mostRecent(), moves);
+	}
+
+	/**
+	 * Returns the Zobrist key of the current position.
+	 * Positions with the same pieces, side to move, castles
+	 * allowed and en passant capture have the same key.
+	 * 
+	 * @return key
+	 */
+	public long getZobristKey() {
+		return pieceContainer.getZobristKey(history.isBlacksTurn(), history.mostRecent());
+	}
+	
+	/**
+	 * Counts the leaf nodes of the legal move tree from the current
+	 * position to depth plies.  The board is left as it was found.
+	 * 
+	 * ex: perft(3) from the starting position is 8902
+	 * 
+	 * @param depth plies to search, 0 or more
+	 * @return number of leaf nodes
+	 */
+	public long perft(int depth) {
+		pieceContainer.setEnPassantSquare(pieceContainer.getEnPassantSquare(history.mostRecent()));
+		return perft(depth, history.isBlacksTurn(), new int[Math.max(depth, 1)][MoveGenerator.MAX_MOVES]);
+	}
+	
+	/**
+	 * Returns perft(depth - 1) below each legal move, keyed by
+	 * the move in coordinate notation, such as "e2e4".
+	 * Used to find which move a wrong perft count comes from.
+	 * 
+	 * @param depth plies to search, 1 or more
+	 * @return leaf nodes per move
+	 */
+	public Map<String, Long> perftDivide(int depth) {
+		Map<String, Long> divide = new TreeMap<>();
+		int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+		int[][] moves = new int[Math.max(depth - 1, 1)][MoveGenerator.MAX_MOVES];
+		boolean isBlacksTurn = history.isBlacksTurn();
+		pieceContainer.setEnPassantSquare(pieceContainer.getEnPassantSquare(history.mostRecent()));
+		int count = pieceContainer.getLegalMoves(isBlacksTurn, rootMoves);
+		for (int i=0; i<count; ++i) {
+			pieceContainer.makeMove(rootMoves[i]);
+			divide.put(PackedMove.toString(rootMoves[i]), perft(depth - 1, !isBlacksTurn, moves));
+			pieceContainer.unmakeMove();
+		}
+		return divide;
+	}
+	
+	private long perft(int depth, boolean isBlacksTurn, int[][] moves) {
+		if (depth == 0) {
+			return 1L;
+		}
+		int[] legalMoves = moves[depth - 1];
+		int count = pieceContainer.getLegalMoves(isBlacksTurn, legalMoves);
+		if (depth == 1) {
+			return count;
+		}
+		long nodes = 0L;
+		for (int i=0; i<count; ++i) {
+			pieceContainer.makeMove(legalMoves[i]);
+			nodes += perft(depth - 1, !isBlacksTurn, moves);
+			pieceContainer.unmakeMove();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Sets up the position in fen, such as
+	 * "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1",
+	 * writing the bitboards directly and clearing the move history.
+	 * The clocks may be left out, and default to 0 and 1.
+	 * 
+	 * @param fen
+	 * @throws IllegalArgumentException if fen is malformed
+	 */
+	public void setFen(String fen) throws IllegalArgumentException {
+		PieceBoard board = new PieceBoard();
+		int start = FenUtils.getPieces(fen, board) + 1;
+		int end = getFieldEnd(fen, start);
+		if (end != start + 1 || "wb".indexOf(fen.charAt(start)) < 0) {
+			throw new IllegalArgumentException(String.format("Invalid FEN side to move.  FEN = {%s}", fen));
+		}
+		boolean isBlacksTurn = fen.charAt(start) == 'b';
+		
+		start = end + 1;
+		end = getFieldEnd(fen, start);
+		int castlingRights = FenUtils.getCastlingRights(fen.substring(start, end));
+		
+		start = end + 1;
+		end = getFieldEnd(fen, start);
+		int enPassantSquare = FenUtils.getEnPassantSquare(fen.substring(start, end));
+		
+		int halfmoveClock = 0;
+		int fullmoveNumber = 1;
+		if (end < fen.length()) {
+			try {
+				start = end + 1;
+				end = getFieldEnd(fen, start);
+				halfmoveClock = Integer.parseInt(fen.substring(start, end));
+				start = end + 1;
+				end = getFieldEnd(fen, start);
+				fullmoveNumber = Integer.parseInt(fen.substring(start, end));
+			}
+			catch (NumberFormatException e) {
+				throw new IllegalArgumentException(String.format("Invalid FEN clocks.  FEN = {%s}", fen), e);
+			}
+		}
+		
+		setStart(board, isBlacksTurn, castlingRights, enPassantSquare, halfmoveClock, fullmoveNumber);
+	}
+	
+	/**
+	 * Replaces the board with a copy of position's and clears the move
+	 * history, so the game goes on from position.
+	 * 
+	 * @param position
+	 */
+	public void setPosition(Position position) {
+		setStart(position.getPieceBoard(), position.isBlacksTurn(), position.getCastlingRights(),
+				position.getEnPassantSquare(), position.getHalfmoveClock(), position.getFullmoveNumber());
+	}
+	
+	private void setStart(PieceBoard board, boolean isBlacksTurn, int castlingRights, int enPassantSquare,
+			int halfmoveClock, int fullmoveNumber) {
+		pieceContainer.setPosition(board, castlingRights, enPassantSquare);
+		history = new MoveHistory();
+		history.setStart(isBlacksTurn, getDoublePush(enPassantSquare), halfmoveClock, fullmoveNumber);
+		history.setStartKey(getZobristKey());
+	}
+	
+	/**
+	 * Returns an immutable snapshot of the current position,
+	 * which later moves on this engine do not change, and which
+	 * can be read from other threads while this engine is played.
+	 * 
+	 * @return position
+	 */
+	@Override
+	public Position getPosition() {
+		boolean isBlacksTurn = history.isBlacksTurn();
+		int enPassantSquare = pieceContainer.getEnPassantSquare(history.mostRecent());
+		return new Position(pieceContainer.getPieceBoard().copy(), isBlacksTurn, pieceContainer.getCastlingRights(),
+				enPassantSquare, history.getHalfmoveClock(), history.getFullmoveNumber(),
+				pieceContainer.getZobristKey(isBlacksTurn, enPassantSquare), history.getRepetitionCount());
+	}
+	
+	/**
+	 * Returns the index of the space after the field starting at start.
+	 */
+	private static int getFieldEnd(String fen, int start) throws IllegalArgumentException {
+		if (start >= fen.length()) {
+			throw new IllegalArgumentException(String.format("Invalid FEN, missing fields.  FEN = {%s}", fen));
+		}
+		int end = fen.indexOf(' ', start);
+		return end < 0 ? fen.length() : end;
+	}
+	
+	/**
+	 * Returns the double pawn push that left enPassantSquare,
+	 * or null if there is none, so that the first move can
+	 * capture en passant.
+	 */
+	private static Turn getDoublePush(int enPassantSquare) {
+		if (enPassantSquare < 0) {
+			return null;
+		}
+		int direction = enPassantSquare < 32 ? 8 : -8;
+		return new Turn(ConvertUtils.getSquareAsString(enPassantSquare - direction),
+				ConvertUtils.getSquareAsString(enPassantSquare + direction));
+	}
+	
+	/**
+	 * Returns the current position as a FEN, such as
+	 * "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1".
+	 * The en passant square is only written after a double pawn push.
+	 * 
+	 * @return fen
+	 */
+	public String getFen() {
+		return getPosition().getFen();
+	}
+	
+	/**
+	 * Replaces the whole board in one step, without recording
+	 * a turn per piece as addPiece does.  Clears the move history.
+	 * 
+	 * @param board piece codes keyed by position, as from getBoard()
+	 * @param isBlacksTurn player to move
+	 * @param castlingRights PieceContainer.CASTLE_* flags
+	 */
+	public void setPosition(Map<String, String> board, boolean isBlacksTurn, int castlingRights) {
+		PieceBoard pieces = new PieceBoard();
+		for (Entry<String, String> square : board.entrySet()) {
+			String pieceCode = square.getValue();
+			pieces.set(pieceCode, pieces.get(pieceCode) | ConvertUtils.getPositionAsLong(square.getKey()));
+		}
+		pieceContainer.setPosition(pieces, castlingRights, -1);
+		history = new MoveHistory();
+		history.setActivePlayer(isBlacksTurn);
+		history.setStartKey(getZobristKey());
 	}
 
 	@Override
@@ -102,19 +475,30 @@ public class RulesEngine extends ChessMapLogicEngine {
 
 	@Override
 	public void loadGame(Map<Integer, Entry<String, String>> game) {
-		// TODO Auto-generated method stub
+		setNewGame();
+		for (Entry<String, String> turn : new TreeMap<>(game).values()) {
+			if (PieceUtils.isPieceCode(turn.getKey())) {
+				addPiece(turn.getKey(), turn.getValue());
+			}
+			else {
+				setMove(turn.getKey(), turn.getValue());
+			}
+		}
+		setPly(0);
 	}
 	
 	@Override
 	public void addPiece(String pieceCode, String position) {
 		Turn turn = pieceContainer.addPieceToBoard(pieceCode, position);
-		history.addMove(turn);
+		// an added piece cannot be taken back by playing, so no earlier position can repeat
+		history.addMove(turn, MoveHistory.NO_MOVE, true, getKeyAfter(turn));
 	}
 
 	@Override
 	public void resetBoard() {
 		pieceContainer = new PieceContainer();
 		history = new MoveHistory();
+		history.setStartKey(getZobristKey());
 	}
 
 	@Override
@@ -124,33 +508,195 @@ public class RulesEngine extends ChessMapLogicEngine {
 
 	@Override
 	public Collection<String> getTotalDefense(PieceColor color) {
-		long totalDefense = DefenseUtils.getDefendedSquaresForColor(pieceContainer.getPieces(), color);;
-		return ConvertUtils.getPositionsAsStrings(totalDefense);
+		return ConvertUtils.getPositionsAsStrings(pieceContainer.getDefendedSquares(color));
 	}
 
 	@Override
-	public PieceColor getWinner() {
-		long availableMoves = 0L;
-		
-		Iterable<Long> blackPieces = ConvertUtils.getPositionsAsLongs(pieceContainer.getBlackPieces());
-		for (long piece : blackPieces) {
-			if ((availableMoves = pieceContainer.getValidMoves(piece, null)) != 0L) {
-				break;
+	public Map<String, Integer> getDefenseCount(PieceColor color) {
+		int[] counts = pieceContainer.getAttackerCounts(color, new int[64]);
+		Map<String, Integer> defenseCount = new HashMap<>();
+		for (int square=0; square<64; ++square) {
+			if (counts[square] != 0) {
+				defenseCount.put(ConvertUtils.getPositionAsString(1L << square), counts[square]);
 			}
-        }
-		if (availableMoves == 0L) {
-			return PieceColor.WHITE;
 		}
-		
-		Iterable<Long> whitePieces = ConvertUtils.getPositionsAsLongs(pieceContainer.getWhitePieces());
-		for (long piece : whitePieces) {
-			if ((availableMoves = pieceContainer.getValidMoves(piece, null)) != 0L) {
-				break;
+		return defenseCount;
+	}
+
+	@Override
+	public Map<String, Integer> getPointDistribution(PieceColor color) {
+		Map<String, Integer> pointDistribution = new HashMap<>();
+		PieceBoard pieces = pieceContainer.getPieceBoard();
+		for (int index=0; index<PieceBoard.SIZE; ++index) {
+			if (PieceBoard.getColor(index) != color) {
+				continue;
+			}
+			for (long board = pieces.get(index); board != 0L; board &= board - 1) {
+				int square = Long.numberOfTrailingZeros(board);
+				pointDistribution.put(ConvertUtils.getPositionAsString(1L << square), EvaluationUtils.getSquareValue(index, square));
 			}
-        }
-		if (availableMoves == 0L) {
-			return PieceColor.BLACK;
 		}
-		return null;
+		return pointDistribution;
+	}
+
+	@Override
+	public Map<String, Integer> getNetPointDistribution() {
+		Map<String, Integer> netPointDistribution = getPointDistribution(PieceColor.WHITE);
+		for (Map.Entry<String, Integer> entry : getPointDistribution(PieceColor.BLACK).entrySet()) {
+			netPointDistribution.put(entry.getKey(), -entry.getValue());
+		}
+		return netPointDistribution;
+	}
+
+	@Override
+	public Map<String, Integer> getNetDefenseCount() {
+		int[] white = pieceContainer.getAttackerCounts(PieceColor.WHITE, new int[64]);
+		int[] black = pieceContainer.getAttackerCounts(PieceColor.BLACK, new int[64]);
+		Map<String, Integer> netDefenseCount = new HashMap<>();
+		for (int square=0; square<64; ++square) {
+			if (white[square] != 0 || black[square] != 0) {
+				netDefenseCount.put(ConvertUtils.getPositionAsString(1L << square), white[square] - black[square]);
+			}
+		}
+		return netDefenseCount;
+	}
+	
+	/**
+	 * Returns every square defended by color as a bitboard.
+	 * The attack maps are kept up to date as pieces move,
+	 * so this is a read rather than a scan of the board.
+	 * 
+	 * @param color
+	 * @return defended squares
+	 */
+	public long getDefendedSquares(PieceColor color) {
+		return pieceContainer.getDefendedSquares(color);
+	}
+	
+	/**
+	 * Returns how many pieces of color defend position.
+	 * 
+	 * ex: getAttackerCount("f3", PieceColor.WHITE) is 3 in the starting position
+	 * 
+	 * @param position
+	 * @param color
+	 * @return number of defenders
+	 * @throws IllegalArgumentException
+	 */
+	public int getAttackerCount(String position, PieceColor color) throws IllegalArgumentException {
+		InputValidation.validatePosition(position);
+		return pieceContainer.getAttackerCount(ConvertUtils.getPositionAsSquare(position), color);
+	}
+	
+	/**
+	 * Fills counts with how many pieces of color defend each square,
+	 * indexed by square.  Reads the attack map's counters, so it is
+	 * cheap enough to call on every ply of a game.
+	 * 
+	 * @param color
+	 * @param counts array of at least 64 entries
+	 * @return counts
+	 */
+	public int[] getAttackerCounts(PieceColor color, int[] counts) {
+		return pieceContainer.getAttackerCounts(color, counts);
+	}
+	
+	/**
+	 * Returns the squares color defends with more pieces than the other color.
+	 * 
+	 * ex: in the starting position, white controls every square of ranks 1 to 3
+	 * except a1 and h1, which nothing defends
+	 * 
+	 * @param color
+	 * @return controlled squares
+	 */
+	public long getControlledSquares(PieceColor color) {
+		return pieceContainer.getControlledSquares(color);
+	}
+	
+	/**
+	 * Returns the value of color's pieces in centipawns, a pawn being 100.
+	 * Kept up to date as pieces move, so it is cheap to read every ply.
+	 * 
+	 * ex: getMaterial(PieceColor.WHITE) is 4000 in the starting position
+	 * 
+	 * @param color
+	 * @return material
+	 */
+	public int getMaterial(PieceColor color) {
+		return pieceContainer.getMaterial(color);
+	}
+	
+	/**
+	 * Returns color's material plus the bonuses for the squares
+	 * its pieces stand on, in centipawns.
+	 * 
+	 * @param color
+	 * @return score
+	 */
+	public int getScore(PieceColor color) {
+		return pieceContainer.getScore(color);
+	}
+	
+	/**
+	 * Returns white's score minus black's, so a positive
+	 * score means white is ahead.
+	 * 
+	 * @return net score
+	 */
+	public int getNetScore() {
+		return pieceContainer.getScore(PieceColor.WHITE) - pieceContainer.getScore(PieceColor.BLACK);
+	}
+	
+	/**
+	 * @return whether the active player's king is attacked
+	 */
+	public boolean isInCheck() {
+		return pieceContainer.isInCheck(history.isBlacksTurn());
+	}
+	
+	/**
+	 * Returns the cache of valid moves,
+	 * whose hit and miss counters show how often positions repeat.
+	 * 
+	 * @return cache
+	 */
+	public PositionCache getPositionCache() {
+		return cache;
+	}
+
+	@Override
+	public PieceColor getWinner() {
+		if (!GameStatus.CHECKMATE.equals(getGameStatus())) {
+			return null;
+		}
+		return history.isBlacksTurn() ? PieceColor.WHITE : PieceColor.BLACK;
+	}
+	
+	/**
+	 * Returns whether the game is over at the current ply, and why.
+	 * Only the player to move is looked at, stopping at its first
+	 * legal move, and whether it has one is cached by position.
+	 * 
+	 * @return status
+	 */
+	@Override
+	public GameStatus getGameStatus() {
+		boolean isBlacksTurn = history.isBlacksTurn();
+		int enPassantSquare = pieceContainer.getEnPassantSquare(history.mostRecent());
+		boolean hasLegalMoves = cache.hasLegalMoves(getZobristKey(), () -> pieceContainer.hasLegalMoves(isBlacksTurn, enPassantSquare));
+		if (!hasLegalMoves) {
+			return pieceContainer.isInCheck(isBlacksTurn) ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+		}
+		if (history.getRepetitionCount() >= 3) {
+			return GameStatus.REPETITION;
+		}
+		if (history.getHalfmoveClock() >= 100) {
+			return GameStatus.FIFTY_MOVE_RULE;
+		}
+		if (GameUtils.isInsufficientMaterial(pieceContainer.getPieceBoard())) {
+			return GameStatus.INSUFFICIENT_MATERIAL;
+		}
+		return GameStatus.ONGOING;
 	}
 }
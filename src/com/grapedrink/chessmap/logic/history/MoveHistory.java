@@ -1,29 +1,145 @@
 package com.grapedrink.chessmap.logic.history;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Manages the moves taken and the current player's turn
+ * 
+ * Turns are kept in a growable array indexed by ply, so any ply
+ * can be read directly and branching off an earlier ply discards
+ * the later turns by moving the end marker instead of removing them.
+ * The Zobrist key of the position after each ply is kept alongside,
+ * so that repetitions are found without replaying the game.
  */
 public class MoveHistory {
 
+	/**
+	 * Packed move stored for turns that were not
+	 * played as a PackedMove, such as added pieces.
+	 */
+	public static final int NO_MOVE = -1;
+
+	private static final int INITIAL_CAPACITY = 128;
+
 	private int moveCount;
+	private int size;
 	private boolean isBlacksTurn;
-	private Map<Integer, Turn> history;
+	private Turn[] turns;
+	private int[] packedMoves;
+	private int[] halfmoveClocks;
+	private long[] keys;
+	
+	private Turn previousTurn;
+	private boolean isBlackFirst;
+	private int initialHalfmoveClock;
+	private int initialFullmoveNumber;
 
 	public MoveHistory() {
 		moveCount = 0;
+		size = 0;
 		isBlacksTurn = false;
-		history = new HashMap<>();
+		turns = new Turn[INITIAL_CAPACITY];
+		packedMoves = new int[INITIAL_CAPACITY];
+		halfmoveClocks = new int[INITIAL_CAPACITY];
+		keys = new long[INITIAL_CAPACITY + 1];
+		previousTurn = null;
+		isBlackFirst = false;
+		initialHalfmoveClock = 0;
+		initialFullmoveNumber = 1;
+	}
+
+	/**
+	 * Describes the position this history starts from,
+	 * as read from a FEN.
+	 * 
+	 * @param isBlacksTurn player to move first
+	 * @param previousTurn the double pawn push that allows an en passant
+	 * capture on the first move, or null
+	 * @param halfmoveClock plies since the last capture or pawn move
+	 * @param fullmoveNumber number of the first move, starting at 1
+	 */
+	public void setStart(boolean isBlacksTurn, Turn previousTurn, int halfmoveClock, int fullmoveNumber) {
+		this.isBlacksTurn = isBlacksTurn;
+		this.previousTurn = previousTurn;
+		isBlackFirst = isBlacksTurn;
+		initialHalfmoveClock = halfmoveClock;
+		initialFullmoveNumber = fullmoveNumber;
+	}
+
+	/**
+	 * Sets the Zobrist key of the position this history starts from.
+	 * 
+	 * @param key
+	 */
+	public void setStartKey(long key) {
+		keys[0] = key;
 	}
 
 	public void addMove(Turn turn) {
-		history.put(++moveCount, turn);
-		int i = moveCount;
-		while (history.remove(++i) != null);
+		addMove(turn, NO_MOVE, false, 0L);
+	}
+
+	/**
+	 * Adds turn after the current move, discarding any turns after it.
+	 * 
+	 * @param turn
+	 * @param packedMove the turn as a PackedMove, or NO_MOVE
+	 * @param isIrreversible whether the turn was a capture or pawn move,
+	 * which resets the halfmove clock
+	 * @param key Zobrist key of the position after turn
+	 */
+	public void addMove(Turn turn, int packedMove, boolean isIrreversible, long key) {
+		if (moveCount == turns.length) {
+			turns = Arrays.copyOf(turns, turns.length * 2);
+			packedMoves = Arrays.copyOf(packedMoves, packedMoves.length * 2);
+			halfmoveClocks = Arrays.copyOf(halfmoveClocks, halfmoveClocks.length * 2);
+			keys = Arrays.copyOf(keys, turns.length + 1);
+		}
+		halfmoveClocks[moveCount] = isIrreversible ? 0 : getHalfmoveClock() + 1;
+		turns[moveCount] = turn;
+		packedMoves[moveCount] = packedMove;
+		keys[moveCount + 1] = key;
+		size = ++moveCount;
 		switchTurns();
 	}
+	
+	/**
+	 * Returns how many times the current position has occurred,
+	 * including now.  Only plies since the last capture or pawn
+	 * move are looked at, since none before it can repeat.
+	 * 
+	 * @return 1 if the position is new
+	 */
+	public int getRepetitionCount() {
+		int count = 1;
+		int firstPly = Math.max(0, moveCount - getHalfmoveClock());
+		for (int ply=moveCount-2; ply>=firstPly; ply-=2) {
+			if (keys[ply] == keys[moveCount]) {
+				++count;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the number of plies since the last capture
+	 * or pawn move, as used by the fifty move rule.
+	 * 
+	 * @return halfmove clock
+	 */
+	public int getHalfmoveClock() {
+		return moveCount > 0 ? halfmoveClocks[moveCount - 1] : initialHalfmoveClock;
+	}
+	
+	/**
+	 * Returns the number of the current full move, which
+	 * starts at 1 and increases after each of black's moves.
+	 * 
+	 * @return fullmove number
+	 */
+	public int getFullmoveNumber() {
+		return initialFullmoveNumber + (moveCount + (isBlackFirst ? 1 : 0)) / 2;
+	}
 
 	public boolean isBlacksTurn() {
 		return isBlacksTurn;
@@ -38,7 +154,7 @@ public class MoveHistory {
 	 * @return
 	 */
 	public boolean hasNext() {
-		return moveCount < history.size();
+		return moveCount < size;
 	}
 
 	/**
@@ -56,9 +172,9 @@ public class MoveHistory {
 	 * @throws IndexOutOfBoundsException 
 	 */
 	public Turn getNext() throws IndexOutOfBoundsException {
-		if (moveCount < history.size()) {
+		if (moveCount < size) {
 			switchTurns();
-			return history.get(++moveCount);
+			return turns[moveCount++];
 		}
 		throw new IndexOutOfBoundsException();
 	}
@@ -72,7 +188,7 @@ public class MoveHistory {
 	public Turn getPrev() throws IndexOutOfBoundsException {
 		if (moveCount > 0) {
 			switchTurns();
-			return history.get(moveCount--);
+			return turns[--moveCount];
 		}
 		throw new IndexOutOfBoundsException();
 	}
@@ -89,6 +205,52 @@ public class MoveHistory {
 		return moveCount;
 	}
 	
+	/**
+	 * Returns the number of turns stored, including
+	 * those after the current move.
+	 * 
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the turn that reached ply, where ply 1 is the first turn.
+	 * Ply 0 returns the turn played before this history started,
+	 * which is null unless setStart gave one.
+	 * 
+	 * @param ply 0 through size()
+	 * @return turn
+	 * @throws IndexOutOfBoundsException
+	 */
+	public Turn get(int ply) throws IndexOutOfBoundsException {
+		if (ply == 0) {
+			return previousTurn;
+		}
+		validatePly(ply);
+		return turns[ply - 1];
+	}
+	
+	/**
+	 * Returns the turn that reached ply as a PackedMove,
+	 * or NO_MOVE if it was not played as one.
+	 * 
+	 * @param ply 1 through size()
+	 * @return packed move
+	 * @throws IndexOutOfBoundsException
+	 */
+	public int getPackedMove(int ply) throws IndexOutOfBoundsException {
+		validatePly(ply);
+		return packedMoves[ply - 1];
+	}
+	
+	private void validatePly(int ply) throws IndexOutOfBoundsException {
+		if (ply < 1 || ply > size) {
+			throw new IndexOutOfBoundsException(String.format("Ply %d is not in a history of %d turns", ply, size));
+		}
+	}
+	
 	private void switchTurns() {
 		isBlacksTurn = !isBlacksTurn;
 	}
@@ -97,15 +259,16 @@ public class MoveHistory {
 	 * Returns the previous stored move.
 	 * Does not update HEAD pointer.
 	 * 
-	 * Returns null if first move.
+	 * Returns the turn before this history started,
+	 * usually null, if first move.
 	 * 
 	 * @return move
 	 */
 	public Turn mostRecent() {
 		if (moveCount > 0) {
-			return history.get(moveCount);
+			return turns[moveCount - 1];
 		}
-		return null;
+		return previousTurn;
 	}
 
 }
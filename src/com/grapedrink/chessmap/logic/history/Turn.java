@@ -23,9 +23,17 @@ public class Turn {
 		pieceDiffs = new HashMap<>();
 	}
 	
+	/**
+	 * Records the positions of pieceCode before this turn.
+	 * Only the first state recorded for a piece code is kept,
+	 * since later ones are already part way through the turn.
+	 * 
+	 * @param pieceCode
+	 * @param positions
+	 */
 	public void addPrevState(String pieceCode, long positions) {
 		InputValidation.validatePieceCode(pieceCode);
-		pieceDiffs.put(pieceCode, positions);
+		pieceDiffs.putIfAbsent(pieceCode, positions);
 	}
 
 	public String getSrc() {
@@ -0,0 +1,297 @@
+package com.grapedrink.chessmap.logic.pgn;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+
+/**
+ * Reads games from Portable Game Notation (PGN) one at a time,
+ * playing each move into a RulesEngine as it is read.  Only the
+ * current game's tags and token are held, so a database of any
+ * size can be read in bounded memory.
+ * 
+ * Comments, variations and numeric annotation glyphs are skipped.
+ * Games with a FEN tag start from that position.
+ * 
+ * ex:
+ *     try (PgnReader pgn = new PgnReader(new FileReader("games.pgn"))) {
+ *         while (pgn.readGame(engine)) {
+ *             ...
+ *         }
+ *     }
+ */
+public class PgnReader implements Closeable {
+
+	private static final int NONE = -2;
+	private static final int EOF = -1;
+
+	private final BufferedReader reader;
+	private final Map<String, String> tags;
+	private final StringBuilder token;
+	private StringBuilder text;
+	private String result;
+	private int gameCount;
+	private int pushedBack;
+
+	public PgnReader(Reader reader) {
+		this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+		tags = new LinkedHashMap<>();
+		token = new StringBuilder();
+		pushedBack = NONE;
+	}
+
+	/**
+	 * Reads the next game, starting engine from a new game and
+	 * playing its moves.  The engine is left after the last move.
+	 * 
+	 * If a move is not legal, the rest of the game is skipped so that
+	 * the next call starts at the following game, and an
+	 * IllegalArgumentException naming the game and move is thrown.
+	 * 
+	 * @param engine
+	 * @return false if there are no more games
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 */
+	public boolean readGame(RulesEngine engine) throws IOException, IllegalArgumentException {
+		return readNextGame(engine);
+	}
+	
+	/**
+	 * Reads the next game without playing it, returning its
+	 * tags and movetext as they appear in the file, or null
+	 * if there are no more games.  Splitting a database this
+	 * way is cheap, so each game can be replayed on another
+	 * thread with its own PgnReader and RulesEngine.
+	 * 
+	 * @return game as PGN
+	 * @throws IOException
+	 */
+	public String readGameText() throws IOException {
+		text = new StringBuilder(1024);
+		try {
+			return readNextGame(null) ? text.toString().trim() : null;
+		}
+		finally {
+			text = null;
+		}
+	}
+	
+	/**
+	 * Reads the next game, playing its moves into engine
+	 * unless engine is null.
+	 */
+	private boolean readNextGame(RulesEngine engine) throws IOException, IllegalArgumentException {
+		tags.clear();
+		result = null;
+		int c = skipWhitespace();
+		if (c == EOF) {
+			return false;
+		}
+		++gameCount;
+		while (c == '[') {
+			readTag();
+			c = skipWhitespace();
+		}
+		pushBack(c);
+		
+		IllegalArgumentException error = null;
+		String fen = tags.get("FEN");
+		if (engine != null && fen == null) {
+			engine.setNewGame();
+		}
+		else if (engine != null) {
+			try {
+				engine.setFen(fen);
+			}
+			catch (IllegalArgumentException e) {
+				error = new IllegalArgumentException(String.format("Game %d: %s", gameCount, e.getMessage()), e);
+			}
+		}
+		while (result == null && (c = skipWhitespace()) != EOF) {
+			switch (c) {
+			case '[':
+				pushBack(c);
+				return finish(error);
+			case '{':
+				skipPast('}');
+				break;
+			case ';':
+				skipPast('\n');
+				break;
+			case '(':
+				skipVariation();
+				break;
+			case ')':
+			case '}':
+				// unmatched, so skipped like whitespace
+				break;
+			default:
+				pushBack(c);
+				String move = readMove();
+				if (move != null && engine != null && error == null) {
+					try {
+						engine.setMove(engine.getSanMove(move));
+					}
+					catch (IllegalArgumentException e) {
+						error = new IllegalArgumentException(String.format("Game %d, ply %d: %s",
+								gameCount, engine.getPly() + 1, e.getMessage()), e);
+					}
+				}
+			}
+		}
+		return finish(error);
+	}
+
+	private boolean finish(IllegalArgumentException error) throws IllegalArgumentException {
+		if (error != null) {
+			throw error;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the tag pairs of the game last read, such as
+	 * "White" or "Result", in the order they appeared.
+	 * 
+	 * @return tags
+	 */
+	public Map<String, String> getTags() {
+		return Collections.unmodifiableMap(tags);
+	}
+
+	/**
+	 * Returns the result of the game last read, such as "1-0"
+	 * or "*", or null if the game ended without one.
+	 * 
+	 * @return result
+	 */
+	public String getResult() {
+		return result;
+	}
+
+	/**
+	 * @return number of games read so far
+	 */
+	public int getGameCount() {
+		return gameCount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * Reads one movetext token, returning its SAN move,
+	 * or null if it was a move number, annotation or result.
+	 */
+	private String readMove() throws IOException {
+		token.setLength(0);
+		int c;
+		while ((c = read()) != EOF && !Character.isWhitespace(c) && "{}();[".indexOf(c) < 0) {
+			token.append((char) c);
+		}
+		pushBack(c);
+		
+		String move = token.toString();
+		if ("1-0".equals(move) || "0-1".equals(move) || "1/2-1/2".equals(move) || "*".equals(move)) {
+			result = move;
+			return null;
+		}
+		if (move.startsWith("$") || move.startsWith("e.p.")) {
+			return null;
+		}
+		int start = 0;
+		while (start < move.length() && Character.isDigit(move.charAt(start))) {
+			++start;
+		}
+		if (start == move.length()) {
+			return null;
+		}
+		if (start > 0 && move.charAt(start) == '.') {
+			while (start < move.length() && move.charAt(start) == '.') {
+				++start;
+			}
+			move = move.substring(start);
+		}
+		return move.isEmpty() ? null : move;
+	}
+
+	private void readTag() throws IOException {
+		token.setLength(0);
+		int c;
+		while ((c = read()) != EOF && c != ']' && c != '"') {
+			token.append((char) c);
+		}
+		String name = token.toString().trim();
+		token.setLength(0);
+		if (c == '"') {
+			while ((c = read()) != EOF && c != '"') {
+				if (c == '\\') {
+					c = read();
+				}
+				token.append((char) c);
+			}
+			skipPast(']');
+		}
+		tags.put(name, token.toString());
+	}
+
+	private void skipVariation() throws IOException {
+		int depth = 1;
+		int c;
+		while (depth > 0 && (c = read()) != EOF) {
+			if (c == '(') {
+				++depth;
+			}
+			else if (c == ')') {
+				--depth;
+			}
+			else if (c == '{') {
+				skipPast('}');
+			}
+			else if (c == ';') {
+				skipPast('\n');
+			}
+		}
+	}
+
+	private void skipPast(char end) throws IOException {
+		int c;
+		while ((c = read()) != EOF && c != end);
+	}
+
+	private int skipWhitespace() throws IOException {
+		int c;
+		while ((c = read()) != EOF && Character.isWhitespace(c));
+		return c;
+	}
+
+	private int read() throws IOException {
+		int c = pushedBack;
+		if (c != NONE) {
+			pushedBack = NONE;
+		}
+		else {
+			c = reader.read();
+		}
+		if (text != null && c != EOF) {
+			text.append((char) c);
+		}
+		return c;
+	}
+
+	private void pushBack(int c) {
+		pushedBack = c;
+		if (text != null && c != EOF) {
+			text.setLength(text.length() - 1);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.grapedrink.chessmap.logic.search;
+
+import java.util.Arrays;
+
+import com.grapedrink.chessmap.logic.utils.PackedMove;
+
+/**
+ * The result of one iteration of a search: the line both sides
+ * are expected to play, best move first, and what it is worth to
+ * the side to move.
+ */
+public class PrincipalVariation {
+
+	private final int depth;
+	private final int score;
+	private final long nodes;
+	private final long millis;
+	private final int[] moves;
+
+	/**
+	 * @param depth plies searched
+	 * @param score in centipawns for the side to move, or a mate score
+	 * @param nodes nodes visited so far
+	 * @param millis time taken so far
+	 * @param moves owned by this variation from now on
+	 */
+	PrincipalVariation(int depth, int score, long nodes, long millis, int[] moves) {
+		this.depth = depth;
+		this.score = score;
+		this.nodes = nodes;
+		this.millis = millis;
+		this.moves = moves;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Returns what the position is worth to the side to move,
+	 * in centipawns, or Search.MATE less the plies to mate if
+	 * it mates, and the negation of that if it is mated.
+	 *
+	 * @return score
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	public boolean isMate() {
+		return Math.abs(score) > Search.MATE - Search.MAX_PLY;
+	}
+
+	/**
+	 * @return moves until mate, negative if the side to move
+	 *         is mated, and 0 if there is no mate or it already is
+	 */
+	public int getMovesToMate() {
+		if (!isMate()) {
+			return 0;
+		}
+		int moves = (Search.MATE - Math.abs(score) + 1) / 2;
+		return score > 0 ? moves : -moves;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getMillis() {
+		return millis;
+	}
+
+	/**
+	 * @return best move as a PackedMove int, or 0 if there is no legal move
+	 */
+	public int getBestMove() {
+		return moves.length == 0 ? 0 : moves[0];
+	}
+
+	/**
+	 * @return the variation, as PackedMove ints
+	 */
+	public int[] getMoves() {
+		return Arrays.copyOf(moves, moves.length);
+	}
+
+	/**
+	 * Returns the variation much as a UCI engine reports it,
+	 * such as "depth 6 score cp 35 nodes 20631 time 94 pv e2e4 e7e5".
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("depth ").append(depth);
+		if (isMate()) {
+			builder.append(" score mate ").append(getMovesToMate());
+		}
+		else {
+			builder.append(" score cp ").append(score);
+		}
+		builder.append(" nodes ").append(nodes).append(" time ").append(millis).append(" pv");
+		for (int move : moves) {
+			builder.append(' ').append(PackedMove.toString(move));
+		}
+		return builder.toString();
+	}
+}
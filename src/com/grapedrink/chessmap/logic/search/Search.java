@@ -0,0 +1,382 @@
+package com.grapedrink.chessmap.logic.search;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
+import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.PieceContainer;
+import com.grapedrink.chessmap.logic.bitboards.PieceType;
+import com.grapedrink.chessmap.logic.bitboards.Position;
+import com.grapedrink.chessmap.logic.utils.EvaluationUtils;
+import com.grapedrink.chessmap.logic.utils.FenUtils;
+import com.grapedrink.chessmap.logic.utils.MoveGenerator;
+import com.grapedrink.chessmap.logic.utils.PackedMove;
+
+/**
+ * Finds the best move in a position by iterative deepening:
+ * an alpha-beta search to one ply, then two, and so on, each
+ * trying the previous iteration's line first.  Leaves are
+ * settled by a quiescence search of captures and promotions,
+ * and scored by the material and placement PieceContainer
+ * keeps up to date as moves are made and taken back.
+ *
+ * Moves are generated with MoveGenerator and played with
+ * makeMove and unmakeMove, so a search allocates nothing
+ * once it has started.  A Search is not thread safe, but
+ * analyze makes one per call.
+ *
+ *     java com.grapedrink.chessmap.logic.search.Search [fen] [millis]
+ */
+public class Search {
+
+	/**
+	 * Deepest iteration a search will start
+	 */
+	public static final int MAX_DEPTH = 64;
+
+	/**
+	 * Longest line a search will follow, counting
+	 * check extensions and quiescence
+	 */
+	public static final int MAX_PLY = 128;
+
+	/**
+	 * Score of being checkmated, before the plies to it are subtracted
+	 */
+	public static final int MATE = 100000;
+
+	private static final int INFINITY = MATE + 1;
+
+	/**
+	 * The clock and the interrupt flag are read once per this many nodes
+	 */
+	private static final int CHECK_INTERVAL = 1024;
+
+	private static final int PV_MOVE_KEY = 1 << 30;
+	private static final int CAPTURE_KEY = 1 << 20;
+	private static final int KILLER_KEY = 1 << 19;
+
+	private final PieceContainer container;
+	private final int[][] moves;
+	private final int[][] keys;
+	private final int[][] pv;
+	private final int[] pvLength;
+	private final int[][] killers;
+	private final long[] zobristKeys;
+	private final int[] halfmoveClocks;
+
+	private int[] previousPv;
+	private boolean isFollowingPv;
+	private long nodes;
+	private long maxNodes;
+	private long start;
+	private long maxNanos;
+	private boolean isStopped;
+
+	private Search() {
+		container = new PieceContainer();
+		moves = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+		keys = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+		pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+		pvLength = new int[MAX_PLY + 1];
+		killers = new int[MAX_PLY + 1][2];
+		zobristKeys = new long[MAX_PLY + 1];
+		halfmoveClocks = new int[MAX_PLY + 1];
+		previousPv = new int[0];
+	}
+
+	/**
+	 * @param position
+	 * @param limits
+	 * @return the deepest completed iteration
+	 */
+	public static PrincipalVariation analyze(Position position, SearchLimits limits) {
+		return analyze(position, limits, pv -> {});
+	}
+
+	/**
+	 * Searches position, handing each iteration's principal variation
+	 * to listener as soon as the iteration completes, on the calling
+	 * thread.  The search ends when limits are reached, a mate is found,
+	 * or the calling thread is interrupted.  If the position has no legal
+	 * move, the one variation is empty and scored as a mate or a draw.
+	 *
+	 * @param position
+	 * @param limits
+	 * @param listener called with each completed iteration
+	 * @return the deepest completed iteration, or null if interrupted before the first
+	 */
+	public static PrincipalVariation analyze(Position position, SearchLimits limits, Consumer<PrincipalVariation> listener) {
+		return new Search().run(position, limits, listener);
+	}
+
+	private PrincipalVariation run(Position position, SearchLimits limits, Consumer<PrincipalVariation> listener) {
+		start = System.nanoTime();
+		maxNanos = limits.getMillis() < Long.MAX_VALUE / 1000000L ? limits.getMillis() * 1000000L : Long.MAX_VALUE;
+		maxNodes = limits.getNodes();
+		container.setPosition(position.getPieceBoard(), position.getCastlingRights(), position.getEnPassantSquare());
+		zobristKeys[0] = position.getZobristKey();
+		halfmoveClocks[0] = position.getHalfmoveClock();
+		boolean isBlack = position.isBlacksTurn();
+
+		if (container.getLegalMoves(isBlack, moves[0]) == 0) {
+			int score = container.isInCheck(isBlack) ? -MATE : 0;
+			PrincipalVariation result = new PrincipalVariation(0, score, 0L, 0L, new int[0]);
+			listener.accept(result);
+			return result;
+		}
+
+		PrincipalVariation result = null;
+		for (int depth=1; depth<=limits.getDepth(); ++depth) {
+			isFollowingPv = true;
+			int score = search(depth, 0, -INFINITY, INFINITY, isBlack);
+			if (isStopped) {
+				break;
+			}
+			long elapsed = System.nanoTime() - start;
+			previousPv = Arrays.copyOf(pv[0], pvLength[0]);
+			result = new PrincipalVariation(depth, score, nodes, elapsed / 1000000L, previousPv);
+			listener.accept(result);
+			if (result.isMate() || nodes >= maxNodes || elapsed > maxNanos / 2) {
+				// the next iteration would not finish, or cannot do better
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the score of the position for the side to move,
+	 * failing hard: never below alpha or above beta.
+	 */
+	private int search(int depth, int ply, int alpha, int beta, boolean isBlack) {
+		pvLength[ply] = ply;
+		if (ply > 0 && isDraw(ply)) {
+			return 0;
+		}
+		boolean isInCheck = container.isInCheck(isBlack);
+		if (isInCheck) {
+			++depth;
+		}
+		if (depth <= 0) {
+			return quiesce(ply, alpha, beta, isBlack);
+		}
+		if (ply >= MAX_PLY) {
+			return evaluate(isBlack);
+		}
+		if (countNode()) {
+			return 0;
+		}
+
+		int count = container.getLegalMoves(isBlack, moves[ply]);
+		if (count == 0) {
+			return isInCheck ? -MATE + ply : 0;
+		}
+		setKeys(ply, count, false);
+		for (int i=0; i<count; ++i) {
+			int move = nextMove(ply, i, count);
+			play(move, ply);
+			int score = -search(depth - 1, ply + 1, -beta, -alpha, !isBlack);
+			container.unmakeMove();
+			isFollowingPv = false;
+			if (isStopped) {
+				return 0;
+			}
+			if (score > alpha) {
+				if (score >= beta) {
+					if (!PackedMove.isCapture(move) && killers[ply][0] != move) {
+						killers[ply][1] = killers[ply][0];
+						killers[ply][0] = move;
+					}
+					return beta;
+				}
+				alpha = score;
+				setPv(ply, move);
+			}
+		}
+		return alpha;
+	}
+
+	/**
+	 * Searches captures and promotions until the position is quiet,
+	 * letting the side to move stand pat on its evaluation, or every
+	 * evasion if it is in check.
+	 */
+	private int quiesce(int ply, int alpha, int beta, boolean isBlack) {
+		pvLength[ply] = ply;
+		if (ply >= MAX_PLY) {
+			return evaluate(isBlack);
+		}
+		if (countNode()) {
+			return 0;
+		}
+		boolean isInCheck = container.isInCheck(isBlack);
+		if (!isInCheck) {
+			int standPat = evaluate(isBlack);
+			if (standPat >= beta) {
+				return beta;
+			}
+			if (standPat > alpha) {
+				alpha = standPat;
+			}
+		}
+
+		int count = container.getLegalMoves(isBlack, moves[ply]);
+		if (count == 0) {
+			return isInCheck ? -MATE + ply : 0;
+		}
+		count = setKeys(ply, count, !isInCheck);
+		for (int i=0; i<count; ++i) {
+			int move = nextMove(ply, i, count);
+			play(move, ply);
+			int score = -quiesce(ply + 1, -beta, -alpha, !isBlack);
+			container.unmakeMove();
+			if (isStopped) {
+				return 0;
+			}
+			if (score > alpha) {
+				if (score >= beta) {
+					return beta;
+				}
+				alpha = score;
+			}
+		}
+		return alpha;
+	}
+
+	private int evaluate(boolean isBlack) {
+		int score = container.getScore(PieceColor.WHITE) - container.getScore(PieceColor.BLACK);
+		return isBlack ? -score : score;
+	}
+
+	/**
+	 * Counts a node and returns whether the search must stop.
+	 * The first iteration always finishes unless interrupted,
+	 * so that there is a move to suggest.
+	 */
+	private boolean countNode() {
+		++nodes;
+		if ((nodes & (CHECK_INTERVAL - 1)) == 0L) {
+			if (Thread.currentThread().isInterrupted()) {
+				isStopped = true;
+			}
+			else if (previousPv.length > 0 && (nodes >= maxNodes || System.nanoTime() - start > maxNanos)) {
+				isStopped = true;
+			}
+		}
+		else if (nodes >= maxNodes && previousPv.length > 0) {
+			isStopped = true;
+		}
+		return isStopped;
+	}
+
+	/**
+	 * Returns whether the position at ply repeats one since the last
+	 * capture or pawn move on the searched line, or fifty moves have
+	 * passed without one.  A single repetition is scored as a draw,
+	 * since whatever could be done instead could be done the first time.
+	 */
+	private boolean isDraw(int ply) {
+		if (halfmoveClocks[ply] >= 100) {
+			return true;
+		}
+		int earliest = Math.max(ply - halfmoveClocks[ply], 0);
+		for (int i=ply-4; i>=earliest; i-=2) {
+			if (zobristKeys[i] == zobristKeys[ply]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void play(int move, int ply) {
+		int piece = container.getPieceIndex(1L << PackedMove.getSrc(move));
+		boolean isReset = PackedMove.isCapture(move) || PieceBoard.getType(piece) == PieceType.PAWN;
+		boolean isBlack = PieceBoard.isBlack(piece);
+		container.makeMove(move);
+		zobristKeys[ply + 1] = container.getZobristKey(!isBlack, container.getEnPassantSquare());
+		halfmoveClocks[ply + 1] = isReset ? 0 : halfmoveClocks[ply] + 1;
+	}
+
+	/**
+	 * Gives each move at ply an ordering key: the previous iteration's
+	 * move first, then captures by most valuable victim and least
+	 * valuable attacker, then the quiet moves that last caused cutoffs
+	 * at this ply.  In quiescence, quiet moves are dropped instead.
+	 *
+	 * @return number of moves left to search
+	 */
+	private int setKeys(int ply, int count, boolean isQuiescence) {
+		int[] plyMoves = moves[ply];
+		int[] plyKeys = keys[ply];
+		int pvMove = isFollowingPv && ply < previousPv.length ? previousPv[ply] : 0;
+		isFollowingPv = false;
+		int kept = 0;
+		for (int i=0; i<count; ++i) {
+			int move = plyMoves[i];
+			int key = 0;
+			if (PackedMove.isCapture(move)) {
+				PieceType attacker = PieceBoard.getType(container.getPieceIndex(1L << PackedMove.getSrc(move)));
+				int victim = PackedMove.isEnPassant(move) ? EvaluationUtils.getPieceValue(PieceType.PAWN)
+						: EvaluationUtils.getPieceValue(PieceBoard.getType(container.getPieceIndex(1L << PackedMove.getDst(move))));
+				key = CAPTURE_KEY + victim * 16 - EvaluationUtils.getPieceValue(attacker) / 16;
+			}
+			if (PackedMove.isPromotion(move)) {
+				key += CAPTURE_KEY + EvaluationUtils.getPieceValue(PackedMove.getPromotion(move));
+			}
+			if (key == 0) {
+				if (isQuiescence) {
+					continue;
+				}
+				if (move == killers[ply][0]) {
+					key = KILLER_KEY + 1;
+				}
+				else if (move == killers[ply][1]) {
+					key = KILLER_KEY;
+				}
+			}
+			if (move == pvMove) {
+				key = PV_MOVE_KEY;
+				isFollowingPv = true;
+			}
+			plyMoves[kept] = move;
+			plyKeys[kept] = key;
+			++kept;
+		}
+		return kept;
+	}
+
+	/**
+	 * Swaps the best keyed move still unsearched into index i and returns it.
+	 */
+	private int nextMove(int ply, int i, int count) {
+		int[] plyMoves = moves[ply];
+		int[] plyKeys = keys[ply];
+		int best = i;
+		for (int j=i+1; j<count; ++j) {
+			if (plyKeys[j] > plyKeys[best]) {
+				best = j;
+			}
+		}
+		int move = plyMoves[best];
+		plyMoves[best] = plyMoves[i];
+		plyMoves[i] = move;
+		int key = plyKeys[best];
+		plyKeys[best] = plyKeys[i];
+		plyKeys[i] = key;
+		return move;
+	}
+
+	private void setPv(int ply, int move) {
+		pv[ply][ply] = move;
+		System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+		pvLength[ply] = pvLength[ply + 1];
+	}
+
+	public static void main(String[] args) {
+		Position position = Position.fromFen(args.length > 0 ? args[0] : FenUtils.START_POSITION);
+		SearchLimits limits = SearchLimits.ofMillis(args.length > 1 ? Long.parseLong(args[1]) : 5000L);
+		analyze(position, limits, System.out::println);
+	}
+}
@@ -0,0 +1,58 @@
+package com.grapedrink.chessmap.logic.search;
+
+/**
+ * When a search stops deepening.  A limit of 0 or less means none,
+ * so a search with no limits runs to Search.MAX_DEPTH or until its
+ * thread is interrupted.  The depth reached first is always finished,
+ * so every search that is not interrupted suggests a move.
+ */
+public class SearchLimits {
+
+	private final int depth;
+	private final long nodes;
+	private final long millis;
+
+	/**
+	 * @param depth deepest iteration, in plies
+	 * @param nodes nodes to visit, over all iterations
+	 * @param millis time to search for
+	 */
+	public SearchLimits(int depth, long nodes, long millis) {
+		this.depth = depth > 0 ? Math.min(depth, Search.MAX_DEPTH) : Search.MAX_DEPTH;
+		this.nodes = nodes > 0L ? nodes : Long.MAX_VALUE;
+		this.millis = millis > 0L ? millis : Long.MAX_VALUE;
+	}
+
+	public static SearchLimits ofDepth(int depth) {
+		return new SearchLimits(depth, 0L, 0L);
+	}
+
+	public static SearchLimits ofNodes(long nodes) {
+		return new SearchLimits(0, nodes, 0L);
+	}
+
+	public static SearchLimits ofMillis(long millis) {
+		return new SearchLimits(0, 0L, millis);
+	}
+
+	/**
+	 * @return deepest iteration, at most Search.MAX_DEPTH
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return nodes to visit, or Long.MAX_VALUE
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return time to search for, or Long.MAX_VALUE
+	 */
+	public long getMillis() {
+		return millis;
+	}
+}
@@ -0,0 +1,214 @@
+package com.grapedrink.chessmap.logic.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceType;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+import com.grapedrink.chessmap.logic.history.MoveHistory;
+import com.grapedrink.chessmap.logic.utils.PackedMove;
+
+/**
+ * Reads games written by GameStoreWriter through a memory-mapped
+ * file, so any game or ply is found in O(1) without parsing.
+ * Reads do not move the buffer's position, so one GameStore
+ * can be shared between threads.
+ *
+ * The file is laid out as:
+ *
+ *     header : int MAGIC, int VERSION, int game count, int 0, long index offset
+ *     game   : int ply count, short FEN length, FEN (ASCII, empty for
+ *              the standard start), one short per ply
+ *     index  : one long offset per game
+ *
+ * A move short holds the source square in bits 0-5, the destination
+ * in bits 6-11 and the promotion PieceType ordinal in bits 12-14.
+ * Files are limited to 2 GB, the most one mapping can hold.
+ */
+public class GameStore implements Closeable {
+
+	static final int MAGIC = 0x434D4753; // "CMGS"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 24;
+	static final int INDEX_OFFSET_POSITION = 16;
+
+	private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int gameCount;
+	private final int indexOffset;
+
+	private GameStore(FileChannel channel) throws IOException {
+		this.channel = channel;
+		if (channel.size() > Integer.MAX_VALUE) {
+			throw new IOException(String.format("Game store is larger than 2 GB.  Size = {%d}", channel.size()));
+		}
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Not a game store, or written by another version.");
+		}
+		gameCount = buffer.getInt(8);
+		long index = buffer.getLong(INDEX_OFFSET_POSITION);
+		if (gameCount < 0 || index < HEADER_SIZE || index + 8L * gameCount > buffer.limit()) {
+			throw new IOException("Game store index is corrupt.");
+		}
+		indexOffset = (int) index;
+	}
+
+	/**
+	 * Maps the game store at path for reading.
+	 *
+	 * @param path
+	 * @return store
+	 * @throws IOException if path is not a game store
+	 */
+	public static GameStore open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new GameStore(channel);
+		}
+		catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Encodes a PackedMove into the 16 bits stored per ply.
+	 */
+	static short encode(int move) {
+		return (short) (PackedMove.getSrc(move) | (PackedMove.getDst(move) << 6) | (PackedMove.getPromotion(move).ordinal() << 12));
+	}
+
+	public int getGameCount() {
+		return gameCount;
+	}
+
+	/**
+	 * @param game 0 through getGameCount() - 1
+	 * @return number of plies in game
+	 * @throws IndexOutOfBoundsException
+	 */
+	public int getPlyCount(int game) throws IndexOutOfBoundsException {
+		return buffer.getInt(getOffset(game));
+	}
+
+	/**
+	 * Returns the FEN game starts from, or null
+	 * if it starts from the standard position.
+	 *
+	 * @param game 0 through getGameCount() - 1
+	 * @return fen
+	 * @throws IndexOutOfBoundsException
+	 */
+	public String getStartFen(int game) throws IndexOutOfBoundsException {
+		int offset = getOffset(game);
+		int length = buffer.getShort(offset + 4);
+		if (length == 0) {
+			return null;
+		}
+		byte[] fen = new byte[length];
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset + 6);
+		view.get(fen);
+		return new String(fen, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Returns the source square of the move that reached ply.
+	 *
+	 * @param game 0 through getGameCount() - 1
+	 * @param ply 1 through getPlyCount(game)
+	 * @return square index
+	 * @throws IndexOutOfBoundsException
+	 */
+	public int getSrc(int game, int ply) throws IndexOutOfBoundsException {
+		return getMove(game, ply) & 0x3F;
+	}
+
+	/**
+	 * Returns the destination square of the move that reached ply.
+	 *
+	 * @param game 0 through getGameCount() - 1
+	 * @param ply 1 through getPlyCount(game)
+	 * @return square index
+	 * @throws IndexOutOfBoundsException
+	 */
+	public int getDst(int game, int ply) throws IndexOutOfBoundsException {
+		return (getMove(game, ply) >>> 6) & 0x3F;
+	}
+
+	/**
+	 * Returns the piece the move that reached ply
+	 * promoted to, or PieceType.NONE.
+	 *
+	 * @param game 0 through getGameCount() - 1
+	 * @param ply 1 through getPlyCount(game)
+	 * @return promotion
+	 * @throws IndexOutOfBoundsException
+	 */
+	public PieceType getPromotion(int game, int ply) throws IndexOutOfBoundsException {
+		return PIECE_TYPES[(getMove(game, ply) >>> 12) & 0x7];
+	}
+
+	/**
+	 * Sets engine to the start of game and plays every move,
+	 * leaving it at ply so the rest of the game can be stepped
+	 * through with getNextMove.
+	 *
+	 * @param game 0 through getGameCount() - 1
+	 * @param ply 0 through getPlyCount(game)
+	 * @param engine
+	 * @throws IndexOutOfBoundsException
+	 * @throws IllegalArgumentException if a stored move is not legal
+	 */
+	public void loadGame(int game, int ply, RulesEngine engine) throws IndexOutOfBoundsException, IllegalArgumentException {
+		int plyCount = getPlyCount(game);
+		if (ply < 0 || ply > plyCount) {
+			throw new IndexOutOfBoundsException(String.format("Ply %d is not in a game of %d plies", ply, plyCount));
+		}
+		String fen = getStartFen(game);
+		if (fen == null) {
+			engine.setNewGame();
+		}
+		else {
+			engine.setFen(fen);
+		}
+		for (int i=1; i<=plyCount; ++i) {
+			int move = engine.getLegalMove(getSrc(game, i), getDst(game, i), getPromotion(game, i));
+			if (move == MoveHistory.NO_MOVE) {
+				throw new IllegalArgumentException(String.format("Illegal move in game store.  Game = {%d}, Ply = {%d}", game, i));
+			}
+			engine.setMove(move);
+		}
+		engine.setPly(ply);
+	}
+
+	private int getMove(int game, int ply) throws IndexOutOfBoundsException {
+		int offset = getOffset(game);
+		int plyCount = buffer.getInt(offset);
+		if (ply < 1 || ply > plyCount) {
+			throw new IndexOutOfBoundsException(String.format("Ply %d is not in a game of %d plies", ply, plyCount));
+		}
+		return buffer.getShort(offset + 6 + buffer.getShort(offset + 4) + 2 * (ply - 1)) & 0xFFFF;
+	}
+
+	private int getOffset(int game) throws IndexOutOfBoundsException {
+		if (game < 0 || game >= gameCount) {
+			throw new IndexOutOfBoundsException(String.format("Game %d is not in a store of %d games", game, gameCount));
+		}
+		return (int) buffer.getLong(indexOffset + 8 * game);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
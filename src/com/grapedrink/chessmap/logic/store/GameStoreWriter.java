@@ -0,0 +1,156 @@
+package com.grapedrink.chessmap.logic.store;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+import com.grapedrink.chessmap.logic.history.MoveHistory;
+import com.grapedrink.chessmap.logic.pgn.PgnReader;
+import com.grapedrink.chessmap.logic.utils.FenUtils;
+
+/**
+ * Writes games to the binary format read by GameStore.
+ * The index and game count are written on close.
+ *
+ *     java com.grapedrink.chessmap.logic.store.GameStoreWriter games.pgn games.cms
+ */
+public class GameStoreWriter implements Closeable {
+
+	private final FileChannel channel;
+	private final DataOutputStream out;
+	private long[] offsets;
+	private int gameCount;
+
+	/**
+	 * Bytes written so far, kept apart from out.size(), which stops counting at Integer.MAX_VALUE
+	 */
+	private long size;
+
+	public GameStoreWriter(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+		out.write(new byte[GameStore.HEADER_SIZE]);
+		offsets = new long[1024];
+		gameCount = 0;
+		size = GameStore.HEADER_SIZE;
+	}
+
+	/**
+	 * Appends the game held by engine, from its start position
+	 * to its last ply.  The engine is left at the ply it was on.
+	 *
+	 * @param engine
+	 * @return index of the game in the store
+	 * @throws IOException if writing fails, or the game and the index
+	 * would take the store past the 2 GB GameStore can map
+	 * @throws IllegalArgumentException if the game has turns that are not
+	 * legal moves, such as pieces placed with addPiece
+	 */
+	public int addGame(RulesEngine engine) throws IOException, IllegalArgumentException {
+		int plyCount = engine.getPlyCount();
+		short[] moves = new short[plyCount];
+		for (int ply=1; ply<=plyCount; ++ply) {
+			int move = engine.getMove(ply);
+			if (move == MoveHistory.NO_MOVE) {
+				throw new IllegalArgumentException(String.format("Turn is not a legal move.  Ply = {%d}", ply));
+			}
+			moves[ply - 1] = GameStore.encode(move);
+		}
+		int currentPly = engine.getPly();
+		engine.setPly(0);
+		String fen = engine.getFen();
+		engine.setPly(currentPly);
+		byte[] fenBytes = FenUtils.START_POSITION.equals(fen) ? new byte[0] : fen.getBytes(StandardCharsets.US_ASCII);
+
+		long length = 6L + fenBytes.length + 2L * plyCount;
+		if (size + length + 8L * (gameCount + 1) > Integer.MAX_VALUE) {
+			throw new IOException(String.format("Game store would be larger than 2 GB.  Game = {%d}", gameCount));
+		}
+		if (gameCount == offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		}
+		offsets[gameCount] = size;
+		out.writeInt(plyCount);
+		out.writeShort(fenBytes.length);
+		out.write(fenBytes);
+		for (short move : moves) {
+			out.writeShort(move);
+		}
+		size += length;
+		return gameCount++;
+	}
+
+	/**
+	 * @return number of games added so far
+	 */
+	public int getGameCount() {
+		return gameCount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			long indexOffset = size;
+			for (int i=0; i<gameCount; ++i) {
+				out.writeLong(offsets[i]);
+			}
+			out.flush();
+			ByteBuffer header = ByteBuffer.allocate(GameStore.HEADER_SIZE);
+			header.putInt(GameStore.MAGIC).putInt(GameStore.VERSION).putInt(gameCount).putInt(0).putLong(indexOffset);
+			header.flip();
+			channel.write(header, 0L);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Converts every game in pgn into a game store at path,
+	 * skipping games with illegal moves.
+	 *
+	 * @param pgn
+	 * @param path
+	 * @return number of games written
+	 * @throws IOException
+	 */
+	public static int write(Reader pgn, Path path) throws IOException {
+		RulesEngine engine = new RulesEngine();
+		try (PgnReader reader = new PgnReader(pgn); GameStoreWriter writer = new GameStoreWriter(path)) {
+			while (true) {
+				try {
+					if (!reader.readGame(engine)) {
+						break;
+					}
+				}
+				catch (IllegalArgumentException e) {
+					continue;
+				}
+				writer.addGame(engine);
+			}
+			return writer.getGameCount();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("usage: GameStoreWriter games.pgn games.cms");
+			return;
+		}
+		long start = System.nanoTime();
+		int games = write(new FileReader(args[0]), Paths.get(args[1]));
+		System.out.println(String.format("%d games in %d ms", games, (System.nanoTime() - start) / 1000000L));
+	}
+}
@@ -0,0 +1,224 @@
+package com.grapedrink.chessmap.logic.utils;
+
+import java.util.Arrays;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
+import com.grapedrink.chessmap.logic.bitboards.PieceType;
+
+/**
+ * The squares each color attacks, and how many of its pieces
+ * attack each square, kept up to date as pieces move.
+ *
+ * The board's owner calls markChanged with the squares whose
+ * occupancy changed.  On the next read, only the pieces on those
+ * squares and the sliders whose rays reach them are recomputed,
+ * so reading the map after a move costs a few pieces rather
+ * than the whole board.
+ *
+ * Counts are bit-sliced: bit s of slice i is bit i of the count
+ * for square s, so a piece's attacks are added to or removed
+ * from every square at once with a ripple of carries.
+ */
+public class AttackMap {
+
+	private static final int BLACK = 1;
+	private static final int WHITE = 0;
+
+	/**
+	 * Enough bits to count 16 attackers, which a color
+	 * can reach with promoted knights and sliders.
+	 */
+	private static final int SLICES = 5;
+
+	private final PieceBoard pieces;
+
+	/**
+	 * Squares attacked by the piece on each square, as of the last update,
+	 * and which of those pieces were black.
+	 */
+	private final long[] squareAttacks = new long[64];
+	private long blackSquares;
+
+	/**
+	 * counts[color * SLICES + i] holds bit i of the number
+	 * of pieces of color attacking each square.
+	 */
+	private final long[] counts = new long[2 * SLICES];
+	private long changed;
+
+	/**
+	 * @param pieces board to track, which every later change must be marked on
+	 */
+	public AttackMap(PieceBoard pieces) {
+		this.pieces = pieces;
+		changed = BoardConstants.UNIVERSE;
+	}
+
+	/**
+	 * Records that the occupancy of squares changed.
+	 *
+	 * @param squares
+	 */
+	public void markChanged(long squares) {
+		changed |= squares;
+	}
+
+	/**
+	 * @param isBlack
+	 * @return every square attacked by color
+	 */
+	public long getAttacks(boolean isBlack) {
+		update();
+		int offset = (isBlack ? BLACK : WHITE) * SLICES;
+		long attacks = 0L;
+		for (int i=0; i<SLICES; ++i) {
+			attacks |= counts[offset + i];
+		}
+		return attacks;
+	}
+
+	/**
+	 * @param square square index
+	 * @param isBlack
+	 * @return number of pieces of color attacking square
+	 */
+	public int getAttackerCount(int square, boolean isBlack) {
+		update();
+		int offset = (isBlack ? BLACK : WHITE) * SLICES;
+		int count = 0;
+		for (int i=0; i<SLICES; ++i) {
+			count |= (int) ((counts[offset + i] >>> square) & 1L) << i;
+		}
+		return count;
+	}
+
+	/**
+	 * Fills counts with the number of pieces of color attacking
+	 * each square, indexed by square.  Reads one slice at a time,
+	 * so the cost is the number of set count bits, not 64 squares.
+	 *
+	 * @param isBlack
+	 * @param counts array of at least 64 entries, overwritten
+	 * @return counts
+	 */
+	public int[] getAttackerCounts(boolean isBlack, int[] counts) {
+		update();
+		int offset = (isBlack ? BLACK : WHITE) * SLICES;
+		Arrays.fill(counts, 0, 64, 0);
+		for (int i=0; i<SLICES; ++i) {
+			for (long slice = this.counts[offset + i]; slice != 0L; slice &= slice - 1) {
+				counts[Long.numberOfTrailingZeros(slice)] |= 1 << i;
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the squares color attacks with more pieces than the
+	 * other color does.  The counts are compared slice by slice
+	 * from the highest bit down, for every square at once.
+	 *
+	 * @param isBlack
+	 * @return squares controlled by color
+	 */
+	public long getControlledSquares(boolean isBlack) {
+		update();
+		int ours = (isBlack ? BLACK : WHITE) * SLICES;
+		int theirs = (isBlack ? WHITE : BLACK) * SLICES;
+		long greater = 0L;
+		long equal = BoardConstants.UNIVERSE;
+		for (int i=SLICES-1; i>=0; --i) {
+			greater |= equal & counts[ours + i] & ~counts[theirs + i];
+			equal &= ~(counts[ours + i] ^ counts[theirs + i]);
+		}
+		return greater;
+	}
+
+	private void update() {
+		if (changed == 0L) {
+			return;
+		}
+		long allPieces = pieces.getAllPieces();
+		long stale = changed;
+		long sliders = (getSliders(PieceBoard.BLACK_OFFSET) | getSliders(PieceBoard.WHITE_OFFSET)) & ~changed;
+		int square;
+		while (sliders != 0L) {
+			square = Long.numberOfTrailingZeros(sliders);
+			if ((squareAttacks[square] & changed) != 0L) {
+				stale |= 1L << square;
+			}
+			sliders &= sliders - 1;
+		}
+		while (stale != 0L) {
+			updateSquare(Long.numberOfTrailingZeros(stale), allPieces);
+			stale &= stale - 1;
+		}
+		changed = 0L;
+	}
+
+	private long getSliders(int offset) {
+		return pieces.get(offset + PieceType.BISHOP.ordinal())
+				| pieces.get(offset + PieceType.ROOK.ordinal())
+				| pieces.get(offset + PieceType.QUEEN.ordinal());
+	}
+
+	private void updateSquare(int square, long allPieces) {
+		long position = 1L << square;
+		int index = pieces.getIndex(position);
+		long previous = squareAttacks[square];
+		int previousColor = (blackSquares & position) != 0L ? BLACK : WHITE;
+		long current = index < 0 ? 0L : getAttacks(PieceBoard.getType(index), square, PieceBoard.isBlack(index), allPieces);
+		int color = index >= 0 && PieceBoard.isBlack(index) ? BLACK : WHITE;
+
+		if (color == previousColor) {
+			removeAttacks(previous & ~current, color);
+			addAttacks(current & ~previous, color);
+		}
+		else {
+			removeAttacks(previous, previousColor);
+			addAttacks(current, color);
+		}
+		squareAttacks[square] = current;
+		blackSquares = color == BLACK ? blackSquares | position : blackSquares & ~position;
+	}
+
+	private void addAttacks(long squares, int color) {
+		int offset = color * SLICES;
+		long carry = squares;
+		for (int i=0; i<SLICES && carry != 0L; ++i) {
+			long next = counts[offset + i] & carry;
+			counts[offset + i] ^= carry;
+			carry = next;
+		}
+	}
+
+	private void removeAttacks(long squares, int color) {
+		int offset = color * SLICES;
+		long borrow = squares;
+		for (int i=0; i<SLICES && borrow != 0L; ++i) {
+			long next = ~counts[offset + i] & borrow;
+			counts[offset + i] ^= borrow;
+			borrow = next;
+		}
+	}
+
+	private static long getAttacks(PieceType type, int square, boolean isBlack, long allPieces) {
+		long position = 1L << square;
+		switch (type) {
+		case BISHOP:
+			return MagicUtils.getBishopDefense(square, allPieces);
+		case KING:
+			return DefenseUtils.getKingDefense(position);
+		case KNIGHT:
+			return DefenseUtils.getKnightDefense(position);
+		case PAWN:
+			return DefenseUtils.getPawnDefense(position, isBlack ? 4 : 0);
+		case QUEEN:
+			return MagicUtils.getQueenDefense(square, allPieces);
+		case ROOK:
+			return MagicUtils.getRookDefense(square, allPieces);
+		default:
+			return 0L;
+		}
+	}
+}
@@ -15,11 +15,16 @@ public class BoardConstants {
 	public static final long TL_BORDER   = 0xFF80808080808080L;
 	public static final long TR_BORDER   = 0xFF01010101010101L;
 	
+	/**
+	 * The light squares, such as h1 and a8.
+	 */
+	public static final long LIGHT_SQUARES = 0xAA55AA55AA55AA55L;
+	
 	/**
 	 * The upward diagonals, arranged from left to right.
 	 * DIAGONALS[0] passes through a8,
-	 * DIAGONALS[8] passes through a1 and h8,
-	 * and DIAGONALS[15] passes through h1.
+	 * DIAGONALS[7] passes through a1 and h8,
+	 * and DIAGONALS[14] passes through h1.
 	 */
 	public static final long[] DIAGONALS = {
 		0x8000000000000000L,
@@ -27,7 +32,7 @@ public class BoardConstants {
 		0x2040800000000000L,
 		0x1020408000000000L,
 		0x0810204080000000L,
-		0x0408804020100000L,
+		0x0408102040800000L,
 		0x0204081020408000L,
 		0x0102040810204080L,
 		0x0001020408102040L,
@@ -42,8 +47,8 @@ public class BoardConstants {
 	/**
 	 * The downward anti-diagonals, arranged from left to right.
 	 * ANTI_DIAGONALS[0] passes through a1,
-	 * ANTI_DIAGONALS[8] passes through a8 and h1,
-	 * and ANTI_DIAGONALS[15] passes through h8.
+	 * ANTI_DIAGONALS[7] passes through a8 and h1,
+	 * and ANTI_DIAGONALS[14] passes through h8.
 	 */
 	public static final long[] ANTI_DIAGONALS = {
 		0x0000000000000080L,
@@ -54,13 +59,13 @@ public class BoardConstants {
 		0x0000804020100804L,
 		0x0080402010080402L,
 		0x8040201008040201L,
-		0x0040201008040201L,
-		0x0000201008040201L,
-		0x0000001008040201L,
-		0x0000000008040201L,
-		0x0000000000040201L,
-		0x0000000000000201L,
-		0x0000000000000001L,
+		0x4020100804020100L,
+		0x2010080402010000L,
+		0x1008040201000000L,
+		0x0804020100000000L,
+		0x0402010000000000L,
+		0x0201000000000000L,
+		0x0100000000000000L,
 	};
 	
 	/**
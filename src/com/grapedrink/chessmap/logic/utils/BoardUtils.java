@@ -1,8 +1,7 @@
 package com.grapedrink.chessmap.logic.utils;
 
-import java.util.Map;
-
 import com.grapedrink.chessmap.logic.bitboards.InputValidation;
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
 
 public class BoardUtils {
 	
@@ -90,7 +89,7 @@ public class BoardUtils {
 	 * @param direction
 	 * @return neighbor's position
 	 */
-	public static long getNeighboringPiece(final long position, final Map<String, Long> pieces, final int direction) throws IllegalArgumentException {
+	public static long getNeighboringPiece(final long position, final PieceBoard pieces, final int direction) throws IllegalArgumentException {
 		InputValidation.validatePosition(position);
 		long allPieces = PieceUtils.getAllPieces(pieces);
 		
@@ -107,6 +106,7 @@ public class BoardUtils {
 	
 	/**
 	 * Returns the rank intersecting this position.
+	 * Returns 0L if position is 0L.
 	 * 
 	 * @param position position
 	 * @return rank as long
@@ -114,17 +114,13 @@ public class BoardUtils {
 	 */
 	public static long getRank(long position) throws IllegalArgumentException {
 		InputValidation.validatePosition(position);
-		for (long ray : BoardConstants.RANKS) {
-			if ((ray & position) == position) {
-				return ray;
-			}
-		}
-		return 0L;
+		return position == 0L ? 0L : getRankForSquare(Long.numberOfTrailingZeros(position));
 	}
 
 	
 	/**
 	 * Returns the file intersecting this position.
+	 * Returns 0L if position is 0L.
 	 * 
 	 * @param position position
 	 * @return file as long
@@ -132,17 +128,13 @@ public class BoardUtils {
 	 */
 	public static long getFile(long position) throws IllegalArgumentException {
 		InputValidation.validatePosition(position);
-		for (long ray : BoardConstants.FILES) {
-			if ((ray & position) == position) {
-				return ray;
-			}
-		}
-		return 0L;
+		return position == 0L ? 0L : getFileForSquare(Long.numberOfTrailingZeros(position));
 	}
 
 
 	/**
 	 * Returns the diagonal intersecting this position.
+	 * Returns 0L if position is 0L.
 	 * 
 	 * @param position position
 	 * @return diagonal as long
@@ -150,17 +142,13 @@ public class BoardUtils {
 	 */
 	public static long getDiagonal(long position) throws IllegalArgumentException {
 		InputValidation.validatePosition(position);
-		for (long ray : BoardConstants.DIAGONALS) {
-			if ((ray & position) == position) {
-				return ray;
-			}
-		}
-		return 0L;
+		return position == 0L ? 0L : getDiagonalForSquare(Long.numberOfTrailingZeros(position));
 	}
 
 	
 	/**
 	 * Returns the anti-diagonal intersecting this position.
+	 * Returns 0L if position is 0L.
 	 * 
 	 * @param position position
 	 * @return rank as long
@@ -168,17 +156,13 @@ public class BoardUtils {
 	 */
 	public static long getAntiDiagonal(long position) throws IllegalArgumentException {
 		InputValidation.validatePosition(position);
-		for (long ray : BoardConstants.ANTI_DIAGONALS) {
-			if ((ray & position) == position) {
-				return ray;
-			}
-		}
-		return 0L;
+		return position == 0L ? 0L : getAntiDiagonalForSquare(Long.numberOfTrailingZeros(position));
 	}
 
 	
 	public static long getRaystar(long position) throws IllegalArgumentException {
-		return position ^ (getRank(position) | getFile(position) | getDiagonal(position) | getAntiDiagonal(position));
+		InputValidation.validatePosition(position);
+		return position == 0L ? 0L : getRaystarForSquare(Long.numberOfTrailingZeros(position));
 	}
 	
 	
@@ -223,17 +207,145 @@ public class BoardUtils {
 	 * @return
 	 */
 	public static long getConnectingRay(long a, long b) {
-		if ((a & getRank(b)) == a) {
-			return getRank(a);
+		InputValidation.validatePosition(a);
+		InputValidation.validatePosition(b);
+		if (a == 0L || b == 0L) {
+			return 0L;
+		}
+		return getConnectingRayForSquares(Long.numberOfTrailingZeros(a), Long.numberOfTrailingZeros(b));
+	}
+
+
+	/**
+	 * Returns the square index of the square on fileIndex and rankIndex.
+	 * Files and ranks are numbered from 0, so a1 is (0, 0) and h8 is (7, 7).
+	 * 
+	 * @param fileIndex file, 0 (a-file) through 7 (h-file)
+	 * @param rankIndex rank, 0 (rank 1) through 7 (rank 8)
+	 * @return square index
+	 */
+	public static int getSquare(int fileIndex, int rankIndex) {
+		return (rankIndex << 3) | (7 - fileIndex);
+	}
+	
+	
+	/**
+	 * Returns the rank of square, from 0 (rank 1) through 7 (rank 8).
+	 * 
+	 * @param square square index, 0 through 63
+	 * @return rank index
+	 */
+	public static int getRankIndex(int square) {
+		return square >>> 3;
+	}
+	
+	
+	/**
+	 * Returns the file of square, from 0 (a-file) through 7 (h-file).
+	 * 
+	 * @param square square index, 0 through 63
+	 * @return file index
+	 */
+	public static int getFileIndex(int square) {
+		return 7 - (square & 7);
+	}
+	
+	
+	/**
+	 * Returns the rank intersecting this square.
+	 * 
+	 * @param square square index, 0 through 63
+	 * @return rank as long
+	 */
+	public static long getRankForSquare(int square) {
+		return BoardConstants.RANKS[getRankIndex(square)];
+	}
+	
+	
+	/**
+	 * Returns the file intersecting this square.
+	 * 
+	 * @param square square index, 0 through 63
+	 * @return file as long
+	 */
+	public static long getFileForSquare(int square) {
+		return BoardConstants.FILES[getFileIndex(square)];
+	}
+	
+	
+	/**
+	 * Returns the diagonal intersecting this square.
+	 * 
+	 * @param square square index, 0 through 63
+	 * @return diagonal as long
+	 */
+	public static long getDiagonalForSquare(int square) {
+		return BoardConstants.DIAGONALS[getFileIndex(square) - getRankIndex(square) + 7];
+	}
+	
+	
+	/**
+	 * Returns the anti-diagonal intersecting this square.
+	 * 
+	 * @param square square index, 0 through 63
+	 * @return anti-diagonal as long
+	 */
+	public static long getAntiDiagonalForSquare(int square) {
+		return BoardConstants.ANTI_DIAGONALS[getFileIndex(square) + getRankIndex(square)];
+	}
+	
+	
+	/**
+	 * Returns every square sharing a rank, file, or diagonal
+	 * with square, not including square itself.
+	 * 
+	 * @param square square index, 0 through 63
+	 * @return raystar as long
+	 */
+	public static long getRaystarForSquare(int square) {
+		return (1L << square) ^ (getRankForSquare(square) | getFileForSquare(square)
+				| getDiagonalForSquare(square) | getAntiDiagonalForSquare(square));
+	}
+	
+	
+	/**
+	 * Returns the index of the neighboring square in direction, or -1
+	 * if square is on the border in that direction.  Directions are
+	 * numbered as in hasNeighboringSquare(position, direction).
+	 * 
+	 * @param square square index, 0 through 63
+	 * @param direction direction, 0 through 7
+	 * @return neighboring square index
+	 */
+	public static int getNeighboringSquareIndex(int square, int direction) {
+		long position = 1L << square;
+		return hasNeighboringSquare(position, direction) ? Long.numberOfTrailingZeros(getNeighboringSquare(position, direction)) : -1;
+	}
+	
+	
+	/**
+	 * Returns the full ray intersecting two squares,
+	 * from border to border.
+	 * 
+	 * Returns 0L if no ray intersects these squares.
+	 * 
+	 * @param a square index, 0 through 63
+	 * @param b square index, 0 through 63
+	 * @return
+	 */
+	public static long getConnectingRayForSquares(int a, int b) {
+		long position = 1L << a;
+		if ((position & getRankForSquare(b)) != 0L) {
+			return getRankForSquare(a);
 		}
-		else if ((a & getFile(b)) == a) {
-			return getFile(a);
+		else if ((position & getFileForSquare(b)) != 0L) {
+			return getFileForSquare(a);
 		}
-		else if ((a & getDiagonal(b)) == a) {
-			return getDiagonal(a);
+		else if ((position & getDiagonalForSquare(b)) != 0L) {
+			return getDiagonalForSquare(a);
 		}
-		else if ((a & getAntiDiagonal(b)) == a) {
-			return getAntiDiagonal(a);
+		else if ((position & getAntiDiagonalForSquare(b)) != 0L) {
+			return getAntiDiagonalForSquare(a);
 		}
 		return 0L;
 	}
@@ -9,6 +9,21 @@ public class ConvertUtils {
 
 	private ConvertUtils() {}
 
+	/**
+	 * The names of the 64 squares, indexed by square,
+	 * so that SQUARE_NAMES[7] is "a1" and SQUARE_NAMES[56] is "h8".
+	 */
+	private static final String[] SQUARE_NAMES = new String[64];
+
+	static {
+		char[] name = new char[2];
+		for (int square=0; square<64; ++square) {
+			name[0] = (char) ('a' + BoardUtils.getFileIndex(square));
+			name[1] = (char) ('1' + BoardUtils.getRankIndex(square));
+			SQUARE_NAMES[square] = new String(name);
+		}
+	}
+
 	/**
 	 * Converts the String representation of a square,
 	 * such as "c2", into a long, such as 8192L.
@@ -23,6 +38,62 @@ public class ConvertUtils {
 	}
 
 
+	/**
+	 * Converts the String representation of a square,
+	 * such as "c2", into a square index, such as 13.
+	 * 
+	 * @param position position
+	 * @return square index
+	 * @throws IllegalArgumentException
+	 */
+	public static int getPositionAsSquare(String position) throws IllegalArgumentException {
+		InputValidation.validatePosition(position);
+		return BoardUtils.getSquare(position.charAt(0)-97, position.charAt(1)-49);
+	}
+
+
+	/**
+	 * Converts the long representation of a square,
+	 * such as 8192L, into a square index, such as 13.
+	 * 
+	 * @param position
+	 * @return square index
+	 * @throws IllegalArgumentException if position
+	 * is not exactly one square
+	 */
+	public static int getPositionAsSquare(long position) throws IllegalArgumentException {
+		InputValidation.validatePosition(position);
+		if (position == 0L) {
+			throw new IllegalArgumentException("Invalid Position detected.  Position = {0}");
+		}
+		return Long.numberOfTrailingZeros(position);
+	}
+
+
+	/**
+	 * Converts a square index, such as 13,
+	 * into a long, such as 8192L.
+	 * 
+	 * @param square square index, 0 through 63
+	 * @return position as long
+	 */
+	public static long getSquareAsLong(int square) {
+		return 1L << square;
+	}
+
+
+	/**
+	 * Converts a square index, such as 13,
+	 * into a String, such as "c2".
+	 * 
+	 * @param square square index, 0 through 63
+	 * @return position as String
+	 */
+	public static String getSquareAsString(int square) {
+		return SQUARE_NAMES[square];
+	}
+
+
 	/**
 	 * Converts the long representation of a square,
 	 * such as 8192L, into a String, such as "c2".
@@ -32,22 +103,7 @@ public class ConvertUtils {
 	 * @throws IllegalArgumentException
 	 */
 	public static String getPositionAsString(long position) throws IllegalArgumentException {
-		InputValidation.validatePosition(position);
-		int rank = 0;
-		int file = 0;
-		for (int i=0; i<BoardConstants.RANKS.length; ++i) {
-			if ((BoardConstants.RANKS[i] & position) != 0L) {
-				rank = i;
-				break;
-			}
-		}
-		for (int i=0; i<BoardConstants.FILES.length; ++i) {
-			if ((BoardConstants.FILES[i] & position) != 0L) {
-				file = i;
-				break;
-			}
-		}
-		return String.format("%s%d", (char)(file+97), rank+1); 
+		return getSquareAsString(getPositionAsSquare(position));
 	}
 
 	
@@ -61,12 +117,9 @@ public class ConvertUtils {
 	 */
 	public static Set<String> getPositionsAsStrings(long positions) {
 		Set<String> set = new HashSet<>();
-		long pos;
-		for (int i=0; i<64; ++i) {
-			pos = 1L << i;
-			if ((positions & pos) == pos) {
-				set.add(getPositionAsString(pos));
-			}
+		SquareIterator squares = new SquareIterator(positions);
+		while (squares.hasNext()) {
+			set.add(SQUARE_NAMES[squares.nextSquare()]);
 		}
 		return set;
 	}
@@ -77,13 +130,16 @@ public class ConvertUtils {
 	 * square represented by this long.  For instance, 0xDL
 	 * would return a Set containing 0x8L, 0x4L and 0x1L
 	 * 
+	 * Prefer SquareIterator in loops, which allocates nothing per square.
+	 * 
 	 * @param positions
 	 * @return
 	 */
 	public static Set<Long> getPositionsAsLongs(long positions) {
 		Set<Long> set = new HashSet<Long>();
-		for (String pos : getPositionsAsStrings(positions)) {
-			set.add(getPositionAsLong(pos));
+		SquareIterator squares = new SquareIterator(positions);
+		while (squares.hasNext()) {
+			set.add(squares.nextPosition());
 		}
 		return set;
 	}
@@ -1,15 +1,38 @@
 package com.grapedrink.chessmap.logic.utils;
 
-import java.util.Map;
-import java.util.Set;
-
 import com.grapedrink.chessmap.logic.bitboards.InputValidation;
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
 import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.PieceType;
 
 public class DefenseUtils {
 
 	private DefenseUtils(){}
 
+	/**
+	 * Squares defended by a king, knight, or pawn,
+	 * indexed by the square the piece stands on.
+	 * Built once at class initialization, so that
+	 * leaper defense is a single array load.
+	 */
+	private static final long[] KING_DEFENSE = new long[64];
+	private static final long[] KNIGHT_DEFENSE = new long[64];
+	private static final long[] WHITE_PAWN_DEFENSE = new long[64];
+	private static final long[] BLACK_PAWN_DEFENSE = new long[64];
+
+	static {
+		long position;
+		long leftRightNeighbors;
+		for (int square=0; square<64; ++square) {
+			position = 1L << square;
+			KING_DEFENSE[square] = BoardUtils.getAdjacentSquares(position);
+			KNIGHT_DEFENSE[square] = BoardUtils.getKnightSquares(position);
+			leftRightNeighbors = BoardUtils.getRank(position) & KING_DEFENSE[square];
+			WHITE_PAWN_DEFENSE[square] = leftRightNeighbors << 8;
+			BLACK_PAWN_DEFENSE[square] = leftRightNeighbors >>> 8;
+		}
+	}
+
 	/**
 	 * Returns all the squares defended by the team at position.
 	 * Returns 0L if there is no piece at position.
@@ -18,14 +41,9 @@ public class DefenseUtils {
 	 * @param pieces
 	 * @return defended positions
 	 */
-	public static long getDefendedSquaresFriendlyTeam(long position, Map<String, Long> pieces) throws IllegalArgumentException {
+	public static long getDefendedSquaresFriendlyTeam(long position, PieceBoard pieces) throws IllegalArgumentException {
 		InputValidation.validatePosition(position);
-		Set<Long> playerPieces = PieceUtils.getIndividualPieces(position, pieces);
-		long attacks = 0L;
-		for (Long pos : playerPieces) {
-			attacks |= getDefendedSquares(pos, pieces);
-		}
-		return attacks;
+		return getDefendedSquaresForColor(pieces, PieceUtils.getPieceColor(position, pieces));
 	}
 	
 	/**
@@ -36,7 +54,7 @@ public class DefenseUtils {
 	 * @param pieces
 	 * @return
 	 */
-	public static long getDefendedSquaresEnemyTeam(long position, Map<String, Long> pieces){
+	public static long getDefendedSquaresEnemyTeam(long position, PieceBoard pieces){
 		switch (PieceUtils.getPieceColor(position, pieces)) {
 		case BLACK:
 			return getDefendedSquaresForColor(pieces, PieceColor.WHITE);
@@ -66,9 +84,13 @@ public class DefenseUtils {
 	 * @param pieceCode
 	 * @return
 	 */
-	public static long getDefendedSquares(long position, Map<String, Long> pieces) {
-		long allPieces = PieceUtils.getAllPieces(pieces);
-		switch (PieceUtils.getPieceType(position, pieces)) {
+	public static long getDefendedSquares(long position, PieceBoard pieces) {
+		long allPieces = pieces.getAllPieces();
+		int index = pieces.getIndex(position);
+		if (index < 0) {
+			return 0L;
+		}
+		switch (PieceBoard.getType(index)) {
 		case BISHOP:
 			return getBishopDefense(position, allPieces);
 		case KNIGHT:
@@ -76,7 +98,7 @@ public class DefenseUtils {
 		case KING:
 			return getKingDefense(position);
 		case PAWN:
-			return getPawnDefense(position, PieceUtils.getPawnDirection(position, pieces));
+			return getPawnDefense(position, PieceBoard.isBlack(index) ? 4 : 0);
 		case QUEEN:
 			return getQueenDefense(position, allPieces);
 		case ROOK:
@@ -90,102 +112,85 @@ public class DefenseUtils {
 	 * Returns all the squares potentially defended by a bishop
 	 * at this position.  This treats all pieces as capturable.
 	 * 
+	 * The position must be a single square.
+	 * 
 	 * @param position
 	 * @param allPieces
 	 * @return
 	 */
 	public static long getBishopDefense(long position, long allPieces) {
-		return getDefendedRay(position, allPieces, 1)
-				| getDefendedRay(position, allPieces, 3)
-				| getDefendedRay(position, allPieces, 5)
-				| getDefendedRay(position, allPieces, 7);
+		return MagicUtils.getBishopDefense(Long.numberOfTrailingZeros(position), allPieces);
 	}
 	
 	/**
 	 * Returns all the squares potentially defended by a queen
 	 * at this position.  This treats all pieces as capturable.
 	 * 
+	 * The position must be a single square.
+	 * 
 	 * @param position
 	 * @param allPieces
 	 * @return
 	 */
 	public static long getQueenDefense(long position, long allPieces) {
-		return getRookDefense(position, allPieces) | getBishopDefense(position, allPieces);
+		return MagicUtils.getQueenDefense(Long.numberOfTrailingZeros(position), allPieces);
 	}
 	
 	/**
 	 * Returns all the squares potentially defended by a rook
 	 * at this position.  This treats all pieces as capturable.
 	 * 
+	 * The position must be a single square.
+	 * 
 	 * @param position
 	 * @param allPieces
 	 * @return
 	 */
 	public static long getRookDefense(long position, long allPieces) {
-		return getDefendedRay(position, allPieces, 0)
-				| getDefendedRay(position, allPieces, 2)
-				| getDefendedRay(position, allPieces, 4)
-				| getDefendedRay(position, allPieces, 6);
+		return MagicUtils.getRookDefense(Long.numberOfTrailingZeros(position), allPieces);
 	}
 	
 	/**
 	 * Returns all the squares potentially defended by a king
 	 * at this position.  This treats all pieces as capturable.
 	 * 
+	 * The position must be a single square.
+	 * 
 	 * @param position
-	 * @param allPieces
 	 * @return
 	 */
 	public static long getKingDefense(long position) {
-		return BoardUtils.getAdjacentSquares(position);
+		return KING_DEFENSE[Long.numberOfTrailingZeros(position)];
 	}
 	
 	/**
 	 * Returns all the squares potentially defended by a knight
 	 * at this position.  This treats all pieces as capturable.
 	 * 
+	 * The position must be a single square.
+	 * 
 	 * @param position
-	 * @param allPieces
 	 * @return
 	 */
 	public static long getKnightDefense(long position) {
-		return BoardUtils.getKnightSquares(position);
+		return KNIGHT_DEFENSE[Long.numberOfTrailingZeros(position)];
 	}
 	
 	/**
 	 * Returns all the squares potentially defended by a pawn
 	 * at this position.  This treats all pieces as capturable.
 	 * 
+	 * The position must be a single square.
+	 * 
 	 * @param position
-	 * @param allPieces
+	 * @param direction 0 for white pawns, 4 for black pawns
 	 * @return
 	 */
 	public static long getPawnDefense(long position, int direction) {
-		long leftRightNeighbors = BoardUtils.getRank(position) & BoardUtils.getAdjacentSquares(position);
-		return direction == 0 ? (leftRightNeighbors << 8) : (leftRightNeighbors >>> 8);
+		int square = Long.numberOfTrailingZeros(position);
+		return direction == 0 ? WHITE_PAWN_DEFENSE[square] : BLACK_PAWN_DEFENSE[square];
 	}
 	
-	/**
-	 * Returns all the squares defended by a ray traveling in direction
-	 * at this position.  This treats all pieces as capturable.
-	 * 
-	 * @param position
-	 * @param allPieces
-	 * @return
-	 */
-	private static long getDefendedRay(long position, long allPieces, int direction) {
-		long ray = 0L;
-		long iterator = position;
-		while (BoardUtils.hasNeighboringSquare(iterator, direction)) {
-			iterator = BoardUtils.getNeighboringSquare(iterator, direction);
-			ray |= iterator;
-			if ((iterator & allPieces) == iterator) {
-				return ray;
-			}
-		}
-		return ray;
-	}
-
 	/**
 	 * Returns all squares defended by color.
 	 * 
@@ -193,15 +198,51 @@ public class DefenseUtils {
 	 * @param color
 	 * @return
 	 */
-	public static long getDefendedSquaresForColor(Map<String, Long> pieces, PieceColor color) {
+	public static long getDefendedSquaresForColor(PieceBoard pieces, PieceColor color) {
+		int offset;
+		long[] pawnDefense;
 		switch (color) {
 		case BLACK:
-			return getDefendedSquaresFriendlyTeam(pieces.get("bK"), pieces);
+			offset = PieceBoard.BLACK_OFFSET;
+			pawnDefense = BLACK_PAWN_DEFENSE;
+			break;
 		case WHITE:
-			return getDefendedSquaresFriendlyTeam(pieces.get("wK"), pieces);
+			offset = PieceBoard.WHITE_OFFSET;
+			pawnDefense = WHITE_PAWN_DEFENSE;
+			break;
 		default:
 			return 0L;
 		}
+		// one loop per piece type, so no square needs its piece looked up
+		long allPieces = pieces.getAllPieces();
+		long attacks = 0L;
+		long board = pieces.get(offset + PieceType.PAWN.ordinal());
+		while (board != 0L) {
+			attacks |= pawnDefense[Long.numberOfTrailingZeros(board)];
+			board &= board - 1;
+		}
+		board = pieces.get(offset + PieceType.KNIGHT.ordinal());
+		while (board != 0L) {
+			attacks |= KNIGHT_DEFENSE[Long.numberOfTrailingZeros(board)];
+			board &= board - 1;
+		}
+		board = pieces.get(offset + PieceType.KING.ordinal());
+		while (board != 0L) {
+			attacks |= KING_DEFENSE[Long.numberOfTrailingZeros(board)];
+			board &= board - 1;
+		}
+		long queens = pieces.get(offset + PieceType.QUEEN.ordinal());
+		board = pieces.get(offset + PieceType.ROOK.ordinal()) | queens;
+		while (board != 0L) {
+			attacks |= MagicUtils.getRookDefense(Long.numberOfTrailingZeros(board), allPieces);
+			board &= board - 1;
+		}
+		board = pieces.get(offset + PieceType.BISHOP.ordinal()) | queens;
+		while (board != 0L) {
+			attacks |= MagicUtils.getBishopDefense(Long.numberOfTrailingZeros(board), allPieces);
+			board &= board - 1;
+		}
+		return attacks;
 	}
 
 	/**
@@ -213,7 +254,7 @@ public class DefenseUtils {
 	 * @param color
 	 * @return
 	 */
-	public static boolean isDefendedByColor(long squares, Map<String, Long> pieces, PieceColor color) {
+	public static boolean isDefendedByColor(long squares, PieceBoard pieces, PieceColor color) {
 		return squares == (squares & getDefendedSquaresForColor(pieces, color));
 	}
 
@@ -0,0 +1,194 @@
+package com.grapedrink.chessmap.logic.utils;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
+import com.grapedrink.chessmap.logic.bitboards.PieceType;
+
+/**
+ * Piece values and piece-square tables, in centipawns.
+ * A color's score is the sum over its pieces of the piece's value
+ * (its material) and the bonus for the square it stands on
+ * (its placement).  Both are sums over squares, so a move updates
+ * them by adding the squares a piece arrived on and subtracting
+ * the squares it left.
+ *
+ * The tables are the well known "simplified evaluation function".
+ * They are written as a board is printed, rank 8 first and file a
+ * leftmost, from white's side; black's are the same tables mirrored.
+ */
+public class EvaluationUtils {
+
+	/**
+	 * PIECE_VALUES[type], with type a PieceType ordinal
+	 */
+	private static final int[] PIECE_VALUES = { 330, 0, 320, 100, 900, 500 };
+
+	private static final int[] BISHOP_TABLE = {
+		-20,-10,-10,-10,-10,-10,-10,-20,
+		-10,  0,  0,  0,  0,  0,  0,-10,
+		-10,  0,  5, 10, 10,  5,  0,-10,
+		-10,  5,  5, 10, 10,  5,  5,-10,
+		-10,  0, 10, 10, 10, 10,  0,-10,
+		-10, 10, 10, 10, 10, 10, 10,-10,
+		-10,  5,  0,  0,  0,  0,  5,-10,
+		-20,-10,-10,-10,-10,-10,-10,-20
+	};
+
+	private static final int[] KING_TABLE = {
+		-30,-40,-40,-50,-50,-40,-40,-30,
+		-30,-40,-40,-50,-50,-40,-40,-30,
+		-30,-40,-40,-50,-50,-40,-40,-30,
+		-30,-40,-40,-50,-50,-40,-40,-30,
+		-20,-30,-30,-40,-40,-30,-30,-20,
+		-10,-20,-20,-20,-20,-20,-20,-10,
+		 20, 20,  0,  0,  0,  0, 20, 20,
+		 20, 30, 10,  0,  0, 10, 30, 20
+	};
+
+	private static final int[] KNIGHT_TABLE = {
+		-50,-40,-30,-30,-30,-30,-40,-50,
+		-40,-20,  0,  0,  0,  0,-20,-40,
+		-30,  0, 10, 15, 15, 10,  0,-30,
+		-30,  5, 15, 20, 20, 15,  5,-30,
+		-30,  0, 15, 20, 20, 15,  0,-30,
+		-30,  5, 10, 15, 15, 10,  5,-30,
+		-40,-20,  0,  5,  5,  0,-20,-40,
+		-50,-40,-30,-30,-30,-30,-40,-50
+	};
+
+	private static final int[] PAWN_TABLE = {
+		  0,  0,  0,  0,  0,  0,  0,  0,
+		 50, 50, 50, 50, 50, 50, 50, 50,
+		 10, 10, 20, 30, 30, 20, 10, 10,
+		  5,  5, 10, 25, 25, 10,  5,  5,
+		  0,  0,  0, 20, 20,  0,  0,  0,
+		  5, -5,-10,  0,  0,-10, -5,  5,
+		  5, 10, 10,-20,-20, 10, 10,  5,
+		  0,  0,  0,  0,  0,  0,  0,  0
+	};
+
+	private static final int[] QUEEN_TABLE = {
+		-20,-10,-10, -5, -5,-10,-10,-20,
+		-10,  0,  0,  0,  0,  0,  0,-10,
+		-10,  0,  5,  5,  5,  5,  0,-10,
+		 -5,  0,  5,  5,  5,  5,  0, -5,
+		  0,  0,  5,  5,  5,  5,  0, -5,
+		-10,  5,  5,  5,  5,  5,  0,-10,
+		-10,  0,  5,  0,  0,  0,  0,-10,
+		-20,-10,-10, -5, -5,-10,-10,-20
+	};
+
+	private static final int[] ROOK_TABLE = {
+		  0,  0,  0,  0,  0,  0,  0,  0,
+		  5, 10, 10, 10, 10, 10, 10,  5,
+		 -5,  0,  0,  0,  0,  0,  0, -5,
+		 -5,  0,  0,  0,  0,  0,  0, -5,
+		 -5,  0,  0,  0,  0,  0,  0, -5,
+		 -5,  0,  0,  0,  0,  0,  0, -5,
+		 -5,  0,  0,  0,  0,  0,  0, -5,
+		  0,  0,  0,  5,  5,  0,  0,  0
+	};
+
+	/**
+	 * Tables in PieceType order, as written above
+	 */
+	private static final int[][] TABLES = {
+		BISHOP_TABLE, KING_TABLE, KNIGHT_TABLE, PAWN_TABLE, QUEEN_TABLE, ROOK_TABLE
+	};
+
+	/**
+	 * VALUES[index] and PLACEMENT[index][square], with index as in PieceBoard
+	 */
+	private static final int[] VALUES = new int[PieceBoard.SIZE];
+	private static final int[][] PLACEMENT = new int[PieceBoard.SIZE][64];
+
+	static {
+		for (int index=0; index<PieceBoard.SIZE; ++index) {
+			VALUES[index] = PIECE_VALUES[PieceBoard.getType(index).ordinal()];
+			int[] table = TABLES[PieceBoard.getType(index).ordinal()];
+			for (int square=0; square<64; ++square) {
+				int rank = square >>> 3;
+				int file = 7 - (square & 7);
+				int row = PieceBoard.isBlack(index) ? rank : 7 - rank;
+				PLACEMENT[index][square] = table[row * 8 + file];
+			}
+		}
+	}
+
+	private EvaluationUtils() {}
+
+	/**
+	 * @param type
+	 * @return value of one piece of type, 0 for KING and NONE
+	 */
+	public static int getPieceValue(PieceType type) {
+		return type.ordinal() < PIECE_VALUES.length ? PIECE_VALUES[type.ordinal()] : 0;
+	}
+
+	/**
+	 * @param index piece index, as in PieceBoard
+	 * @param square square index, 0 through 63
+	 * @return value of the piece plus the bonus for its square
+	 */
+	public static int getSquareValue(int index, int square) {
+		return VALUES[index] + PLACEMENT[index][square];
+	}
+
+	/**
+	 * @param index piece index, as in PieceBoard
+	 * @param positions
+	 * @return value of a piece of index on every square in positions
+	 */
+	public static int getMaterial(int index, long positions) {
+		return VALUES[index] * Long.bitCount(positions);
+	}
+
+	/**
+	 * Returns the sum of the square bonuses for every square in positions,
+	 * so that a piece's placement can be updated by its changed squares.
+	 *
+	 * @param index piece index, as in PieceBoard
+	 * @param positions
+	 * @return placement of a piece of index on positions
+	 */
+	public static int getPlacement(int index, long positions) {
+		int placement = 0;
+		long remaining = positions;
+		while (remaining != 0L) {
+			placement += PLACEMENT[index][Long.numberOfTrailingZeros(remaining)];
+			remaining &= remaining - 1;
+		}
+		return placement;
+	}
+
+	/**
+	 * Computes the material of one color from scratch.
+	 *
+	 * @param pieces
+	 * @param isBlack
+	 * @return material
+	 */
+	public static int getMaterial(PieceBoard pieces, boolean isBlack) {
+		int offset = isBlack ? PieceBoard.BLACK_OFFSET : PieceBoard.WHITE_OFFSET;
+		int material = 0;
+		for (int index=offset; index<offset+6; ++index) {
+			material += getMaterial(index, pieces.get(index));
+		}
+		return material;
+	}
+
+	/**
+	 * Computes the placement of one color from scratch.
+	 *
+	 * @param pieces
+	 * @param isBlack
+	 * @return placement
+	 */
+	public static int getPlacement(PieceBoard pieces, boolean isBlack) {
+		int offset = isBlack ? PieceBoard.BLACK_OFFSET : PieceBoard.WHITE_OFFSET;
+		int placement = 0;
+		for (int index=offset; index<offset+6; ++index) {
+			placement += getPlacement(index, pieces.get(index));
+		}
+		return placement;
+	}
+}
@@ -0,0 +1,168 @@
+package com.grapedrink.chessmap.logic.utils;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
+import com.grapedrink.chessmap.logic.bitboards.PieceContainer;
+
+/**
+ * Reads and writes the fields of Forsyth-Edwards Notation (FEN),
+ * such as "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1".
+ * 
+ * The fields are, in order: piece placement from rank 8 to rank 1,
+ * side to move, castles allowed, en passant square, halfmove clock
+ * and fullmove number.
+ */
+public class FenUtils {
+
+	public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	private static final String PIECE_LETTERS = "bknpqrBKNPQR";
+
+	private FenUtils() {}
+
+	/**
+	 * Reads the piece placement at the start of fen into pieces,
+	 * without allocating.  pieces should be empty.
+	 * 
+	 * @param fen
+	 * @param pieces
+	 * @return index of the first character after the placement
+	 * @throws IllegalArgumentException if the placement is malformed
+	 */
+	public static int getPieces(String fen, PieceBoard pieces) throws IllegalArgumentException {
+		int rank = 7;
+		int file = 0;
+		int i = 0;
+		for (; i<fen.length() && fen.charAt(i) != ' '; ++i) {
+			char c = fen.charAt(i);
+			if (c == '/') {
+				if (file != 8 || rank == 0) {
+					throw new IllegalArgumentException(String.format("Invalid FEN placement.  FEN = {%s}", fen));
+				}
+				--rank;
+				file = 0;
+			}
+			else if (c >= '1' && c <= '8') {
+				file += c - '0';
+			}
+			else {
+				int index = PIECE_LETTERS.indexOf(c);
+				if (index < 0 || file > 7) {
+					throw new IllegalArgumentException(String.format("Invalid FEN placement.  FEN = {%s}", fen));
+				}
+				pieces.set(index, pieces.get(index) | (1L << BoardUtils.getSquare(file, rank)));
+				++file;
+			}
+			if (file > 8) {
+				throw new IllegalArgumentException(String.format("Invalid FEN placement.  FEN = {%s}", fen));
+			}
+		}
+		if (rank != 0 || file != 8) {
+			throw new IllegalArgumentException(String.format("Invalid FEN placement.  FEN = {%s}", fen));
+		}
+		return i;
+	}
+
+	/**
+	 * Converts a castling field, such as "KQkq" or "-",
+	 * into PieceContainer.CASTLE_* flags.
+	 * 
+	 * @param castling
+	 * @return castling rights
+	 * @throws IllegalArgumentException
+	 */
+	public static int getCastlingRights(String castling) throws IllegalArgumentException {
+		int castlingRights = 0;
+		if ("-".equals(castling)) {
+			return castlingRights;
+		}
+		for (int i=0; i<castling.length(); ++i) {
+			switch (castling.charAt(i)) {
+			case 'K':
+				castlingRights |= PieceContainer.CASTLE_H1;
+				break;
+			case 'Q':
+				castlingRights |= PieceContainer.CASTLE_A1;
+				break;
+			case 'k':
+				castlingRights |= PieceContainer.CASTLE_H8;
+				break;
+			case 'q':
+				castlingRights |= PieceContainer.CASTLE_A8;
+				break;
+			default:
+				throw new IllegalArgumentException(String.format("Invalid FEN castling field.  Castling = {%s}", castling));
+			}
+		}
+		return castlingRights;
+	}
+
+	/**
+	 * Converts an en passant field, such as "e3" or "-",
+	 * into a square index, or -1 if there is none.
+	 * 
+	 * @param enPassant
+	 * @return square index
+	 * @throws IllegalArgumentException
+	 */
+	public static int getEnPassantSquare(String enPassant) throws IllegalArgumentException {
+		return "-".equals(enPassant) ? -1 : ConvertUtils.getPositionAsSquare(enPassant);
+	}
+
+	/**
+	 * Writes the piece placement field of pieces to fen.
+	 * 
+	 * @param pieces
+	 * @param fen
+	 * @return fen
+	 */
+	public static StringBuilder appendPieces(PieceBoard pieces, StringBuilder fen) {
+		for (int rank=7; rank>=0; --rank) {
+			int empty = 0;
+			for (int file=0; file<8; ++file) {
+				int index = pieces.getIndex(1L << BoardUtils.getSquare(file, rank));
+				if (index < 0) {
+					++empty;
+					continue;
+				}
+				if (empty > 0) {
+					fen.append(empty);
+					empty = 0;
+				}
+				fen.append(PIECE_LETTERS.charAt(index));
+			}
+			if (empty > 0) {
+				fen.append(empty);
+			}
+			if (rank > 0) {
+				fen.append('/');
+			}
+		}
+		return fen;
+	}
+
+	/**
+	 * Writes the castling field for castlingRights to fen.
+	 * 
+	 * @param castlingRights PieceContainer.CASTLE_* flags
+	 * @param fen
+	 * @return fen
+	 */
+	public static StringBuilder appendCastlingRights(int castlingRights, StringBuilder fen) {
+		if (castlingRights == 0) {
+			return fen.append('-');
+		}
+		if ((castlingRights & PieceContainer.CASTLE_H1) != 0) {
+			fen.append('K');
+		}
+		if ((castlingRights & PieceContainer.CASTLE_A1) != 0) {
+			fen.append('Q');
+		}
+		if ((castlingRights & PieceContainer.CASTLE_H8) != 0) {
+			fen.append('k');
+		}
+		if ((castlingRights & PieceContainer.CASTLE_A8) != 0) {
+			fen.append('q');
+		}
+		return fen;
+	}
+}
@@ -1,9 +1,9 @@
 package com.grapedrink.chessmap.logic.utils;
 
-import java.util.Map;
-
 import com.grapedrink.chessmap.logic.bitboards.InputValidation;
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
 import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.PieceType;
 
 public class GameUtils {
 
@@ -13,7 +13,7 @@ public class GameUtils {
 	 * Determines if the player at position is in check.
 	 * Returns false if there is no player at position.
 	 */
-	public static boolean isInCheck(long position, Map<String, Long> pieces) throws IllegalArgumentException {
+	public static boolean isInCheck(long position, PieceBoard pieces) throws IllegalArgumentException {
 		InputValidation.validatePosition(position);
 		long king = PieceUtils.getFriendlyKing(position, pieces);
 		return king == (king & DefenseUtils.getDefendedSquaresEnemyTeam(king, pieces));
@@ -29,34 +29,57 @@ public class GameUtils {
 	 * @return
 	 * @throws IllegalArgumentException if the position is invalid
 	 */
-	public static boolean isPinned(long position, Map<String, Long> pieces) throws IllegalArgumentException {
+	public static boolean isPinned(long position, PieceBoard pieces) throws IllegalArgumentException {
 		InputValidation.validatePosition(position);
 		long myKing = PieceUtils.getFriendlyKing(position, pieces);
-		
-		boolean thePieceAtPositionIsKing = position == myKing;
-		boolean thePieceAtPositionIsNotInLineWithItsKing = (BoardUtils.getRaystar(position) & myKing) == 0L;
-		if (thePieceAtPositionIsKing || thePieceAtPositionIsNotInLineWithItsKing) {
+		if (myKing == 0L || position == myKing) {
 			return false;
 		}
 		
-		long iterator = myKing;
+		int kingSquare = Long.numberOfTrailingZeros(myKing);
+		int square = Long.numberOfTrailingZeros(position);
+		int direction = RayUtils.getConnectingDirectionForSquares(kingSquare, square);
 		long allPieces = PieceUtils.getAllPieces(pieces);
-		int direction = RayUtils.getConnectingDirection(myKing, position);
-		while ((iterator = BoardUtils.getNeighboringSquare(iterator, direction)) != position) {
-			if ((iterator & allPieces) == iterator) {
-				return false;
-			}
+		boolean thePieceAtPositionIsNotInLineWithItsKing = direction < 0;
+		if (thePieceAtPositionIsNotInLineWithItsKing || (RayUtils.getConnectingRayForSquares(kingSquare, square) & allPieces) != 0L) {
+			return false;
 		}
 		
 		PieceColor enemyColor = PieceUtils.isBlack(position, pieces) ? PieceColor.WHITE : PieceColor.BLACK;
-		long attackersThatCanPin = PieceUtils.getSlidingPieces(pieces, enemyColor);
-		while (BoardUtils.hasNeighboringSquare(iterator, direction)) {
-			iterator = BoardUtils.getNeighboringSquare(iterator, direction);
-			if ((iterator & attackersThatCanPin) == iterator) {
-				return (DefenseUtils.getDefendedSquares(iterator, pieces) & position) != 0L;
-			}
+		long attackersThatCanPin = PieceUtils.getSlidingPieces(pieces, enemyColor) & RayUtils.getDirectionalRayForSquare(square, direction);
+		if (attackersThatCanPin == 0L) {
+			return false;
 		}
-		return false;
+		
+		// rays travelling north, northeast, west and northwest climb towards bit 63
+		boolean rayIncreases = direction == 0 || direction == 1 || direction == 6 || direction == 7;
+		long nearestAttacker = rayIncreases ? Long.lowestOneBit(attackersThatCanPin) : Long.highestOneBit(attackersThatCanPin);
+		return (DefenseUtils.getDefendedSquares(nearestAttacker, pieces) & position) != 0L;
 	}
 	
+	/**
+	 * Returns whether neither side has the material to checkmate:
+	 * only kings, with at most one knight or bishop between them,
+	 * or any number of bishops all standing on squares of one color.
+	 * 
+	 * @param pieces
+	 * @return true if the game is drawn by insufficient material
+	 */
+	public static boolean isInsufficientMaterial(PieceBoard pieces) {
+		long heavyPieces = 0L;
+		for (int offset : new int[] {PieceBoard.BLACK_OFFSET, PieceBoard.WHITE_OFFSET}) {
+			heavyPieces |= pieces.get(offset + PieceType.PAWN.ordinal())
+					| pieces.get(offset + PieceType.ROOK.ordinal())
+					| pieces.get(offset + PieceType.QUEEN.ordinal());
+		}
+		if (heavyPieces != 0L) {
+			return false;
+		}
+		long knights = pieces.get(PieceBoard.BLACK_KNIGHT) | pieces.get(PieceBoard.WHITE_KNIGHT);
+		long bishops = pieces.get(PieceBoard.BLACK_BISHOP) | pieces.get(PieceBoard.WHITE_BISHOP);
+		if (Long.bitCount(knights | bishops) <= 1) {
+			return true;
+		}
+		return knights == 0L && ((bishops & BoardConstants.LIGHT_SQUARES) == 0L || (bishops & ~BoardConstants.LIGHT_SQUARES) == 0L);
+	}
 }
@@ -0,0 +1,170 @@
+package com.grapedrink.chessmap.logic.utils;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
+import com.grapedrink.chessmap.logic.bitboards.PieceType;
+
+/**
+ * What decides whether a move is legal for one color in one position:
+ * the pieces checking its king, the squares that answer the check,
+ * its pieces pinned to the king, and the squares the enemy defends.
+ *
+ * Computed once by update and then read for every piece, so that
+ * checking a piece's moves does not walk rays from the king or
+ * rebuild the enemy's defense map.  Reuse one instance to avoid
+ * allocating per position.
+ */
+public class LegalityContext {
+
+	private boolean isBlack;
+	private int kingSquare;
+	private long checkers;
+	private long checkMask;
+	private long pinned;
+	private long enemyDefense;
+
+	public LegalityContext() {
+		kingSquare = -1;
+		checkMask = BoardConstants.UNIVERSE;
+	}
+
+	public LegalityContext(PieceBoard pieces, boolean isBlack) {
+		update(pieces, isBlack);
+	}
+
+	/**
+	 * Recomputes this context for the pieces of one color.
+	 *
+	 * @param pieces the board
+	 * @param isBlack color whose moves are being checked
+	 */
+	public void update(PieceBoard pieces, boolean isBlack) {
+		int them = isBlack ? PieceBoard.WHITE_OFFSET : PieceBoard.BLACK_OFFSET;
+		update(pieces, isBlack, MoveGenerator.getDefense(pieces, them, pieces.getAllPieces()));
+	}
+
+	/**
+	 * Recomputes this context for the pieces of one color,
+	 * given the squares the other color attacks, such as
+	 * those kept by an AttackMap.
+	 *
+	 * @param pieces the board
+	 * @param isBlack color whose moves are being checked
+	 * @param enemyAttacks squares attacked by the other color
+	 */
+	public void update(PieceBoard pieces, boolean isBlack, long enemyAttacks) {
+		this.isBlack = isBlack;
+		int us = isBlack ? PieceBoard.BLACK_OFFSET : PieceBoard.WHITE_OFFSET;
+		int them = isBlack ? PieceBoard.WHITE_OFFSET : PieceBoard.BLACK_OFFSET;
+		long ourPieces = isBlack ? pieces.getBlackPieces() : pieces.getWhitePieces();
+		long theirPieces = isBlack ? pieces.getWhitePieces() : pieces.getBlackPieces();
+		long king = pieces.get(us + PieceType.KING.ordinal());
+
+		enemyDefense = enemyAttacks;
+		if (king == 0L) {
+			kingSquare = -1;
+			checkers = 0L;
+			checkMask = BoardConstants.UNIVERSE;
+			pinned = 0L;
+			return;
+		}
+		kingSquare = Long.numberOfTrailingZeros(king);
+		checkers = MoveGenerator.getAttackers(pieces, kingSquare, isBlack, ourPieces | theirPieces);
+		pinned = MoveGenerator.getPinnedPieces(pieces, kingSquare, them, ourPieces, theirPieces);
+
+		// sliders giving check see through the king, so it cannot step back along their ray
+		long queens = pieces.get(them + PieceType.QUEEN.ordinal());
+		long rooks = checkers & (pieces.get(them + PieceType.ROOK.ordinal()) | queens);
+		long bishops = checkers & (pieces.get(them + PieceType.BISHOP.ordinal()) | queens);
+		long occupancy = (ourPieces | theirPieces) ^ king;
+		while (rooks != 0L) {
+			enemyDefense |= MagicUtils.getRookDefense(Long.numberOfTrailingZeros(rooks), occupancy);
+			rooks &= rooks - 1;
+		}
+		while (bishops != 0L) {
+			enemyDefense |= MagicUtils.getBishopDefense(Long.numberOfTrailingZeros(bishops), occupancy);
+			bishops &= bishops - 1;
+		}
+
+		if (checkers == 0L) {
+			checkMask = BoardConstants.UNIVERSE;
+		}
+		else if (Long.bitCount(checkers) == 1) {
+			checkMask = checkers | RayUtils.getConnectingRayForSquares(kingSquare, Long.numberOfTrailingZeros(checkers));
+		}
+		else {
+			checkMask = 0L;
+		}
+	}
+
+	/**
+	 * @return color whose moves this context checks
+	 */
+	public boolean isBlack() {
+		return isBlack;
+	}
+
+	/**
+	 * @return square of the king, or -1 if there is none
+	 */
+	public int getKingSquare() {
+		return kingSquare;
+	}
+
+	/**
+	 * @return enemy pieces giving check
+	 */
+	public long getCheckers() {
+		return checkers;
+	}
+
+	/**
+	 * Returns the squares a piece other than the king must move to
+	 * while in check: the checker and the squares between it and
+	 * the king.  Every square when not in check, none in double check.
+	 *
+	 * @return check evasion mask
+	 */
+	public long getCheckMask() {
+		return checkMask;
+	}
+
+	/**
+	 * @return pieces that cannot leave the line between their king and an enemy slider
+	 */
+	public long getPinned() {
+		return pinned;
+	}
+
+	/**
+	 * Returns the squares a piece on square may move to without
+	 * exposing its king: every square if it is not pinned,
+	 * otherwise the line through the king.
+	 *
+	 * @param square
+	 * @return pin ray
+	 */
+	public long getPinMask(int square) {
+		if ((pinned & (1L << square)) == 0L) {
+			return BoardConstants.UNIVERSE;
+		}
+		return BoardUtils.getConnectingRayForSquares(kingSquare, square);
+	}
+
+	/**
+	 * Returns every square the enemy defends, with sliders
+	 * seeing through the king.  The king may not move onto these.
+	 *
+	 * @return enemy defense
+	 */
+	public long getEnemyDefense() {
+		return enemyDefense;
+	}
+
+	public boolean isInCheck() {
+		return checkers != 0L;
+	}
+
+	public boolean isDoubleCheck() {
+		return Long.bitCount(checkers) > 1;
+	}
+}
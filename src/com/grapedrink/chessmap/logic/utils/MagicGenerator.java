@@ -0,0 +1,145 @@
+package com.grapedrink.chessmap.logic.utils;
+
+import java.util.Random;
+
+/**
+ * Finds and verifies the magic numbers used by MagicUtils.
+ *
+ * A magic number for a square maps every arrangement of blockers
+ * on that square's relevant rays onto a distinct table slot
+ * (or onto a slot holding the same defended squares).  This is
+ * run offline, and its output is pasted into MagicUtils:
+ *
+ *     java com.grapedrink.chessmap.logic.utils.MagicGenerator [seed]
+ */
+public class MagicGenerator {
+
+	private static final int[] ROOK_DIRECTIONS = {0, 2, 4, 6};
+	private static final int[] BISHOP_DIRECTIONS = {1, 3, 5, 7};
+
+	private MagicGenerator() {}
+
+	/**
+	 * Returns the squares whose occupancy can change the defended
+	 * squares of a rook or bishop at square.  This is every square
+	 * on its rays except the last one before the border.
+	 *
+	 * @param square square index, 0 through 63
+	 * @param isRook true for rooks, false for bishops
+	 * @return relevant occupancy mask
+	 */
+	public static long getRelevantOccupancy(int square, boolean isRook) {
+		long mask = 0L;
+		for (int direction : isRook ? ROOK_DIRECTIONS : BISHOP_DIRECTIONS) {
+			long iterator = 1L << square;
+			while (BoardUtils.hasNeighboringSquare(iterator, direction)) {
+				iterator = BoardUtils.getNeighboringSquare(iterator, direction);
+				if (BoardUtils.hasNeighboringSquare(iterator, direction)) {
+					mask |= iterator;
+				}
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns the squares defended by a rook or bishop at square,
+	 * found by walking each ray until it hits a piece in occupancy.
+	 *
+	 * @param square square index, 0 through 63
+	 * @param occupancy all pieces on the board
+	 * @param isRook true for rooks, false for bishops
+	 * @return defended squares
+	 */
+	public static long getSlidingDefense(int square, long occupancy, boolean isRook) {
+		long defense = 0L;
+		for (int direction : isRook ? ROOK_DIRECTIONS : BISHOP_DIRECTIONS) {
+			defense |= RayUtils.getDefendedRay(1L << square, occupancy, direction);
+		}
+		return defense;
+	}
+
+	/**
+	 * Fills table with the defended squares for every blocker
+	 * arrangement on square, indexed by magic.  Returns false if
+	 * two arrangements with different defended squares collide.
+	 *
+	 * @param square square index, 0 through 63
+	 * @param magic candidate magic number
+	 * @param isRook true for rooks, false for bishops
+	 * @param table table of size 1 << bitCount(mask), or null
+	 * @return whether magic is valid for square
+	 */
+	public static boolean fillTable(int square, long magic, boolean isRook, long[] table) {
+		long mask = getRelevantOccupancy(square, isRook);
+		int bits = Long.bitCount(mask);
+		int shift = 64 - bits;
+		long[] slots = table == null ? new long[1 << bits] : table;
+		boolean[] used = new boolean[1 << bits];
+		long occupancy = 0L;
+		do {
+			long defense = getSlidingDefense(square, occupancy, isRook);
+			int index = (int) ((occupancy * magic) >>> shift);
+			if (!used[index]) {
+				used[index] = true;
+				slots[index] = defense;
+			}
+			else if (slots[index] != defense) {
+				return false;
+			}
+			occupancy = (occupancy - mask) & mask;
+		} while (occupancy != 0L);
+		return true;
+	}
+
+	/**
+	 * Returns whether magic maps every blocker arrangement on square
+	 * to its defended squares without a destructive collision.
+	 *
+	 * @param square square index, 0 through 63
+	 * @param magic candidate magic number
+	 * @param isRook true for rooks, false for bishops
+	 * @return whether magic is valid for square
+	 */
+	public static boolean isMagic(int square, long magic, boolean isRook) {
+		return fillTable(square, magic, isRook, null);
+	}
+
+	/**
+	 * Searches for a magic number for square by trial and error,
+	 * using sparse random candidates.
+	 *
+	 * @param square square index, 0 through 63
+	 * @param isRook true for rooks, false for bishops
+	 * @param random source of candidates
+	 * @return magic number
+	 */
+	public static long findMagic(int square, boolean isRook, Random random) {
+		long mask = getRelevantOccupancy(square, isRook);
+		while (true) {
+			long magic = random.nextLong() & random.nextLong() & random.nextLong();
+			if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+				continue;
+			}
+			if (isMagic(square, magic, isRook)) {
+				return magic;
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 0L);
+		printMagics("ROOK_MAGICS", true, random);
+		printMagics("BISHOP_MAGICS", false, random);
+	}
+
+	private static void printMagics(String name, boolean isRook, Random random) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("\tprivate static final long[] %s = {\n", name));
+		for (int square=0; square<64; ++square) {
+			builder.append(String.format("\t\t0x%016XL,\n", findMagic(square, isRook, random)));
+		}
+		builder.append("\t};\n");
+		System.out.println(builder.toString());
+	}
+}
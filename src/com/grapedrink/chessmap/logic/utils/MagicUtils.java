@@ -0,0 +1,218 @@
+package com.grapedrink.chessmap.logic.utils;
+
+/**
+ * Magic bitboard lookups for sliding pieces.
+ *
+ * For each square, the pieces on a rook's or bishop's relevant
+ * rays are multiplied by a magic number, and the top bits of the
+ * product index a table holding the defended squares for that
+ * arrangement of blockers.  The tables are built once at class
+ * initialization from the ray-walking in RayUtils.
+ *
+ * The magic numbers were produced by MagicGenerator.
+ */
+public class MagicUtils {
+
+	private MagicUtils() {}
+
+	private static final long[] ROOK_MAGICS = {
+		0x0480053081214000L,
+		0x0040100040002001L,
+		0x6080200080100008L,
+		0x0200082004411200L,
+		0x0200102008040200L,
+		0x1100240028210012L,
+		0x1080008001000200L,
+		0x0100020028488100L,
+		0x0001800220400086L,
+		0x2488804000802004L,
+		0x0C00801000200081L,
+		0x201C801000080080L,
+		0x0441000800100500L,
+		0x00A0808002000400L,
+		0x0125000402000100L,
+		0x0001002200409100L,
+		0x0280004020004000L,
+		0x5110084020004000L,
+		0x0001050020024011L,
+		0x0002020020081040L,
+		0x0800050008010010L,
+		0x81C0808002000400L,
+		0x8010808001000200L,
+		0x000006000100408CL,
+		0x0280400080008020L,
+		0x3000500040002000L,
+		0x8400200080801000L,
+		0x80A01001000D0020L,
+		0x900C001101000800L,
+		0x0110040080800200L,
+		0x1001000100040200L,
+		0x0060040200008041L,
+		0x4480804000800038L,
+		0x0040002001804080L,
+		0x2010882000801000L,
+		0x0000080282801000L,
+		0x0200080080800400L,
+		0x0206000400808002L,
+		0x2000020001010004L,
+		0x1014042042000091L,
+		0x0200208040008000L,
+		0x0040201000404002L,
+		0x0244200100110041L,
+		0x0041019000090020L,
+		0x0A28001100850008L,
+		0x0020020004008080L,
+		0x1001220108140010L,
+		0x8A0400408106000CL,
+		0x0000220100508200L,
+		0x6040048049003100L,
+		0x0000200011024300L,
+		0x0000900100082500L,
+		0x0870040008008080L,
+		0x0850800600040180L,
+		0x0006008104480200L,
+		0x1800040108B04200L,
+		0xD12C201080010341L,
+		0x0101042040008013L,
+		0x2801004008200273L,
+		0x001900614C500009L,
+		0x0202004461500802L,
+		0x0002001008040102L,
+		0x10001028B1080604L,
+		0x000D000040803201L,
+	};
+
+	private static final long[] BISHOP_MAGICS = {
+		0x6460220208002480L,
+		0x8308C80104002010L,
+		0xB408121042008000L,
+		0x0C48205040021000L,
+		0x1002021000020000L,
+		0x0840882440802010L,
+		0x0080809008204040L,
+		0x00001402011028A0L,
+		0x088EC002040400B0L,
+		0x0005500608087180L,
+		0x0000A20089020010L,
+		0x000010908602C060L,
+		0x2810420210014000L,
+		0x0040024802400080L,
+		0x0408484230100840L,
+		0x00020A08A4011800L,
+		0x0020003062062848L,
+		0x0002504510440102L,
+		0xA23005310C008810L,
+		0x0048000104110044L,
+		0x010A000422010008L,
+		0x2021000200A0A400L,
+		0x0004400208124801L,
+		0x8000280480841000L,
+		0x8110100206600229L,
+		0x0814204102080909L,
+		0x00A0300002040840L,
+		0x8808080000202020L,
+		0x04040400C0410040L,
+		0x108404200C101400L,
+		0x01C1012000480802L,
+		0xA020520040420200L,
+		0x2404100800062001L,
+		0x0002014400208804L,
+		0x0100805000410402L,
+		0x0241420080080080L,
+		0x8040040444030100L,
+		0x0F50064242020110L,
+		0x0001020200888818L,
+		0x0801021200018069L,
+		0x2803086094A01040L,
+		0x2440482804444800L,
+		0x0002002024200804L,
+		0x880101420800C084L,
+		0x40A4182008200900L,
+		0x8420008102041040L,
+		0x00901001304A0508L,
+		0x0450021448519100L,
+		0x0402021002080A10L,
+		0x000D01009084020CL,
+		0x20800A0046480040L,
+		0x0000083020880220L,
+		0x0001010803040142L,
+		0x0000081001520000L,
+		0x0040100420809000L,
+		0x0022900428808202L,
+		0x0000404044202010L,
+		0x1008004044108804L,
+		0x1008305509415000L,
+		0x1000840400208840L,
+		0x0810260A12020201L,
+		0x3000A04410020210L,
+		0x0903102082008204L,
+		0x490808088808C308L,
+	};
+
+	private static final long[] ROOK_MASKS = new long[64];
+	private static final long[] BISHOP_MASKS = new long[64];
+	private static final int[] ROOK_SHIFTS = new int[64];
+	private static final int[] BISHOP_SHIFTS = new int[64];
+	private static final long[][] ROOK_DEFENSE = new long[64][];
+	private static final long[][] BISHOP_DEFENSE = new long[64][];
+
+	static {
+		for (int square=0; square<64; ++square) {
+			ROOK_MASKS[square] = MagicGenerator.getRelevantOccupancy(square, true);
+			ROOK_SHIFTS[square] = 64 - Long.bitCount(ROOK_MASKS[square]);
+			ROOK_DEFENSE[square] = new long[1 << Long.bitCount(ROOK_MASKS[square])];
+			if (!MagicGenerator.fillTable(square, ROOK_MAGICS[square], true, ROOK_DEFENSE[square])) {
+				throw new IllegalStateException(String.format("Invalid rook magic for square %d", square));
+			}
+			BISHOP_MASKS[square] = MagicGenerator.getRelevantOccupancy(square, false);
+			BISHOP_SHIFTS[square] = 64 - Long.bitCount(BISHOP_MASKS[square]);
+			BISHOP_DEFENSE[square] = new long[1 << Long.bitCount(BISHOP_MASKS[square])];
+			if (!MagicGenerator.fillTable(square, BISHOP_MAGICS[square], false, BISHOP_DEFENSE[square])) {
+				throw new IllegalStateException(String.format("Invalid bishop magic for square %d", square));
+			}
+		}
+	}
+
+	/**
+	 * Returns all the squares defended by a rook at square,
+	 * stopping at (and including) the first piece on each ray.
+	 *
+	 * @param square square index, 0 through 63
+	 * @param allPieces all pieces on the board
+	 * @return defended squares
+	 */
+	public static long getRookDefense(int square, long allPieces) {
+		return ROOK_DEFENSE[square][(int) (((allPieces & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+	}
+
+	/**
+	 * Returns all the squares defended by a bishop at square,
+	 * stopping at (and including) the first piece on each ray.
+	 *
+	 * @param square square index, 0 through 63
+	 * @param allPieces all pieces on the board
+	 * @return defended squares
+	 */
+	public static long getBishopDefense(int square, long allPieces) {
+		return BISHOP_DEFENSE[square][(int) (((allPieces & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+	}
+
+	/**
+	 * Returns all the squares defended by a queen at square.
+	 *
+	 * @param square square index, 0 through 63
+	 * @param allPieces all pieces on the board
+	 * @return defended squares
+	 */
+	public static long getQueenDefense(int square, long allPieces) {
+		return getRookDefense(square, allPieces) | getBishopDefense(square, allPieces);
+	}
+
+	public static long getRookMagic(int square) {
+		return ROOK_MAGICS[square];
+	}
+
+	public static long getBishopMagic(int square) {
+		return BISHOP_MAGICS[square];
+	}
+}
@@ -0,0 +1,473 @@
+package com.grapedrink.chessmap.logic.utils;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
+import com.grapedrink.chessmap.logic.bitboards.PieceContainer;
+import com.grapedrink.chessmap.logic.bitboards.PieceType;
+
+/**
+ * Generates every legal move for the side to move in a single pass.
+ *
+ * The checking pieces, the squares that resolve a check, and the pinned
+ * pieces are computed once per position into a LegalityContext, so that
+ * no move has to be played out to learn whether it leaves its own king
+ * in check.  Moves are written as PackedMove ints into a
+ * caller-supplied array.
+ */
+public class MoveGenerator {
+
+	/**
+	 * No legal chess position has more than 218 moves,
+	 * so an array of this size can hold any move list.
+	 */
+	public static final int MAX_MOVES = 256;
+
+	private static final PieceType[] PROMOTIONS = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT};
+
+	private static final int E1 = BoardUtils.getSquare(4, 0);
+	private static final int E8 = BoardUtils.getSquare(4, 7);
+
+	private MoveGenerator() {}
+
+	/**
+	 * Writes every legal move for the side to move into moves,
+	 * and returns how many were written.
+	 *
+	 * @param pieces the board
+	 * @param isBlacksTurn side to move
+	 * @param castlingRights PieceContainer.CASTLE_* flags still allowed
+	 * @param enPassantSquare square a pawn may capture onto en passant, or -1
+	 * @param moves destination array, at least MAX_MOVES long
+	 * @return number of moves written
+	 */
+	public static int getLegalMoves(PieceBoard pieces, boolean isBlacksTurn, int castlingRights, int enPassantSquare, int[] moves) {
+		return getLegalMoves(pieces, new LegalityContext(pieces, isBlacksTurn), castlingRights, enPassantSquare, moves);
+	}
+
+	/**
+	 * Writes every legal move for the color of context into moves,
+	 * and returns how many were written.
+	 *
+	 * @param pieces the board
+	 * @param context legality context of pieces for the side to move
+	 * @param castlingRights PieceContainer.CASTLE_* flags still allowed
+	 * @param enPassantSquare square a pawn may capture onto en passant, or -1
+	 * @param moves destination array, at least MAX_MOVES long
+	 * @return number of moves written
+	 */
+	public static int getLegalMoves(PieceBoard pieces, LegalityContext context, int castlingRights, int enPassantSquare, int[] moves) {
+		boolean isBlacksTurn = context.isBlack();
+		int us = isBlacksTurn ? PieceBoard.BLACK_OFFSET : PieceBoard.WHITE_OFFSET;
+		long ourPieces = isBlacksTurn ? pieces.getBlackPieces() : pieces.getWhitePieces();
+		long theirPieces = isBlacksTurn ? pieces.getWhitePieces() : pieces.getBlackPieces();
+		long allPieces = ourPieces | theirPieces;
+		int kingSquare = context.getKingSquare();
+		long checkMask = context.getCheckMask();
+		int count = 0;
+
+		if (kingSquare >= 0) {
+			count = addMoves(moves, count, kingSquare, getKingDestinations(kingSquare, context, ourPieces), theirPieces);
+			if (context.isDoubleCheck()) {
+				return count;
+			}
+			if (!context.isInCheck()) {
+				long castles = getCastleDestinations(pieces, isBlacksTurn, castlingRights, allPieces, context.getEnemyDefense());
+				while (castles != 0L) {
+					moves[count++] = PackedMove.encode(kingSquare, Long.numberOfTrailingZeros(castles), PackedMove.CASTLE);
+					castles &= castles - 1;
+				}
+			}
+		}
+
+		long movers;
+		long destinations;
+		int square;
+
+		movers = pieces.get(us + PieceType.KNIGHT.ordinal()) & ~context.getPinned();
+		while (movers != 0L) {
+			square = Long.numberOfTrailingZeros(movers);
+			destinations = DefenseUtils.getKnightDefense(1L << square) & ~ourPieces & checkMask;
+			count = addMoves(moves, count, square, destinations, theirPieces);
+			movers &= movers - 1;
+		}
+
+		movers = pieces.get(us + PieceType.BISHOP.ordinal()) | pieces.get(us + PieceType.ROOK.ordinal()) | pieces.get(us + PieceType.QUEEN.ordinal());
+		while (movers != 0L) {
+			square = Long.numberOfTrailingZeros(movers);
+			destinations = getSliderDestinations(PieceBoard.getType(pieces.getIndex(1L << square)), square, allPieces)
+					& ~ourPieces & checkMask & context.getPinMask(square);
+			count = addMoves(moves, count, square, destinations, theirPieces);
+			movers &= movers - 1;
+		}
+
+		return addPawnMoves(pieces, context, enPassantSquare, moves, count);
+	}
+
+	/**
+	 * Returns whether the color of context has any legal move,
+	 * stopping at the first piece found with one.  Castles are
+	 * not looked at, since a king that may castle may also
+	 * step to the square it passes over.
+	 *
+	 * @param pieces the board
+	 * @param context legality context of pieces for the side to move
+	 * @param enPassantSquare square a pawn may capture onto en passant, or -1
+	 * @return false if the side to move is checkmated or stalemated
+	 */
+	public static boolean hasLegalMove(PieceBoard pieces, LegalityContext context, int enPassantSquare) {
+		boolean isBlacksTurn = context.isBlack();
+		int us = isBlacksTurn ? PieceBoard.BLACK_OFFSET : PieceBoard.WHITE_OFFSET;
+		long ourPieces = isBlacksTurn ? pieces.getBlackPieces() : pieces.getWhitePieces();
+		long theirPieces = isBlacksTurn ? pieces.getWhitePieces() : pieces.getBlackPieces();
+		long allPieces = ourPieces | theirPieces;
+		int kingSquare = context.getKingSquare();
+		long checkMask = context.getCheckMask();
+
+		if (kingSquare >= 0) {
+			if (getKingDestinations(kingSquare, context, ourPieces) != 0L) {
+				return true;
+			}
+			if (context.isDoubleCheck()) {
+				return false;
+			}
+		}
+
+		int square;
+		long movers = pieces.get(us + PieceType.KNIGHT.ordinal()) & ~context.getPinned();
+		while (movers != 0L) {
+			if ((DefenseUtils.getKnightDefense(movers & -movers) & ~ourPieces & checkMask) != 0L) {
+				return true;
+			}
+			movers &= movers - 1;
+		}
+
+		movers = pieces.get(us + PieceType.PAWN.ordinal());
+		while (movers != 0L) {
+			if (getPawnDestinations(pieces, context, Long.numberOfTrailingZeros(movers), enPassantSquare, theirPieces, allPieces) != 0L) {
+				return true;
+			}
+			movers &= movers - 1;
+		}
+
+		movers = pieces.get(us + PieceType.BISHOP.ordinal()) | pieces.get(us + PieceType.ROOK.ordinal()) | pieces.get(us + PieceType.QUEEN.ordinal());
+		while (movers != 0L) {
+			square = Long.numberOfTrailingZeros(movers);
+			if ((getSliderDestinations(PieceBoard.getType(pieces.getIndex(1L << square)), square, allPieces)
+					& ~ourPieces & checkMask & context.getPinMask(square)) != 0L) {
+				return true;
+			}
+			movers &= movers - 1;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the legal destinations of the piece on square, using a
+	 * context already computed for its color, so that asking about
+	 * every piece of a position builds the context only once.
+	 * Castles are given as the king's destination.
+	 *
+	 * @param pieces the board
+	 * @param context legality context of pieces for the color on square
+	 * @param square square of the piece to move
+	 * @param castlingRights PieceContainer.CASTLE_* flags still allowed
+	 * @param enPassantSquare square a pawn may capture onto en passant, or -1
+	 * @return destinations, or 0L if square holds no piece of the context's color
+	 */
+	public static long getLegalDestinations(PieceBoard pieces, LegalityContext context, int square, int castlingRights, int enPassantSquare) {
+		int index = pieces.getIndex(1L << square);
+		if (index < 0 || PieceBoard.isBlack(index) != context.isBlack()) {
+			return 0L;
+		}
+		boolean isBlack = context.isBlack();
+		long ourPieces = isBlack ? pieces.getBlackPieces() : pieces.getWhitePieces();
+		long theirPieces = isBlack ? pieces.getWhitePieces() : pieces.getBlackPieces();
+		long allPieces = ourPieces | theirPieces;
+		PieceType type = PieceBoard.getType(index);
+
+		if (PieceType.KING.equals(type)) {
+			long destinations = getKingDestinations(square, context, ourPieces);
+			if (!context.isInCheck() && square == context.getKingSquare()) {
+				destinations |= getCastleDestinations(pieces, isBlack, castlingRights, allPieces, context.getEnemyDefense());
+			}
+			return destinations;
+		}
+		long legal = context.getCheckMask() & context.getPinMask(square);
+		switch (type) {
+		case PAWN:
+			return getPawnDestinations(pieces, context, square, enPassantSquare, theirPieces, allPieces);
+		case KNIGHT:
+			return DefenseUtils.getKnightDefense(1L << square) & ~ourPieces & legal;
+		default:
+			return getSliderDestinations(type, square, allPieces) & ~ourPieces & legal;
+		}
+	}
+
+	private static long getKingDestinations(int square, LegalityContext context, long ourPieces) {
+		return DefenseUtils.getKingDefense(1L << square) & ~ourPieces & ~context.getEnemyDefense();
+	}
+
+	private static long getSliderDestinations(PieceType type, int square, long allPieces) {
+		switch (type) {
+		case BISHOP:
+			return MagicUtils.getBishopDefense(square, allPieces);
+		case ROOK:
+			return MagicUtils.getRookDefense(square, allPieces);
+		default:
+			return MagicUtils.getQueenDefense(square, allPieces);
+		}
+	}
+
+	private static int addMoves(int[] moves, int count, int src, long destinations, long theirPieces) {
+		long remaining = destinations;
+		int dst;
+		while (remaining != 0L) {
+			dst = Long.numberOfTrailingZeros(remaining);
+			moves[count++] = PackedMove.encode(src, dst, ((1L << dst) & theirPieces) != 0L ? PackedMove.CAPTURE : PackedMove.QUIET);
+			remaining &= remaining - 1;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the pushes, captures and en passant capture
+	 * the pawn on src may legally make.
+	 */
+	private static long getPawnDestinations(PieceBoard pieces, LegalityContext context, int src, int enPassantSquare, long theirPieces, long allPieces) {
+		boolean isBlack = context.isBlack();
+		int forward = isBlack ? -8 : 8;
+		long startingRank = isBlack ? BoardConstants.RANKS[6] : BoardConstants.RANKS[1];
+		long legal = context.getCheckMask() & context.getPinMask(src);
+		long destinations = 0L;
+
+		int dst = src + forward;
+		if (((1L << dst) & allPieces) == 0L) {
+			destinations |= (1L << dst) & legal;
+			int doubleJump = dst + forward;
+			if (((1L << src) & startingRank) != 0L && ((1L << doubleJump) & allPieces) == 0L) {
+				destinations |= (1L << doubleJump) & legal;
+			}
+		}
+
+		long captures = DefenseUtils.getPawnDefense(1L << src, isBlack ? 4 : 0);
+		destinations |= captures & theirPieces & legal;
+
+		if (isEnPassant(pieces, context, src, enPassantSquare, captures)) {
+			destinations |= 1L << enPassantSquare;
+		}
+		return destinations;
+	}
+
+	private static int addPawnMoves(PieceBoard pieces, LegalityContext context, int enPassantSquare, int[] moves, int count) {
+		boolean isBlacksTurn = context.isBlack();
+		int us = isBlacksTurn ? PieceBoard.BLACK_OFFSET : PieceBoard.WHITE_OFFSET;
+		long theirPieces = isBlacksTurn ? pieces.getWhitePieces() : pieces.getBlackPieces();
+		long allPieces = pieces.getAllPieces();
+		int forward = isBlacksTurn ? -8 : 8;
+		long startingRank = isBlacksTurn ? BoardConstants.RANKS[6] : BoardConstants.RANKS[1];
+		int direction = isBlacksTurn ? 4 : 0;
+
+		long pawns = pieces.get(us + PieceType.PAWN.ordinal());
+		int src;
+		int dst;
+		long legal;
+		long captures;
+		long targets;
+		while (pawns != 0L) {
+			src = Long.numberOfTrailingZeros(pawns);
+			legal = context.getCheckMask() & context.getPinMask(src);
+
+			dst = src + forward;
+			if (((1L << dst) & allPieces) == 0L) {
+				if (((1L << dst) & legal) != 0L) {
+					count = addPawnMove(moves, count, src, dst, PackedMove.QUIET);
+				}
+				int doubleJump = dst + forward;
+				if (((1L << src) & startingRank) != 0L && ((1L << doubleJump) & allPieces) == 0L && ((1L << doubleJump) & legal) != 0L) {
+					moves[count++] = PackedMove.encode(src, doubleJump, PackedMove.DOUBLE_PUSH);
+				}
+			}
+
+			captures = DefenseUtils.getPawnDefense(1L << src, direction);
+			targets = captures & theirPieces & legal;
+			while (targets != 0L) {
+				count = addPawnMove(moves, count, src, Long.numberOfTrailingZeros(targets), PackedMove.CAPTURE);
+				targets &= targets - 1;
+			}
+
+			if (isEnPassant(pieces, context, src, enPassantSquare, captures)) {
+				moves[count++] = PackedMove.encode(src, enPassantSquare, PackedMove.CAPTURE | PackedMove.EN_PASSANT);
+			}
+			pawns &= pawns - 1;
+		}
+		return count;
+	}
+
+	private static int addPawnMove(int[] moves, int count, int src, int dst, int flags) {
+		if (dst >= 56 || dst < 8) {
+			for (PieceType promotion : PROMOTIONS) {
+				moves[count++] = PackedMove.encode(src, dst, promotion, flags | PackedMove.PROMOTION);
+			}
+			return count;
+		}
+		moves[count++] = PackedMove.encode(src, dst, flags);
+		return count;
+	}
+
+	/**
+	 * Returns whether the pawn on src may legally capture en passant.
+	 * The square is checked against the side to move, so that one
+	 * passed in raw, such as through PieceContainer.setPosition,
+	 * is judged the same by every generator.
+	 *
+	 * @param captures squares the pawn on src defends
+	 */
+	private static boolean isEnPassant(PieceBoard pieces, LegalityContext context, int src, int enPassantSquare, long captures) {
+		boolean isBlack = context.isBlack();
+		// the en passant square is on the sixth rank for white, the third for black,
+		// with the pawn that passed it standing just beyond
+		if (enPassantSquare < 0 || (enPassantSquare >>> 3) != (isBlack ? 2 : 5) || (captures & (1L << enPassantSquare)) == 0L) {
+			return false;
+		}
+		long passedPawn = 1L << (isBlack ? enPassantSquare + 8 : enPassantSquare - 8);
+		if ((pieces.get(isBlack ? PieceBoard.WHITE_PAWN : PieceBoard.BLACK_PAWN) & passedPawn) == 0L) {
+			return false;
+		}
+		return isLegalEnPassant(pieces, isBlack, context.getKingSquare(), src, enPassantSquare, context.getCheckMask());
+	}
+
+	/**
+	 * En passant removes two pieces from the same rank at once, so
+	 * the pin mask cannot judge it.  Instead, the capture is played
+	 * out on the occupancy and the king's rays are checked for sliders.
+	 */
+	private static boolean isLegalEnPassant(PieceBoard pieces, boolean isBlacksTurn, int kingSquare, int src, int dst, long checkMask) {
+		long capturedPawn = 1L << (isBlacksTurn ? dst + 8 : dst - 8);
+		if ((checkMask & ((1L << dst) | capturedPawn)) == 0L) {
+			return false;
+		}
+		if (kingSquare < 0) {
+			return true;
+		}
+		int them = isBlacksTurn ? PieceBoard.WHITE_OFFSET : PieceBoard.BLACK_OFFSET;
+		long occupancy = (pieces.getAllPieces() ^ (1L << src) ^ capturedPawn) | (1L << dst);
+		long queens = pieces.get(them + PieceType.QUEEN.ordinal());
+		long rooks = pieces.get(them + PieceType.ROOK.ordinal()) | queens;
+		long bishops = pieces.get(them + PieceType.BISHOP.ordinal()) | queens;
+		return (MagicUtils.getRookDefense(kingSquare, occupancy) & rooks) == 0L
+				&& (MagicUtils.getBishopDefense(kingSquare, occupancy) & bishops) == 0L;
+	}
+
+	/**
+	 * Returns the squares the king may castle to, which
+	 * must not be asked while the king is in check.
+	 */
+	private static long getCastleDestinations(PieceBoard pieces, boolean isBlacksTurn, int castlingRights, long allPieces, long enemyDefense) {
+		int kingSquare = isBlacksTurn ? E8 : E1;
+		int us = isBlacksTurn ? PieceBoard.BLACK_OFFSET : PieceBoard.WHITE_OFFSET;
+		long rooks = pieces.get(us + PieceType.ROOK.ordinal());
+		if ((pieces.get(us + PieceType.KING.ordinal()) & (1L << kingSquare)) == 0L) {
+			return 0L;
+		}
+		int kingSide = isBlacksTurn ? PieceContainer.CASTLE_H8 : PieceContainer.CASTLE_H1;
+		int queenSide = isBlacksTurn ? PieceContainer.CASTLE_A8 : PieceContainer.CASTLE_A1;
+		long destinations = 0L;
+
+		// h-side: the king passes over f and lands on g, and the rook starts on h
+		long between = (1L << (kingSquare - 1)) | (1L << (kingSquare - 2));
+		if ((castlingRights & kingSide) != 0 && (rooks & (1L << (kingSquare - 3))) != 0L
+				&& (allPieces & between) == 0L && (enemyDefense & between) == 0L) {
+			destinations |= 1L << (kingSquare - 2);
+		}
+
+		// a-side: b, c and d must be empty, the king passes over d and lands on c
+		between = (1L << (kingSquare + 1)) | (1L << (kingSquare + 2));
+		long empty = between | (1L << (kingSquare + 3));
+		if ((castlingRights & queenSide) != 0 && (rooks & (1L << (kingSquare + 4))) != 0L
+				&& (allPieces & empty) == 0L && (enemyDefense & between) == 0L) {
+			destinations |= 1L << (kingSquare + 2);
+		}
+		return destinations;
+	}
+
+	/**
+	 * Returns the pieces of the side to move that are pinned to their king
+	 * by an enemy rook, bishop or queen.
+	 */
+	static long getPinnedPieces(PieceBoard pieces, int kingSquare, int them, long ourPieces, long theirPieces) {
+		long queens = pieces.get(them + PieceType.QUEEN.ordinal());
+		long rooks = pieces.get(them + PieceType.ROOK.ordinal()) | queens;
+		long bishops = pieces.get(them + PieceType.BISHOP.ordinal()) | queens;
+		long pinners = (MagicUtils.getRookDefense(kingSquare, theirPieces) & rooks)
+				| (MagicUtils.getBishopDefense(kingSquare, theirPieces) & bishops);
+
+		long pinned = 0L;
+		long between;
+		while (pinners != 0L) {
+			between = RayUtils.getConnectingRayForSquares(kingSquare, Long.numberOfTrailingZeros(pinners)) & (ourPieces | theirPieces);
+			if (Long.bitCount(between) == 1 && (between & ourPieces) != 0L) {
+				pinned |= between;
+			}
+			pinners &= pinners - 1;
+		}
+		return pinned;
+	}
+
+	/**
+	 * Returns the enemy pieces attacking square, given the occupancy allPieces.
+	 *
+	 * @param pieces the board
+	 * @param square the square under attack
+	 * @param isBlack whether the defending side is black
+	 * @param allPieces occupancy used to block sliding pieces
+	 * @return attackers
+	 */
+	public static long getAttackers(PieceBoard pieces, int square, boolean isBlack, long allPieces) {
+		int them = isBlack ? PieceBoard.WHITE_OFFSET : PieceBoard.BLACK_OFFSET;
+		long position = 1L << square;
+		long queens = pieces.get(them + PieceType.QUEEN.ordinal());
+		return (DefenseUtils.getPawnDefense(position, isBlack ? 4 : 0) & pieces.get(them + PieceType.PAWN.ordinal()))
+				| (DefenseUtils.getKnightDefense(position) & pieces.get(them + PieceType.KNIGHT.ordinal()))
+				| (DefenseUtils.getKingDefense(position) & pieces.get(them + PieceType.KING.ordinal()))
+				| (MagicUtils.getRookDefense(square, allPieces) & (pieces.get(them + PieceType.ROOK.ordinal()) | queens))
+				| (MagicUtils.getBishopDefense(square, allPieces) & (pieces.get(them + PieceType.BISHOP.ordinal()) | queens));
+	}
+
+	/**
+	 * Returns every square defended by the pieces at offset
+	 * (PieceBoard.BLACK_OFFSET or WHITE_OFFSET), with sliders
+	 * blocked by allPieces instead of the board's own occupancy.
+	 */
+	static long getDefense(PieceBoard pieces, int offset, long allPieces) {
+		long defense = 0L;
+		int direction = offset == PieceBoard.BLACK_OFFSET ? 4 : 0;
+		long board;
+
+		board = pieces.get(offset + PieceType.PAWN.ordinal());
+		while (board != 0L) {
+			defense |= DefenseUtils.getPawnDefense(board & -board, direction);
+			board &= board - 1;
+		}
+		board = pieces.get(offset + PieceType.KNIGHT.ordinal());
+		while (board != 0L) {
+			defense |= DefenseUtils.getKnightDefense(board & -board);
+			board &= board - 1;
+		}
+		board = pieces.get(offset + PieceType.KING.ordinal());
+		while (board != 0L) {
+			defense |= DefenseUtils.getKingDefense(board & -board);
+			board &= board - 1;
+		}
+		long queens = pieces.get(offset + PieceType.QUEEN.ordinal());
+		board = pieces.get(offset + PieceType.ROOK.ordinal()) | queens;
+		while (board != 0L) {
+			defense |= MagicUtils.getRookDefense(Long.numberOfTrailingZeros(board), allPieces);
+			board &= board - 1;
+		}
+		board = pieces.get(offset + PieceType.BISHOP.ordinal()) | queens;
+		while (board != 0L) {
+			defense |= MagicUtils.getBishopDefense(Long.numberOfTrailingZeros(board), allPieces);
+			board &= board - 1;
+		}
+		return defense;
+	}
+}
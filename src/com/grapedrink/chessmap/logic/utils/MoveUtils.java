@@ -1,8 +1,6 @@
 package com.grapedrink.chessmap.logic.utils;
 
-import java.util.HashMap;
-import java.util.Map;
-
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
 import com.grapedrink.chessmap.logic.bitboards.PieceType;
 import com.grapedrink.chessmap.logic.history.Turn;
 
@@ -11,7 +9,7 @@ public class MoveUtils {
 	private MoveUtils() {}
 	
 	/* does not include castling */
-	public static long getValidMoves(long position, Map<String, Long> pieces, Turn mostRecent) {
+	public static long getValidMoves(long position, PieceBoard pieces, Turn mostRecent) {
 		long myPieces = PieceUtils.getFriendlyPieces(position, pieces);
 		PieceType type = PieceUtils.getPieceType(position, pieces);
 		
@@ -29,13 +27,13 @@ public class MoveUtils {
 		return GameUtils.isPinned(position, pieces) ? moves & BoardUtils.getConnectingRay(position, friendlyKing) : moves;
 	}
 	
-	private static long getValidKingMoves(long position, Map<String, Long> pieces) {
-		return BoardUtils.getAdjacentSquares(position)
+	private static long getValidKingMoves(long position, PieceBoard pieces) {
+		return DefenseUtils.getKingDefense(position)
 				& ~DefenseUtils.getDefendedSquaresEnemyTeam(position, pieces)
 		        & ~PieceUtils.getFriendlyPieces(position, pieces);
 	}
 
-	private static long getEnPassant(long position, Map<String, Long> pieces, Turn mostRecent) {
+	private static long getEnPassant(long position, PieceBoard pieces, Turn mostRecent) {
 		if (mostRecent == null || PieceUtils.isPieceCode(mostRecent.getSrc())) {
 			return 0L;
 		}
@@ -56,7 +54,26 @@ public class MoveUtils {
 		return 0L;
 	}
 
-	private static long getPawnMovesWithoutEnPassant(long position, Map<String, Long> pieces) {
+	/**
+	 * Returns the square a pawn could capture onto en passant,
+	 * given the most recent turn, or -1 if there is none.
+	 * 
+	 * @param pieces
+	 * @param mostRecent most recent turn, or null
+	 * @return en passant square index
+	 */
+	public static int getEnPassantSquare(PieceBoard pieces, Turn mostRecent) {
+		if (mostRecent == null || PieceUtils.isPieceCode(mostRecent.getSrc())) {
+			return -1;
+		}
+		int src = ConvertUtils.getPositionAsSquare(mostRecent.getSrc());
+		int dst = ConvertUtils.getPositionAsSquare(mostRecent.getDst());
+		boolean rankShiftIsTwo = Math.abs(dst - src) == 16;
+		boolean wasPawn = ((1L << dst) & PieceUtils.getPawnStructure(pieces)) != 0L;
+		return rankShiftIsTwo && wasPawn ? (src + dst) >>> 1 : -1;
+	}
+
+	private static long getPawnMovesWithoutEnPassant(long position, PieceBoard pieces) {
 		long allPieces = PieceUtils.getAllPieces(pieces);
 		int direction = PieceUtils.getPawnDirection(position, pieces);
 		
@@ -79,40 +96,31 @@ public class MoveUtils {
 		return moveset | (myAttacks & enemyPieces);
 	}
 
-	public static long getCheckBlockingMoves(long position, final Map<String, Long> pieces) {
+	public static long getCheckBlockingMoves(long position, final PieceBoard pieces) {
 		long moves = 0L;
-		Map<String, Long> copyOfPieces = new HashMap<>();
-		for (String key : pieces.keySet()) {
-			copyOfPieces.put(key, pieces.get(key));
-		}
-		String myPieceCode = PieceUtils.getPieceCode(position, copyOfPieces);
-		final long myPieceTypeWithoutMe = pieces.get(myPieceCode) ^ position;
+		PieceBoard copyOfPieces = pieces.copy();
+		int myIndex = copyOfPieces.getIndex(position);
+		final long myPieceTypeWithoutMe = pieces.get(myIndex) ^ position;
 		
-		long removedEnemy;
-		boolean enemyWasRemoved;
-		String enemyName = null;
+		int enemyIndex;
+		long potentialMove;
 		
-		for (long potentialMove : ConvertUtils.getPositionsAsLongs(getValidMoves(position, copyOfPieces, null))) {
-			
-            removedEnemy = 0L;
-            enemyWasRemoved = false;
+		SquareIterator potentialMoves = new SquareIterator(getValidMoves(position, copyOfPieces, null));
+		while (potentialMoves.hasNext()) {
+			potentialMove = potentialMoves.nextPosition();
 			
-			// handle captures.  If I capture a piece it needs to be removed TODO
-			for (String pc : copyOfPieces.keySet()) {
-				if ((copyOfPieces.get(pc) & potentialMove) != 0L) {
-					enemyWasRemoved = true;
-					removedEnemy = potentialMove;
-					enemyName = pc;
-					copyOfPieces.put(enemyName, copyOfPieces.get(enemyName) ^ removedEnemy);
-				}
+			// handle captures.  If I capture a piece it needs to be removed
+			enemyIndex = copyOfPieces.getIndex(potentialMove);
+			if (enemyIndex >= 0) {
+				copyOfPieces.set(enemyIndex, copyOfPieces.get(enemyIndex) ^ potentialMove);
 			}
-			copyOfPieces.put(myPieceCode, myPieceTypeWithoutMe | potentialMove);
+			copyOfPieces.set(myIndex, myPieceTypeWithoutMe | potentialMove);
 			
 			if (!GameUtils.isInCheck(potentialMove, copyOfPieces)) {
 				moves |= potentialMove;
 			}
-			if (enemyWasRemoved) {
-				copyOfPieces.put(enemyName, copyOfPieces.get(enemyName) | removedEnemy);
+			if (enemyIndex >= 0) {
+				copyOfPieces.set(enemyIndex, copyOfPieces.get(enemyIndex) | potentialMove);
 			}
 		}
 		return moves;
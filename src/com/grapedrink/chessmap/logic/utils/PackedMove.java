@@ -0,0 +1,110 @@
+package com.grapedrink.chessmap.logic.utils;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceType;
+
+/**
+ * Encodes a move into a single int, so that move lists
+ * can be held in an int[] instead of a collection of objects.
+ *
+ * Bits  0-5  : source square index
+ * Bits  6-11 : destination square index
+ * Bits 12-14 : promotion PieceType ordinal (only meaningful with PROMOTION)
+ * Bits 16-20 : flags
+ *
+ * ex: a white pawn capturing from e7 to d8 and promoting to a knight is
+ *     encode(e7, d8, PieceType.KNIGHT, CAPTURE | PROMOTION)
+ */
+public class PackedMove {
+
+	public static final int QUIET       = 0;
+	public static final int CAPTURE     = 1 << 0;
+	public static final int DOUBLE_PUSH = 1 << 1;
+	public static final int EN_PASSANT  = 1 << 2;
+	public static final int CASTLE      = 1 << 3;
+	public static final int PROMOTION   = 1 << 4;
+
+	private static final int SQUARE_MASK = 0x3F;
+	private static final int PROMOTION_SHIFT = 12;
+	private static final int PROMOTION_MASK = 0x7;
+	private static final int FLAG_SHIFT = 16;
+
+	private static final PieceType[] TYPES = PieceType.values();
+
+	private PackedMove() {}
+
+	public static int encode(int src, int dst, int flags) {
+		return src | (dst << 6) | (flags << FLAG_SHIFT);
+	}
+
+	public static int encode(int src, int dst, PieceType promotion, int flags) {
+		return encode(src, dst, flags) | (promotion.ordinal() << PROMOTION_SHIFT);
+	}
+
+	public static int getSrc(int move) {
+		return move & SQUARE_MASK;
+	}
+
+	public static int getDst(int move) {
+		return (move >>> 6) & SQUARE_MASK;
+	}
+
+	public static int getFlags(int move) {
+		return move >>> FLAG_SHIFT;
+	}
+
+	/**
+	 * Returns the piece a pawn promotes to,
+	 * or PieceType.NONE if this move is not a promotion.
+	 *
+	 * @param move
+	 * @return promotion
+	 */
+	public static PieceType getPromotion(int move) {
+		if (!isPromotion(move)) {
+			return PieceType.NONE;
+		}
+		return TYPES[(move >>> PROMOTION_SHIFT) & PROMOTION_MASK];
+	}
+
+	public static boolean isCapture(int move) {
+		return (getFlags(move) & CAPTURE) != 0;
+	}
+
+	public static boolean isEnPassant(int move) {
+		return (getFlags(move) & EN_PASSANT) != 0;
+	}
+
+	public static boolean isCastle(int move) {
+		return (getFlags(move) & CASTLE) != 0;
+	}
+
+	public static boolean isPromotion(int move) {
+		return (getFlags(move) & PROMOTION) != 0;
+	}
+
+	public static boolean isDoublePush(int move) {
+		return (getFlags(move) & DOUBLE_PUSH) != 0;
+	}
+
+	/**
+	 * Returns the move in coordinate notation, such as "e2e4" or "e7e8q".
+	 *
+	 * @param move
+	 * @return move as String
+	 */
+	public static String toString(int move) {
+		String squares = ConvertUtils.getSquareAsString(getSrc(move)) + ConvertUtils.getSquareAsString(getDst(move));
+		switch (getPromotion(move)) {
+		case QUEEN:
+			return squares + "q";
+		case ROOK:
+			return squares + "r";
+		case BISHOP:
+			return squares + "b";
+		case KNIGHT:
+			return squares + "n";
+		default:
+			return squares;
+		}
+	}
+}
@@ -1,95 +1,122 @@
 package com.grapedrink.chessmap.logic.utils;
 
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 import com.grapedrink.chessmap.logic.bitboards.InputValidation;
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
 import com.grapedrink.chessmap.logic.bitboards.PieceColor;
 import com.grapedrink.chessmap.logic.bitboards.PieceType;
 
 public class PieceUtils {
 
 	private PieceUtils() {}
-	
-	public static final String[] PIECE_CODES = {"bB", "bK", "bN", "bP", "bQ", "bR", "wB", "wK", "wN", "wP", "wQ", "wR"};
 
-	private static long _getPcs(Map<String, Long> pieces, int start, int stop) {
-		long pcs = 0L;
-		for (int i=start; i<stop; ++i) {
-			pcs |= pieces.get(PIECE_CODES[i]);
-		}
-		return pcs;
-	}
+	public static final String[] PIECE_CODES = {"bB", "bK", "bN", "bP", "bQ", "bR", "wB", "wK", "wN", "wP", "wQ", "wR"};
 
-	public static boolean isBlack(long position, Map<String, Long> pieces) {
+	public static boolean isBlack(long position, PieceBoard pieces) {
 		InputValidation.validatePosition(position);
-		if ((getAllPieces(pieces) & position) == 0L) {
+		if ((pieces.getAllPieces() & position) == 0L) {
 			throw new IllegalArgumentException();
 		}
-		return PieceColor.BLACK.equals(getPieceColor(position, pieces));
+		return (pieces.getBlackPieces() & position) != 0L;
 	}
-	
+
 	public static PieceColor getPieceColor(String pieceCode) {
 		return PieceColor.get(pieceCode);
 	}
 
-	public static PieceColor getPieceColor(long position, Map<String, Long> pieces) {
-		String pieceCode = getPieceCode(position, pieces);
-		return getPieceColor(pieceCode);
+	public static PieceColor getPieceColor(long position, PieceBoard pieces) {
+		if (isUnoccupied(position, pieces)) {
+			return PieceColor.NEITHER;
+		}
+		if ((pieces.getBlackPieces() & position) == position) {
+			return PieceColor.BLACK;
+		}
+		if ((pieces.getWhitePieces() & position) == position) {
+			return PieceColor.WHITE;
+		}
+		return PieceColor.NEITHER;
 	}
 
 	public static PieceType getPieceType(String pieceCode) {
 		return PieceType.get(pieceCode);
 	}
 
-	public static PieceType getPieceType(long position, Map<String, Long> pieces) {
-		String pieceCode = getPieceCode(position, pieces);
-		return getPieceType(pieceCode);
+	public static PieceType getPieceType(long position, PieceBoard pieces) {
+		int index = pieces.getIndex(position);
+		return index < 0 ? PieceType.NONE : PieceBoard.getType(index);
 	}
-	
+
 	/**
 	 * Returns the PieceCode at position, or null if no piece is present.
-	 * 
+	 *
 	 * @param position
 	 * @param pieces
 	 * @return
 	 */
-	public static String getPieceCode(long position, Map<String, Long> pieces) {
-		for (String pieceCode : pieces.keySet()) {
-			if ((pieces.get(pieceCode) & position) == position) {
-				return pieceCode;
-			}
-		}
-		return null;
+	public static String getPieceCode(long position, PieceBoard pieces) {
+		int index = pieces.getIndex(position);
+		return index < 0 ? null : PieceBoard.getPieceCode(index);
 	}
 
-	public static long getFriendlyPieces(long position, Map<String, Long> pieces) {
+	/**
+	 * Returns the PieceCode on square, or null if no piece is present.
+	 *
+	 * @param square square index, 0 through 63
+	 * @param pieces
+	 * @return
+	 */
+	public static String getPieceCodeForSquare(int square, PieceBoard pieces) {
+		return getPieceCode(1L << square, pieces);
+	}
+
+	/**
+	 * Returns the type of the piece on square, or NONE if no piece is present.
+	 *
+	 * @param square square index, 0 through 63
+	 * @param pieces
+	 * @return
+	 */
+	public static PieceType getPieceTypeForSquare(int square, PieceBoard pieces) {
+		return getPieceType(1L << square, pieces);
+	}
+
+	/**
+	 * Returns the color of the piece on square, or NEITHER if no piece is present.
+	 *
+	 * @param square square index, 0 through 63
+	 * @param pieces
+	 * @return
+	 */
+	public static PieceColor getPieceColorForSquare(int square, PieceBoard pieces) {
+		return getPieceColor(1L << square, pieces);
+	}
+
+	public static long getFriendlyPieces(long position, PieceBoard pieces) {
 		if (isUnoccupied(position, pieces)) {
 			return 0L;
 		}
-		int x = isBlack(position, pieces) ? 0 : 6;
-		return _getPcs(pieces, 0+x, 6+x);
+		return isBlack(position, pieces) ? pieces.getBlackPieces() : pieces.getWhitePieces();
 	}
 
-	private static boolean isUnoccupied(long position, Map<String, Long> pieces) {
-		return (0L == (position & getAllPieces(pieces)));
+	private static boolean isUnoccupied(long position, PieceBoard pieces) {
+		return (0L == (position & pieces.getAllPieces()));
 	}
 
-	public static long getEnemyPieces(long position, Map<String, Long> pieces) {
+	public static long getEnemyPieces(long position, PieceBoard pieces) {
 		if (isUnoccupied(position, pieces)) {
 			return 0L;
 		}
-		int x = isBlack(position, pieces) ? 6 : 0;
-		return _getPcs(pieces, 0+x, 6+x);
+		return isBlack(position, pieces) ? pieces.getWhitePieces() : pieces.getBlackPieces();
 	}
 
-	public static long getAllPieces(Map<String, Long> pieces) {
-		return _getPcs(pieces, 0, 12);
+	public static long getAllPieces(PieceBoard pieces) {
+		return pieces.getAllPieces();
 	}
 
-	public static long getPawnStructure(Map<String, Long> pieces) {
-		return pieces.get("bP") | pieces.get("wP");
+	public static long getPawnStructure(PieceBoard pieces) {
+		return pieces.get(PieceBoard.BLACK_PAWN) | pieces.get(PieceBoard.WHITE_PAWN);
 	}
 
 	/**
@@ -99,41 +126,41 @@ public class PieceUtils {
 	 * @param pieces
 	 * @return
 	 */
-	public static int getPawnDirection(long position, Map<String, Long> pieces) {
+	public static int getPawnDirection(long position, PieceBoard pieces) {
 		return isBlack(position, pieces) ? 4 : 0;
 	}
 
 	/**
 	 * Returns the position of the king who's team is at position.
 	 * Returns 0L if no piece is at position.
-	 * 
+	 *
 	 * Throws IllegalArgumentException if the position is invalid
-	 * 
+	 *
 	 * @param position
 	 * @param pieces
 	 * @return
 	 */
-	public static long getFriendlyKing(long position, Map<String, Long> pieces) throws IllegalArgumentException {
+	public static long getFriendlyKing(long position, PieceBoard pieces) throws IllegalArgumentException {
 		InputValidation.validatePosition(position);
-		switch (PieceColor.get(PieceUtils.getPieceCode(position, pieces))) {
+		switch (getPieceColor(position, pieces)) {
 		case BLACK:
-			return pieces.get("bK");
+			return pieces.get(PieceBoard.BLACK_KING);
 		case WHITE:
-			return pieces.get("wK");
+			return pieces.get(PieceBoard.WHITE_KING);
 		default:
 			return 0L;
 		}
 	}
-	
+
 	/**
 	 * Returns a set of longs which represent the positions of this position's
 	 * teammates.
-	 * 
+	 *
 	 * @param position
 	 * @param pieces
 	 * @return
 	 */
-	public static Set<Long> getIndividualPieces(long position, Map<String, Long> pieces) {
+	public static Set<Long> getIndividualPieces(long position, PieceBoard pieces) {
 		Set<Long> individualPieces = new HashSet<>();
 		long myPieces = getFriendlyPieces(position, pieces);
 		long currentPosition;
@@ -146,13 +173,13 @@ public class PieceUtils {
 		return individualPieces;
 	}
 
-	public static long getEnemyKing(long position, Map<String, Long> pieces) {
-		return isBlack(position, pieces) ? pieces.get("wK") : pieces.get("bK");
+	public static long getEnemyKing(long position, PieceBoard pieces) {
+		return isBlack(position, pieces) ? pieces.get(PieceBoard.WHITE_KING) : pieces.get(PieceBoard.BLACK_KING);
 	}
 
-	public static long getSlidingPieces(Map<String, Long> pieces, PieceColor color) {
-		int x = PieceColor.BLACK.equals(color) ? 0 : 6;
-		return pieces.get(PIECE_CODES[0+x]) | pieces.get(PIECE_CODES[4+x]) | pieces.get(PIECE_CODES[5+x]);
+	public static long getSlidingPieces(PieceBoard pieces, PieceColor color) {
+		int x = PieceColor.BLACK.equals(color) ? PieceBoard.BLACK_OFFSET : PieceBoard.WHITE_OFFSET;
+		return pieces.get(PieceBoard.BLACK_BISHOP+x) | pieces.get(PieceBoard.BLACK_QUEEN+x) | pieces.get(PieceBoard.BLACK_ROOK+x);
 	}
 
 	public static boolean isPieceCode(String s) {
@@ -6,18 +6,104 @@ public class RayUtils {
 
 	private RayUtils() {}
 	
+	/**
+	 * DIRECTIONAL_RAYS[direction][square] is the ray
+	 * emanating from square in direction, not including square.
+	 */
+	private static final long[][] DIRECTIONAL_RAYS = new long[8][64];
+	
+	/**
+	 * CONNECTING_RAYS[src][dst] is the set of squares strictly
+	 * between src and dst, or 0L if they share no ray.
+	 */
+	private static final long[][] CONNECTING_RAYS = new long[64][64];
+	
+	static {
+		for (int direction=0; direction<8; ++direction) {
+			for (int square=0; square<64; ++square) {
+				DIRECTIONAL_RAYS[direction][square] = getDirectionalRay(1L << square, direction);
+			}
+		}
+		int direction;
+		for (int src=0; src<64; ++src) {
+			for (int dst=0; dst<64; ++dst) {
+				direction = getConnectingDirectionForSquares(src, dst);
+				if (direction >= 0) {
+					CONNECTING_RAYS[src][dst] = DIRECTIONAL_RAYS[direction][src] & DIRECTIONAL_RAYS[(direction + 4) & 7][dst];
+				}
+			}
+		}
+	}
 	
-	public static int getConnectingDirection(long src, long dst) {
-		if ((BoardUtils.getRank(src) & dst) == dst) {
+	/**
+	 * Returns the direction travelled from src to reach dst,
+	 * or -1 if they do not share a rank, file, or diagonal.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @return direction
+	 * @throws IllegalArgumentException
+	 */
+	public static int getConnectingDirection(long src, long dst) throws IllegalArgumentException {
+		InputValidation.validatePosition(src);
+		InputValidation.validatePosition(dst);
+		if (src == 0L || dst == 0L) {
+			return -1;
+		}
+		return getConnectingDirectionForSquares(Long.numberOfTrailingZeros(src), Long.numberOfTrailingZeros(dst));
+	}
+	
+	/**
+	 * Returns the direction travelled from src to reach dst,
+	 * or -1 if they are the same square or do not share a
+	 * rank, file, or diagonal.
+	 * 
+	 * @param src square index, 0 through 63
+	 * @param dst square index, 0 through 63
+	 * @return direction
+	 */
+	public static int getConnectingDirectionForSquares(int src, int dst) {
+		if (src == dst) {
+			return -1;
+		}
+		long destination = 1L << dst;
+		if ((BoardUtils.getRankForSquare(src) & destination) != 0L) {
 			return src > dst ? 2 : 6;
 		}
-		else if ((BoardUtils.getFile(src) & dst) == dst) {
+		else if ((BoardUtils.getFileForSquare(src) & destination) != 0L) {
 			return src < dst ? 0 : 4;
 		}
-		else if ((BoardUtils.getDiagonal(src) & dst) == dst) {
+		else if ((BoardUtils.getDiagonalForSquare(src) & destination) != 0L) {
 			return src < dst ? 1 : 5;
 		}
-		return src > dst ? 3 : 7;
+		else if ((BoardUtils.getAntiDiagonalForSquare(src) & destination) != 0L) {
+			return src > dst ? 3 : 7;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns the squares strictly between src and dst.
+	 * Returns 0L if the squares are disjoint.
+	 * 
+	 * @param src square index, 0 through 63
+	 * @param dst square index, 0 through 63
+	 * @return
+	 */
+	public static long getConnectingRayForSquares(int src, int dst) {
+		return CONNECTING_RAYS[src][dst];
+	}
+	
+	/**
+	 * Returns the ray of squares emanating from square
+	 * and travelling in direction, not including square.
+	 * 
+	 * @param square square index, 0 through 63
+	 * @param direction direction, 0 through 7
+	 * @return
+	 */
+	public static long getDirectionalRayForSquare(int square, int direction) {
+		return DIRECTIONAL_RAYS[direction][square];
 	}
 	
 	/**
@@ -34,27 +120,10 @@ public class RayUtils {
 	public static long getConnectingRay(long src, long dst) throws IllegalArgumentException {
 		InputValidation.validatePosition(src);
 		InputValidation.validatePosition(dst);
-		if ((BoardUtils.getRank(src) & dst) == dst) {
-			int srcdir = src > dst ? 2 : 6;
-			int dstdir = src < dst ? 2 : 6;
-			return getDirectionalRay(src, srcdir) & getDirectionalRay(dst, dstdir); 
-		}
-		else if ((BoardUtils.getFile(src) & dst) == dst) {
-			int srcdir = src < dst ? 0 : 4;
-			int dstdir = src > dst ? 0 : 4;
-			return getDirectionalRay(src, srcdir) & getDirectionalRay(dst, dstdir); 
-		}
-		else if ((BoardUtils.getDiagonal(src) & dst) == dst) {
-			int srcdir = src < dst ? 1 : 5;
-			int dstdir = src > dst ? 1 : 5;
-			return getDirectionalRay(src, srcdir) & getDirectionalRay(dst, dstdir); 
+		if (src == 0L || dst == 0L) {
+			return 0L;
 		}
-		else if ((BoardUtils.getAntiDiagonal(src) & dst) == dst) {
-			int srcdir = src > dst ? 3 : 7;
-			int dstdir = src < dst ? 3 : 7;
-			return getDirectionalRay(src, srcdir) & getDirectionalRay(dst, dstdir); 
-		}
-		return 0L;
+		return getConnectingRayForSquares(Long.numberOfTrailingZeros(src), Long.numberOfTrailingZeros(dst));
 	}
 	
 	/**
@@ -85,14 +154,16 @@ public class RayUtils {
 	 * 
 	 * Returns 0L if this piece is at a border and direction extends off the board.
 	 * 
+	 * This walks the board one square at a time, and is used to build
+	 * and verify the lookup tables in MagicUtils.
+	 * 
 	 * @param position
-	 * @param pieces
+	 * @param allPieces
 	 * @param direction
 	 * @return
-	public static long getDefendedRay(final long position, final Map<String, Long> pieces, final int direction) {
-		InputValidation.validatePosition(position);
+	 */
+	public static long getDefendedRay(final long position, final long allPieces, final int direction) {
 		long ray = 0L;
-		long allPieces = PieceUtils.getAllPieces(pieces);
 		long iterator = position;
 		while (BoardUtils.hasNeighboringSquare(iterator, direction)) {
 			iterator = BoardUtils.getNeighboringSquare(iterator, direction);
@@ -103,6 +174,5 @@ public class RayUtils {
 		}
 		return ray;
 	}
-	 */
 	
 }
@@ -0,0 +1,112 @@
+package com.grapedrink.chessmap.logic.utils;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
+import com.grapedrink.chessmap.logic.bitboards.PieceType;
+
+/**
+ * Reads moves written in Standard Algebraic Notation (SAN),
+ * such as "e4", "Nbd7", "exd6", "R1a3", "e8=Q+" or "O-O-O",
+ * by matching them against a list of legal moves.
+ */
+public class SanUtils {
+
+	private SanUtils() {}
+
+	/**
+	 * Returns the legal move that san describes.
+	 * 
+	 * @param san move in Standard Algebraic Notation
+	 * @param pieces position the move is played in
+	 * @param moves legal moves, as PackedMove ints
+	 * @param count number of legal moves
+	 * @return move
+	 * @throws IllegalArgumentException if san does not describe
+	 * exactly one of the legal moves
+	 */
+	public static int getMove(String san, PieceBoard pieces, int[] moves, int count) throws IllegalArgumentException {
+		String move = stripAnnotations(san);
+		if (move.startsWith("O-O") || move.startsWith("0-0")) {
+			char kingFile = move.length() == 3 ? 'g' : 'c';
+			return getOnlyMatch(san, moves, count, pieces, PieceType.KING, kingFile, -1, -1, PieceType.NONE, true);
+		}
+		
+		PieceType type = PieceType.PAWN;
+		int start = 0;
+		if (move.length() > 0 && Character.isUpperCase(move.charAt(0))) {
+			type = PieceType.get(move.charAt(0));
+			start = 1;
+		}
+		
+		PieceType promotion = PieceType.NONE;
+		int end = move.length();
+		if (end > 1 && Character.isUpperCase(move.charAt(end - 1))) {
+			promotion = PieceType.get(move.charAt(end - 1));
+			end -= move.charAt(end - 2) == '=' ? 2 : 1;
+		}
+		
+		if (PieceType.NONE.equals(type) || end - start < 2 || !isSquare(move.charAt(end - 2), move.charAt(end - 1))) {
+			throw new IllegalArgumentException(String.format("Invalid SAN move.  Move = {%s}", san));
+		}
+		int dst = ConvertUtils.getPositionAsSquare(move.substring(end - 2, end));
+		
+		int file = -1;
+		int rank = -1;
+		for (int i=start; i<end-2; ++i) {
+			char c = move.charAt(i);
+			if (c >= 'a' && c <= 'h') {
+				file = c;
+			}
+			else if (c >= '1' && c <= '8') {
+				rank = c;
+			}
+			else if (c != 'x' && c != ':' && c != '-') {
+				throw new IllegalArgumentException(String.format("Invalid SAN move.  Move = {%s}", san));
+			}
+		}
+		return getOnlyMatch(san, moves, count, pieces, type, file, rank, dst, promotion, false);
+	}
+
+	private static int getOnlyMatch(String san, int[] moves, int count, PieceBoard pieces, PieceType type,
+			int file, int rank, int dst, PieceType promotion, boolean isCastle) throws IllegalArgumentException {
+		int match = -1;
+		for (int i=0; i<count; ++i) {
+			int move = moves[i];
+			if (isCastle != PackedMove.isCastle(move) || !promotion.equals(PackedMove.getPromotion(move))) {
+				continue;
+			}
+			String source = ConvertUtils.getSquareAsString(PackedMove.getSrc(move));
+			String destination = ConvertUtils.getSquareAsString(PackedMove.getDst(move));
+			boolean isMatch = isCastle
+					? destination.charAt(0) == file
+					: PackedMove.getDst(move) == dst
+						&& (file < 0 || source.charAt(0) == file)
+						&& (rank < 0 || source.charAt(1) == rank)
+						&& type.equals(PieceUtils.getPieceTypeForSquare(PackedMove.getSrc(move), pieces));
+			if (isMatch) {
+				if (match >= 0) {
+					throw new IllegalArgumentException(String.format("Ambiguous SAN move.  Move = {%s}", san));
+				}
+				match = move;
+			}
+		}
+		if (match < 0) {
+			throw new IllegalArgumentException(String.format("Illegal SAN move.  Move = {%s}", san));
+		}
+		return match;
+	}
+
+	private static boolean isSquare(char file, char rank) {
+		return file >= 'a' && file <= 'h' && rank >= '1' && rank <= '8';
+	}
+
+	/**
+	 * Removes check, mate and annotation marks such as "+", "#", "!?".
+	 */
+	private static String stripAnnotations(String san) {
+		int end = san.length();
+		while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+			--end;
+		}
+		return san.substring(0, end);
+	}
+}
@@ -0,0 +1,73 @@
+package com.grapedrink.chessmap.logic.utils;
+
+/**
+ * A cursor over the squares set in a bitboard, from square 0 upwards.
+ * 
+ * Unlike ConvertUtils.getPositionsAsLongs, this does not build a Set,
+ * box any Longs, or create any Strings.  A single iterator can be
+ * reused across bitboards by calling reset.
+ * 
+ * ex:
+ *     SquareIterator squares = new SquareIterator(pieces);
+ *     while (squares.hasNext()) {
+ *         long position = squares.nextPosition();
+ *         ...
+ *     }
+ */
+public class SquareIterator {
+
+	private long remaining;
+
+	public SquareIterator() {
+		remaining = 0L;
+	}
+
+	public SquareIterator(long positions) {
+		remaining = positions;
+	}
+
+	/**
+	 * Restarts this iterator over a new set of positions.
+	 * 
+	 * @param positions
+	 * @return this iterator
+	 */
+	public SquareIterator reset(long positions) {
+		remaining = positions;
+		return this;
+	}
+
+	public boolean hasNext() {
+		return remaining != 0L;
+	}
+
+	/**
+	 * Returns the index of the next square, and advances past it.
+	 * 
+	 * @return square index, 0 through 63
+	 * @throws IndexOutOfBoundsException if no squares remain
+	 */
+	public int nextSquare() throws IndexOutOfBoundsException {
+		if (remaining == 0L) {
+			throw new IndexOutOfBoundsException();
+		}
+		int square = Long.numberOfTrailingZeros(remaining);
+		remaining &= remaining - 1;
+		return square;
+	}
+
+	/**
+	 * Returns the next square as a single-bit long, and advances past it.
+	 * 
+	 * @return position
+	 * @throws IndexOutOfBoundsException if no squares remain
+	 */
+	public long nextPosition() throws IndexOutOfBoundsException {
+		if (remaining == 0L) {
+			throw new IndexOutOfBoundsException();
+		}
+		long position = Long.lowestOneBit(remaining);
+		remaining ^= position;
+		return position;
+	}
+}
@@ -0,0 +1,115 @@
+package com.grapedrink.chessmap.logic.utils;
+
+import java.util.Random;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
+
+/**
+ * Random keys for Zobrist hashing.  A position's key is the XOR
+ * of the key for every piece on its square, the key for the castles
+ * still allowed, and the keys for the side to move and en passant file.
+ * Since XOR is its own inverse, a move updates the key by XORing
+ * in only the squares and rights it changed.
+ * 
+ * The keys come from a fixed seed, so they are the same on every run.
+ */
+public class ZobristUtils {
+
+	private static final long SEED = 0x6368657373L;
+
+	/**
+	 * PIECE_KEYS[index][square], with index as in PieceBoard
+	 */
+	private static final long[][] PIECE_KEYS = new long[PieceBoard.SIZE][64];
+
+	/**
+	 * CASTLING_KEYS[castlingRights], for every combination
+	 * of PieceContainer.CASTLE_* flags
+	 */
+	private static final long[] CASTLING_KEYS = new long[16];
+
+	private static final long[] EN_PASSANT_KEYS = new long[8];
+
+	private static final long BLACK_TO_MOVE_KEY;
+
+	static {
+		Random random = new Random(SEED);
+		for (int index=0; index<PieceBoard.SIZE; ++index) {
+			for (int square=0; square<64; ++square) {
+				PIECE_KEYS[index][square] = random.nextLong();
+			}
+		}
+		for (int rights=0; rights<16; ++rights) {
+			CASTLING_KEYS[rights] = random.nextLong();
+		}
+		for (int file=0; file<8; ++file) {
+			EN_PASSANT_KEYS[file] = random.nextLong();
+		}
+		BLACK_TO_MOVE_KEY = random.nextLong();
+	}
+
+	private ZobristUtils() {}
+
+	/**
+	 * @param index piece index, as in PieceBoard
+	 * @param square square index, 0 through 63
+	 * @return key for the piece on square
+	 */
+	public static long getPieceKey(int index, int square) {
+		return PIECE_KEYS[index][square];
+	}
+
+	/**
+	 * Returns the XOR of the keys for every square in positions,
+	 * so that a piece's key can be updated by its changed squares.
+	 * 
+	 * @param index piece index, as in PieceBoard
+	 * @param positions
+	 * @return key for the piece on positions
+	 */
+	public static long getPieceKey(int index, long positions) {
+		long key = 0L;
+		long remaining = positions;
+		while (remaining != 0L) {
+			key ^= PIECE_KEYS[index][Long.numberOfTrailingZeros(remaining)];
+			remaining &= remaining - 1;
+		}
+		return key;
+	}
+
+	/**
+	 * @param castlingRights PieceContainer.CASTLE_* flags
+	 * @return key for the castles allowed
+	 */
+	public static long getCastlingKey(int castlingRights) {
+		return CASTLING_KEYS[castlingRights];
+	}
+
+	/**
+	 * @param square en passant square index, or -1 if there is none
+	 * @return key for the en passant file, or 0L if there is none
+	 */
+	public static long getEnPassantKey(int square) {
+		return square < 0 ? 0L : EN_PASSANT_KEYS[square & 7];
+	}
+
+	public static long getBlackToMoveKey() {
+		return BLACK_TO_MOVE_KEY;
+	}
+
+	/**
+	 * Computes the key for pieces and castlingRights from scratch.
+	 * The side to move and en passant keys are not included.
+	 * 
+	 * @param pieces
+	 * @param castlingRights PieceContainer.CASTLE_* flags
+	 * @return key
+	 */
+	public static long getKey(PieceBoard pieces, int castlingRights) {
+		long key = getCastlingKey(castlingRights);
+		for (int index=0; index<PieceBoard.SIZE; ++index) {
+			key ^= getPieceKey(index, pieces.get(index));
+		}
+		return key;
+	}
+}
@@ -0,0 +1,124 @@
+package com.grapedrink.chessmap.ui.analysis;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs analyses for the GUI on a thread of their own, so that the
+ * event dispatch thread only makes moves and paints.  Analyses run
+ * one at a time, and only the latest one matters: submitting another
+ * cancels the one before it, and a result is handed back, on the
+ * event dispatch thread, only if nothing was submitted after it.
+ *
+ * Analyses should work on a Position rather than on the logic engine,
+ * which the event dispatch thread goes on changing.  A long analysis
+ * should return once its thread is interrupted.
+ */
+public class AnalysisExecutor {
+
+	private final ExecutorService executor;
+
+	/**
+	 * Counts submissions and cancellations.  A result is wanted
+	 * only while this still holds the value its analysis saw.
+	 */
+	private final AtomicLong generation;
+
+	/**
+	 * Only read and written on the event dispatch thread
+	 */
+	private Future<?> pending;
+
+	public AnalysisExecutor() {
+		this.executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "chessmap-analysis");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.generation = new AtomicLong();
+	}
+
+	/**
+	 * Cancels the pending analysis, if any, and queues this one.
+	 * Call from the event dispatch thread.
+	 *
+	 * @param analysis run on the analysis thread
+	 * @param onResult run on the event dispatch thread with the result,
+	 *        unless another analysis was submitted or cancel was called first,
+	 *        or the analysis threw
+	 */
+	public <T> void submit(Callable<T> analysis, Consumer<T> onResult) {
+		submit(publish -> publish.accept(analysis.call()), onResult);
+	}
+
+	/**
+	 * Like submit, for analyses that hand back results as they go,
+	 * such as a search reporting each depth.  onResult is run with
+	 * every result published until the analysis is cancelled.
+	 *
+	 * @param analysis run on the analysis thread
+	 * @param onResult run on the event dispatch thread with each result
+	 */
+	public <T> void submit(Analysis<T> analysis, Consumer<T> onResult) {
+		long id = nextGeneration();
+		pending = executor.submit(() -> {
+			if (generation.get() != id) {
+				return null;
+			}
+			analysis.run(result -> {
+				if (generation.get() == id) {
+					SwingUtilities.invokeLater(() -> {
+						if (generation.get() == id) {
+							onResult.accept(result);
+						}
+					});
+				}
+			});
+			return null;
+		});
+	}
+
+	/**
+	 * Interrupts the pending analysis and drops its result.
+	 * Call from the event dispatch thread.
+	 */
+	public void cancel() {
+		nextGeneration();
+	}
+
+	private long nextGeneration() {
+		long id = generation.incrementAndGet();
+		if (pending != null) {
+			pending.cancel(true);
+			pending = null;
+		}
+		return id;
+	}
+
+	/**
+	 * Cancels the pending analysis and stops the analysis thread.
+	 */
+	public void shutdown() {
+		cancel();
+		executor.shutdownNow();
+	}
+
+	/**
+	 * An analysis that publishes any number of results.
+	 */
+	@FunctionalInterface
+	public interface Analysis<T> {
+
+		/**
+		 * @param publish hands a result back to the event dispatch thread
+		 * @throws Exception
+		 */
+		void run(Consumer<T> publish) throws Exception;
+	}
+}
@@ -0,0 +1,112 @@
+package com.grapedrink.chessmap.ui.analysis;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.grapedrink.chessmap.game.ChessMapLogicEngine;
+import com.grapedrink.chessmap.logic.bitboards.GameStatus;
+import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.Position;
+import com.grapedrink.chessmap.logic.search.PrincipalVariation;
+import com.grapedrink.chessmap.logic.utils.ConvertUtils;
+
+/**
+ * What the GUI shows about a position besides its pieces:
+ * the squares each color defends, the net defender counts,
+ * whether the game is over and, once a search has reported,
+ * the best line found so far.
+ */
+public class PositionAnalysis {
+
+	private final PieceColor activePlayer;
+	private final GameStatus gameStatus;
+	private final Collection<String> whiteDefense;
+	private final Collection<String> blackDefense;
+	private final Map<String, Integer> netDefenseCount;
+	private final PrincipalVariation principalVariation;
+
+	private PositionAnalysis(PieceColor activePlayer, GameStatus gameStatus, Collection<String> whiteDefense,
+			Collection<String> blackDefense, Map<String, Integer> netDefenseCount, PrincipalVariation principalVariation) {
+		this.activePlayer = activePlayer;
+		this.gameStatus = gameStatus;
+		this.whiteDefense = whiteDefense;
+		this.blackDefense = blackDefense;
+		this.netDefenseCount = netDefenseCount;
+		this.principalVariation = principalVariation;
+	}
+
+	/**
+	 * Analyzes position.  Safe to call from any thread.
+	 *
+	 * @param position
+	 * @return analysis
+	 */
+	public static PositionAnalysis analyze(Position position) {
+		int[] white = position.getAttackerCounts(PieceColor.WHITE, new int[64]);
+		int[] black = position.getAttackerCounts(PieceColor.BLACK, new int[64]);
+		Map<String, Integer> netDefenseCount = new HashMap<>();
+		for (int square=0; square<64; ++square) {
+			if (white[square] != 0 || black[square] != 0) {
+				netDefenseCount.put(ConvertUtils.getSquareAsString(square), white[square] - black[square]);
+			}
+		}
+		return new PositionAnalysis(position.getActivePlayer(), position.getGameStatus(),
+				ConvertUtils.getPositionsAsStrings(position.getDefendedSquares(PieceColor.WHITE)),
+				ConvertUtils.getPositionsAsStrings(position.getDefendedSquares(PieceColor.BLACK)),
+				netDefenseCount, null);
+	}
+
+	/**
+	 * Analyzes the current position of logic, for engines that
+	 * do not take Position snapshots.  Call from the thread that
+	 * plays moves on logic.
+	 *
+	 * @param logic
+	 * @return analysis
+	 */
+	public static PositionAnalysis analyze(ChessMapLogicEngine logic) {
+		return new PositionAnalysis(logic.getActivePlayer(), logic.getGameStatus(),
+				logic.getTotalDefense(PieceColor.WHITE), logic.getTotalDefense(PieceColor.BLACK),
+				logic.getNetDefenseCount(), null);
+	}
+
+	/**
+	 * @param principalVariation
+	 * @return this analysis, with the line a search found
+	 */
+	public PositionAnalysis withPrincipalVariation(PrincipalVariation principalVariation) {
+		return new PositionAnalysis(activePlayer, gameStatus, whiteDefense, blackDefense, netDefenseCount, principalVariation);
+	}
+
+	public PieceColor getActivePlayer() {
+		return activePlayer;
+	}
+
+	public GameStatus getGameStatus() {
+		return gameStatus;
+	}
+
+	/**
+	 * @param color WHITE or BLACK
+	 * @return names of the squares defended by color
+	 */
+	public Collection<String> getTotalDefense(PieceColor color) {
+		return PieceColor.BLACK.equals(color) ? blackDefense : whiteDefense;
+	}
+
+	/**
+	 * @return white's defenders minus black's by square name,
+	 *         or null if the logic engine does not count defenders
+	 */
+	public Map<String, Integer> getNetDefenseCount() {
+		return netDefenseCount;
+	}
+
+	/**
+	 * @return the deepest line searched so far, or null if no search has reported
+	 */
+	public PrincipalVariation getPrincipalVariation() {
+		return principalVariation;
+	}
+}
@@ -1,6 +1,7 @@
 package com.grapedrink.chessmap.ui.factory;
 
 import java.awt.Component;
+import java.util.function.Consumer;
 
 import com.grapedrink.chessmap.game.ChessMapLogicEngine;
 import com.grapedrink.chessmap.gui.board.ChessBoardPanel;
@@ -9,7 +10,13 @@ import com.grapedrink.chessmap.gui.board.MasterBoardPanel;
 import com.grapedrink.chessmap.gui.controlpanel.ControlPanel;
 import com.grapedrink.chessmap.gui.icons.IconHelper;
 import com.grapedrink.chessmap.gui.mainwindow.MainWindow;
+import com.grapedrink.chessmap.logic.bitboards.GameStatus;
 import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.Position;
+import com.grapedrink.chessmap.logic.search.Search;
+import com.grapedrink.chessmap.logic.search.SearchLimits;
+import com.grapedrink.chessmap.ui.analysis.AnalysisExecutor;
+import com.grapedrink.chessmap.ui.analysis.PositionAnalysis;
 import com.grapedrink.chessmap.ui.io.CheckBoxPanel;
 import com.grapedrink.chessmap.ui.io.FreePlayCheckBox;
 import com.grapedrink.chessmap.ui.io.NewGameButton;
@@ -20,6 +27,11 @@ import com.grapedrink.chessmap.ui.io.RotateBoardButton;
 
 public class GUIReferences {
 
+	/**
+	 * How long the best move is searched for, unless the user moves first
+	 */
+	private static final SearchLimits SEARCH_LIMITS = SearchLimits.ofMillis(10000L);
+
 	private CheckBoxPanel checkBoxPanel;
 	private FreePlayCheckBox freeplayModeCheckBox;
 	private ChessBoardPanel chessBoardPanel;
@@ -34,6 +46,14 @@ public class GUIReferences {
 	private NewGameButton newGameButton;
 	private ResetBoardButton resetBoardButton;
 	private IconHelper iconHelper;
+	private AnalysisExecutor analysisExecutor;
+
+	/**
+	 * Run with the next analysis painted.  Kept over repaints of
+	 * pendingPosition, dropped when another position is painted.
+	 */
+	private Consumer<PositionAnalysis> pendingAnalysis;
+	private Position pendingPosition;
 	
 	// Make sure you instantiate items from inside-out,
 	// in order of increasing dependencies.
@@ -52,6 +72,7 @@ public class GUIReferences {
 		controlPanel = new ControlPanel(this);
 		mainWindow = new MainWindow(this);
 		this.chessMapLogicEngine = chessMapLogicEngine;
+		analysisExecutor = new AnalysisExecutor();
 	}
 	
 	public ControlPanel getControlPanel() {
@@ -84,7 +105,52 @@ public class GUIReferences {
 	}
 	
 	public void paintSquares() {
-		this.checkBoxPanel.paintSquares();
+		paintSquares(null);
+	}
+	
+	/**
+	 * Analyzes the current position on the analysis thread and paints
+	 * the checked overlays when done, unless the position was painted
+	 * again in the meantime.  If the best move is checked, a search
+	 * follows, and the overlays are painted again as it deepens.
+	 * Engines that do not take Position snapshots are analyzed on
+	 * this thread, without a search.
+	 * 
+	 * @param onAnalysis run once, with the first analysis painted for
+	 *        this position, even if a later repaint of the same position
+	 *        supersedes this one, or null
+	 */
+	public void paintSquares(Consumer<PositionAnalysis> onAnalysis) {
+		Position position = chessMapLogicEngine.getPosition();
+		if (onAnalysis != null || position == null || !position.equals(pendingPosition)) {
+			pendingAnalysis = onAnalysis;
+			pendingPosition = onAnalysis == null ? null : position;
+		}
+		if (position == null) {
+			analysisExecutor.cancel();
+			paintAnalysis(PositionAnalysis.analyze(chessMapLogicEngine));
+		}
+		else {
+			boolean isSearching = checkBoxPanel.isBestMoveSelected();
+			analysisExecutor.submit(publish -> {
+				PositionAnalysis analysis = PositionAnalysis.analyze(position);
+				publish.accept(analysis);
+				if (isSearching && analysis.getGameStatus() == GameStatus.ONGOING) {
+					Search.analyze(position, SEARCH_LIMITS,
+							principalVariation -> publish.accept(analysis.withPrincipalVariation(principalVariation)));
+				}
+			}, this::paintAnalysis);
+		}
+	}
+
+	private void paintAnalysis(PositionAnalysis analysis) {
+		this.checkBoxPanel.paintSquares(analysis);
+		if (pendingAnalysis != null) {
+			Consumer<PositionAnalysis> onAnalysis = pendingAnalysis;
+			pendingAnalysis = null;
+			pendingPosition = null;
+			onAnalysis.accept(analysis);
+		}
 	}
 
 	public NewGameButton getNewGameButton() {
@@ -111,6 +177,10 @@ public class GUIReferences {
 		return this.iconHelper;
 	}
 
+	public AnalysisExecutor getAnalysisExecutor() {
+		return this.analysisExecutor;
+	}
+
 	public CheckBoxPanel getCheckBoxPanel() {
 		return this.checkBoxPanel;
 	}
@@ -2,7 +2,10 @@ package com.grapedrink.chessmap.ui.io;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.swing.JCheckBox;
@@ -10,6 +13,10 @@ import javax.swing.JPanel;
 
 import com.grapedrink.chessmap.gui.colors.SquareColor;
 import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.search.PrincipalVariation;
+import com.grapedrink.chessmap.logic.utils.ConvertUtils;
+import com.grapedrink.chessmap.logic.utils.PackedMove;
+import com.grapedrink.chessmap.ui.analysis.PositionAnalysis;
 import com.grapedrink.chessmap.ui.factory.GUIReferences;
 
 @SuppressWarnings("serial")
@@ -18,6 +25,8 @@ public class CheckBoxPanel extends JPanel {
 	private GUIReferences guirefs;
 	private JCheckBox whiteDefense;
 	private JCheckBox blackDefense;
+	private JCheckBox netDefense;
+	private JCheckBox bestMove;
 	
 	public CheckBoxPanel(GUIReferences guirefs) {
 		this.guirefs = guirefs;
@@ -25,31 +34,65 @@ public class CheckBoxPanel extends JPanel {
 		whiteDefense.addActionListener(new BoxCheckedActionListener(guirefs));
 		this.blackDefense = new JCheckBox("b");
 		blackDefense.addActionListener(new BoxCheckedActionListener(guirefs));
+		this.netDefense = new JCheckBox("net");
+		netDefense.addActionListener(new BoxCheckedActionListener(guirefs));
+		this.bestMove = new JCheckBox("best");
+		bestMove.addActionListener(new BoxCheckedActionListener(guirefs));
 		super.add(whiteDefense);
 		super.add(blackDefense);
+		super.add(netDefense);
+		super.add(bestMove);
 	}
 	
+	/**
+	 * Paints the checked overlays for the logic engine's current
+	 * position, on the event dispatch thread.
+	 */
 	public void paintSquares() {
-		highlightValidMoves();
+		paintSquares(PositionAnalysis.analyze(guirefs.getChessMapLogicEngine()));
 	}
 	
-    private void highlightValidMoves() {
+	/**
+	 * Paints the checked overlays from an analysis, which may have
+	 * been made on another thread.
+	 * 
+	 * @param analysis
+	 */
+	public void paintSquares(PositionAnalysis analysis) {
+		guirefs.getChessBoardPanel().resetSquareColors();
+		paintDefense(analysis);
+		if (bestMove.isSelected()) {
+			showBestMove(analysis);
+		}
+	}
+	
+	/**
+	 * @return whether the best move should be searched for and shown
+	 */
+	public boolean isBestMoveSelected() {
+		return bestMove.isSelected();
+	}
+	
+	private void paintDefense(PositionAnalysis analysis) {
+        if (netDefense.isSelected() && showNetDefense(analysis)) {
+        	return;
+        }
         if (whiteDefense.isSelected() || blackDefense.isSelected()) {
             if (whiteDefense.isSelected() && blackDefense.isSelected()) {
-        	    showTotalDefense();
+        	    showTotalDefense(analysis);
             }
             else if (whiteDefense.isSelected()) {
-            	showTotalDefense(PieceColor.WHITE);
+            	showTotalDefense(analysis, PieceColor.WHITE);
             }
             else {
-            	showTotalDefense(PieceColor.BLACK);
+            	showTotalDefense(analysis, PieceColor.BLACK);
             }
     	}
 	}
 
-    public void showTotalDefense() {
-    	Set<String> whitePositions = (Set<String>) guirefs.getChessMapLogicEngine().getTotalDefense(PieceColor.WHITE);
-    	Set<String> blackPositions = (Set<String>) guirefs.getChessMapLogicEngine().getTotalDefense(PieceColor.BLACK);
+    public void showTotalDefense(PositionAnalysis analysis) {
+    	Set<String> whitePositions = new HashSet<>(analysis.getTotalDefense(PieceColor.WHITE));
+    	Set<String> blackPositions = new HashSet<>(analysis.getTotalDefense(PieceColor.BLACK));
     	Set<String> bothPositions = new HashSet<>();
     	for (String position : whitePositions) {
     		if (blackPositions.contains(position)) {
@@ -67,11 +110,46 @@ public class CheckBoxPanel extends JPanel {
     	guirefs.getChessBoardPanel().highlight(bothPositions, SquareColor.DEFENDED_SQUARES, PieceColor.BOTH);
     }
 
-    public void showTotalDefense(PieceColor pieceColor) {
-    	Iterable<String> totalDefense = guirefs.getChessMapLogicEngine().getTotalDefense(pieceColor);
+    public void showTotalDefense(PositionAnalysis analysis, PieceColor pieceColor) {
+    	Iterable<String> totalDefense = analysis.getTotalDefense(pieceColor);
     	guirefs.getChessBoardPanel().highlight(totalDefense, SquareColor.DEFENDED_SQUARES, pieceColor);
     }
 	
+    /**
+     * Shades each square by how many more pieces one color defends it with.
+     * 
+     * @param analysis
+     * @return false if the logic engine does not count defenders
+     */
+    public boolean showNetDefense(PositionAnalysis analysis) {
+    	Map<String, Integer> netDefenseCount = analysis.getNetDefenseCount();
+    	if (netDefenseCount == null) {
+    		return false;
+    	}
+    	guirefs.getChessBoardPanel().highlightNetDefense(netDefenseCount);
+    	return true;
+    }
+    
+    /**
+     * Shades the squares of the best move found so far,
+     * and shows the line it leads to as a tooltip.
+     * 
+     * @param analysis
+     */
+    public void showBestMove(PositionAnalysis analysis) {
+    	PrincipalVariation principalVariation = analysis.getPrincipalVariation();
+    	if (principalVariation == null || principalVariation.getBestMove() == 0) {
+    		bestMove.setToolTipText(null);
+    		return;
+    	}
+    	int move = principalVariation.getBestMove();
+    	List<String> squares = Arrays.asList(
+    			ConvertUtils.getSquareAsString(PackedMove.getSrc(move)),
+    			ConvertUtils.getSquareAsString(PackedMove.getDst(move)));
+    	guirefs.getChessBoardPanel().highlight(squares, SquareColor.BEST_MOVE, analysis.getActivePlayer());
+    	bestMove.setToolTipText(principalVariation.toString());
+    }
+	
 	public void uncheckAll() {
 		
 	}
@@ -87,7 +165,7 @@ public class CheckBoxPanel extends JPanel {
 		@Override
 		public void actionPerformed(ActionEvent e) {
 			guirefs.getChessBoardPanel().resetColors();
-			guirefs.getCheckBoxPanel().paintSquares();
+			guirefs.paintSquares();
 			guirefs.enableNextPrevMoveButtons();
 		}
 	}
@@ -16,6 +16,7 @@ import com.grapedrink.chessmap.gui.colors.SquareColor;
 import com.grapedrink.chessmap.gui.controlpanel.GuiConstants;
 import com.grapedrink.chessmap.logic.bitboards.PieceColor;
 import com.grapedrink.chessmap.logic.utils.PieceUtils;
+import com.grapedrink.chessmap.ui.analysis.PositionAnalysis;
 import com.grapedrink.chessmap.ui.factory.GUIReferences;
 
 public class PieceDragListener extends MouseAdapter {
@@ -44,7 +45,7 @@ public class PieceDragListener extends MouseAdapter {
     		}
     		else if (gameIsInProgress()) {
     			executePlayerTurn(e);
-    	    	guirefs.paintSquares();
+    	    	guirefs.paintSquares(this::showGameStatus);
     		}
     		else {
     	    	guirefs.paintSquares();
@@ -103,8 +104,28 @@ public class PieceDragListener extends MouseAdapter {
     	else {
     		resetDraggedIcon(e);
     	}
-    	if (logic().getWinner() != null) {
-    		JOptionPane.showMessageDialog(null, String.format("Checkmate. %s wins", logic().getWinner()));
+    }
+    
+    private void showGameStatus(PositionAnalysis analysis) {
+    	switch (analysis.getGameStatus()) {
+    	case CHECKMATE:
+    		PieceColor winner = PieceColor.BLACK.equals(analysis.getActivePlayer()) ? PieceColor.WHITE : PieceColor.BLACK;
+    		JOptionPane.showMessageDialog(null, String.format("Checkmate. %s wins", winner));
+    		break;
+    	case STALEMATE:
+    		JOptionPane.showMessageDialog(null, "Stalemate. The game is drawn");
+    		break;
+    	case REPETITION:
+    		JOptionPane.showMessageDialog(null, "Threefold repetition. The game is drawn");
+    		break;
+    	case FIFTY_MOVE_RULE:
+    		JOptionPane.showMessageDialog(null, "Fifty moves without a capture or pawn move. The game is drawn");
+    		break;
+    	case INSUFFICIENT_MATERIAL:
+    		JOptionPane.showMessageDialog(null, "Insufficient material. The game is drawn");
+    		break;
+    	default:
+    		break;
     	}
     }
     
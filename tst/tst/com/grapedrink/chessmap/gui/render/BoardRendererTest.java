@@ -0,0 +1,78 @@
+package tst.com.grapedrink.chessmap.gui.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.grapedrink.chessmap.gui.colors.SquareColor;
+import com.grapedrink.chessmap.gui.render.BoardFrame;
+import com.grapedrink.chessmap.gui.render.BoardRenderer;
+import com.grapedrink.chessmap.gui.render.GameRenderer;
+import com.grapedrink.chessmap.gui.render.Overlay;
+import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+
+public class BoardRendererTest {
+
+	private static final int TILE_SIZE = 20;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Returns the color of the top left pixel of the square at position,
+	 * with rank 1 at the bottom.
+	 */
+	private static int getRGB(BufferedImage image, String position) {
+		int file = position.charAt(0) - 'a';
+		int rank = position.charAt(1) - '1';
+		return image.getRGB(file * TILE_SIZE, (7 - rank) * TILE_SIZE);
+	}
+
+	@Test
+	public void test_render() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		engine.setMove("e2", "e4");
+		BoardRenderer renderer = new BoardRenderer(TILE_SIZE, true);
+		BoardFrame frame = BoardFrame.capture(engine);
+		engine.setMove("d7", "d5");
+
+		BufferedImage image = renderer.render(frame, Overlay.WHITE_DEFENSE);
+		assertEquals(8 * TILE_SIZE, image.getWidth());
+		assertEquals(SquareColor.get(SquareColor.DEFENDED_SQUARES, "f3", PieceColor.WHITE).getRGB(), getRGB(image, "f3"));
+		assertEquals(SquareColor.get(SquareColor.DEFAULT_SQUARE_COLOR, "e5", null).getRGB(), getRGB(image, "e5"));
+
+		renderer.render(frame, Overlay.DEFENSE, image);
+		assertEquals(SquareColor.get(SquareColor.DEFENDED_SQUARES, "h6", PieceColor.BLACK).getRGB(), getRGB(image, "h6"));
+		assertEquals(SquareColor.get(SquareColor.DEFAULT_SQUARE_COLOR, "a5", null).getRGB(), getRGB(image, "a5"));
+
+		renderer.render(frame, Overlay.NET_DEFENSE, image);
+		assertEquals(SquareColor.getNetDefenseColor("f3", 3).getRGB(), getRGB(image, "f3"));
+		assertNotEquals(getRGB(image, "e4"), getRGB(renderer.render(BoardFrame.capture(engine), Overlay.NET_DEFENSE), "e4"));
+	}
+
+	@Test
+	public void test_renderGames() throws IOException {
+		File directory = folder.newFolder();
+		String pgn = "1. e4 e5 2. Bc4 Nc6 3. Qh5 Nf6 4. Qxf7# 1-0\n\n"
+				+ "1. e4 e5 2. Ke3 Nf6 0-1\n\n"
+				+ "1. d4 d5 1/2-1/2\n";
+		GameRenderer renderer = new GameRenderer(new ForkJoinPool(2), new BoardRenderer(TILE_SIZE, false), Overlay.DEFENSE);
+		assertEquals(8 + 3, renderer.renderGames(new StringReader(pgn), directory));
+		assertEquals(8 + 3, directory.list().length);
+		BufferedImage image = ImageIO.read(new File(directory, "00002-002.png"));
+		assertEquals(8 * TILE_SIZE, image.getHeight());
+	}
+}
@@ -0,0 +1,85 @@
+package tst.com.grapedrink.chessmap.logic.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.analysis.BatchAnalyzer;
+import com.grapedrink.chessmap.logic.analysis.BatchResult;
+
+public class BatchAnalyzerTest {
+
+	private static final String OPERA_GAME =
+			"[Event \"Paris\"]\n"
+			+ "1. e4 e5 2. Nf3 d6 3. d4 Bg4 4. dxe5 Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 Qe7\n"
+			+ "8. Nc3 c6 9. Bg5 b5 10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7\n"
+			+ "14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8# 1-0\n";
+
+	private static final String ILLEGAL_GAME = "[Event \"Illegal\"]\n1. e4 e5 2. Ke3 Nf6 0-1\n";
+
+	private static final String SCHOLARS_MATE = "1. e4 e5 2. Bc4 Nc6 3. Qh5 Nf6 4. Qxf7# 1-0\n";
+
+	@Test
+	public void test_analyze() {
+		List<String> games = Arrays.asList(OPERA_GAME, ILLEGAL_GAME, SCHOLARS_MATE);
+		Map<Integer, int[]> plies = new ConcurrentHashMap<>();
+		BatchResult result = new BatchAnalyzer().analyze(games, (game, ply, white, black, mobility, isCheck, score) -> {
+			if (ply == 0) {
+				assertEquals(22, white);
+				assertEquals(22, black);
+				assertEquals(20, mobility);
+				assertEquals(0, score);
+			}
+			plies.put(game * 1000 + ply, new int[] {mobility, isCheck ? 1 : 0});
+		});
+		assertEquals(2L, result.getGames());
+		assertEquals(1L, result.getFailedGames());
+		assertEquals(34L + 8L, result.getPositions());
+		assertEquals(5L, result.getChecks());
+		assertEquals(42, plies.size());
+		assertTrue(Arrays.equals(new int[] {0, 1}, plies.get(33)));
+		assertTrue(Arrays.equals(new int[] {0, 1}, plies.get(2007)));
+		assertFalse(plies.containsKey(1000));
+	}
+
+	@Test
+	public void test_analyzeReader() throws IOException {
+		StringBuilder corpus = new StringBuilder();
+		List<String> games = new ArrayList<>();
+		for (int i=0; i<50; ++i) {
+			String game = i % 2 == 0 ? OPERA_GAME : SCHOLARS_MATE;
+			corpus.append(game).append('\n');
+			games.add(game);
+		}
+		long[] sequential = new long[1];
+		BatchResult expected = new BatchAnalyzer(new ForkJoinPool(1), 7).analyze(games,
+				(game, ply, white, black, mobility, isCheck, score) -> {
+					synchronized (sequential) {
+						sequential[0] += (game + 1) * (white + 3 * black + 7 * mobility + ply);
+					}
+				});
+
+		long[] parallel = new long[1];
+		BatchResult actual = new BatchAnalyzer(new ForkJoinPool(4), 7).analyze(new StringReader(corpus.toString()),
+				(game, ply, white, black, mobility, isCheck, score) -> {
+					synchronized (parallel) {
+						parallel[0] += (game + 1) * (white + 3 * black + 7 * mobility + ply);
+					}
+				});
+		assertEquals(50L, actual.getGames());
+		assertEquals(25L * 34L + 25L * 8L, actual.getPositions());
+		assertEquals(expected.getPositions(), actual.getPositions());
+		assertEquals(sequential[0], parallel[0]);
+	}
+}
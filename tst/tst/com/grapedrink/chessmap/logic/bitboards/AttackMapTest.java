@@ -0,0 +1,114 @@
+package tst.com.grapedrink.chessmap.logic.bitboards;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
+import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+import com.grapedrink.chessmap.logic.utils.ConvertUtils;
+import com.grapedrink.chessmap.logic.utils.DefenseUtils;
+import com.grapedrink.chessmap.logic.utils.FenUtils;
+import com.grapedrink.chessmap.logic.utils.MoveGenerator;
+
+public class AttackMapTest {
+
+	private static final String[] POSITIONS = {
+			FenUtils.START_POSITION,
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+			"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+			"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+	};
+
+	private static void assertAttacks(RulesEngine engine) {
+		PieceBoard pieces = new PieceBoard();
+		FenUtils.getPieces(engine.getFen(), pieces);
+		PieceColor[] colors = {PieceColor.BLACK, PieceColor.WHITE};
+		int[][] expected = new int[2][64];
+		for (int c=0; c<2; ++c) {
+			PieceColor color = colors[c];
+			assertEquals(DefenseUtils.getDefendedSquaresForColor(pieces, color), engine.getDefendedSquares(color));
+			long colorPieces = PieceColor.BLACK.equals(color) ? pieces.getBlackPieces() : pieces.getWhitePieces();
+			for (int square=0; square<64; ++square) {
+				for (long board = colorPieces; board != 0L; board &= board - 1) {
+					if ((DefenseUtils.getDefendedSquares(board & -board, pieces) & (1L << square)) != 0L) {
+						++expected[c][square];
+					}
+				}
+				assertEquals(expected[c][square], engine.getAttackerCount(ConvertUtils.getPositionAsString(1L << square), color));
+			}
+			assertArrayEquals(expected[c], engine.getAttackerCounts(color, new int[64]));
+		}
+		long blackControl = 0L;
+		long whiteControl = 0L;
+		for (int square=0; square<64; ++square) {
+			if (expected[0][square] > expected[1][square]) {
+				blackControl |= 1L << square;
+			}
+			else if (expected[1][square] > expected[0][square]) {
+				whiteControl |= 1L << square;
+			}
+		}
+		assertEquals(blackControl, engine.getControlledSquares(PieceColor.BLACK));
+		assertEquals(whiteControl, engine.getControlledSquares(PieceColor.WHITE));
+	}
+
+	@Test
+	public void test_getAttackerCount() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		assertEquals(3, engine.getAttackerCount("f3", PieceColor.WHITE));
+		assertEquals(4, engine.getAttackerCount("e2", PieceColor.WHITE));
+		assertEquals(1, engine.getAttackerCount("e1", PieceColor.WHITE));
+		assertEquals(0, engine.getAttackerCount("e4", PieceColor.WHITE));
+		engine.setMove("e2", "e4");
+		engine.setMove("d7", "d5");
+		assertEquals(1, engine.getAttackerCount("d5", PieceColor.WHITE));
+		assertEquals(1, engine.getAttackerCount("e4", PieceColor.BLACK));
+		assertEquals(1, engine.getAttackerCount("h5", PieceColor.WHITE));
+		assertEquals(Integer.valueOf(-1), engine.getNetDefenseCount().get("e4"));
+		assertEquals(Integer.valueOf(0), engine.getNetDefenseCount().get("d5"));
+		assertEquals(Integer.valueOf(3), engine.getDefenseCount(PieceColor.WHITE).get("f3"));
+		assertNull(engine.getDefenseCount(PieceColor.WHITE).get("a1"));
+	}
+
+	@Test
+	public void test_getControlledSquares() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		assertEquals(0xFFFFFFL & ~0x81L, engine.getControlledSquares(PieceColor.WHITE));
+		assertEquals(0xFFFFFFL << 40 & ~(0x81L << 56), engine.getControlledSquares(PieceColor.BLACK));
+		assertEquals(0L, engine.getControlledSquares(PieceColor.BOTH));
+	}
+
+	@Test
+	public void test_randomGames() {
+		Random random = new Random(18L);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		RulesEngine engine = new RulesEngine();
+		for (String fen : POSITIONS) {
+			for (int game=0; game<4; ++game) {
+				engine.setFen(fen);
+				assertAttacks(engine);
+				for (int ply=0; ply<40; ++ply) {
+					int count = engine.getLegalMoves(moves);
+					if (count == 0) {
+						break;
+					}
+					engine.setMove(moves[random.nextInt(count)]);
+					assertAttacks(engine);
+				}
+				while (engine.getPly() > 0) {
+					engine.setPly(random.nextInt(engine.getPly()));
+					assertAttacks(engine);
+				}
+			}
+		}
+	}
+}
@@ -46,4 +46,41 @@ public class BoardUtilsTest {
 		// verify that
 	}
 	
+	@Test
+	public void test_getSquareAccessors() {
+		int a1 = Long.numberOfTrailingZeros(a1Long);
+		int h8 = Long.numberOfTrailingZeros(h8Long);
+		assertEquals(a1, BoardUtils.getSquare(0, 0));
+		assertEquals(h8, BoardUtils.getSquare(7, 7));
+		assertEquals(0, BoardUtils.getFileIndex(a1));
+		assertEquals(7, BoardUtils.getRankIndex(h8));
+		for (int square=0; square<64; ++square) {
+			long position = 1L << square;
+			assertEquals(BoardUtils.getRank(position), BoardUtils.getRankForSquare(square));
+			assertEquals(BoardUtils.getFile(position), BoardUtils.getFileForSquare(square));
+			assertEquals(square, BoardUtils.getSquare(BoardUtils.getFileIndex(square), BoardUtils.getRankIndex(square)));
+		}
+	}
+	
+	@Test
+	public void test_diagonalsCoverEachSquareOnce() {
+		for (int square=0; square<64; ++square) {
+			long position = 1L << square;
+			int diagonals = 0;
+			int antiDiagonals = 0;
+			for (long ray : BoardConstants.DIAGONALS) {
+				diagonals += (ray & position) != 0L ? 1 : 0;
+			}
+			for (long ray : BoardConstants.ANTI_DIAGONALS) {
+				antiDiagonals += (ray & position) != 0L ? 1 : 0;
+			}
+			assertEquals(1, diagonals);
+			assertEquals(1, antiDiagonals);
+			assertTrue((BoardUtils.getDiagonalForSquare(square) & position) != 0L);
+			assertTrue((BoardUtils.getAntiDiagonalForSquare(square) & position) != 0L);
+		}
+		assertEquals(a1Long | h8Long | 0x0002040810204000L, BoardUtils.getDiagonal(a1Long));
+		assertEquals(a8Long | h1Long | 0x0040201008040200L, BoardUtils.getAntiDiagonal(h1Long));
+	}
+	
 }
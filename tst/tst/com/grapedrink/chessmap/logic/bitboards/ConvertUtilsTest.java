@@ -1,11 +1,16 @@
 package tst.com.grapedrink.chessmap.logic.bitboards;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.Set;
+
 import org.junit.Test;
 
 import com.grapedrink.chessmap.logic.utils.ConvertUtils;
+import com.grapedrink.chessmap.logic.utils.SquareIterator;
 
 public class ConvertUtilsTest {
 
@@ -45,4 +50,43 @@ public class ConvertUtilsTest {
 		catch (IllegalArgumentException e) {
 		}
 	}
+	
+	@Test
+	public void test_getSquareAsString() {
+		for (int square=0; square<64; ++square) {
+			String position = ConvertUtils.getSquareAsString(square);
+			assertEquals(square, ConvertUtils.getPositionAsSquare(position));
+			assertEquals(ConvertUtils.getSquareAsLong(square), ConvertUtils.getPositionAsLong(position));
+			assertEquals(square, ConvertUtils.getPositionAsSquare(ConvertUtils.getSquareAsLong(square)));
+		}
+		assertEquals(a1String, ConvertUtils.getSquareAsString(Long.numberOfTrailingZeros(a1Long)));
+		assertEquals(h8String, ConvertUtils.getSquareAsString(Long.numberOfTrailingZeros(h8Long)));
+	}
+	
+	@Test
+	public void test_getPositionsAsStrings() {
+		Set<String> positions = ConvertUtils.getPositionsAsStrings(a1Long | h1Long | h8Long);
+		assertEquals(3, positions.size());
+		assertTrue(positions.contains(a1String));
+		assertTrue(positions.contains(h1String));
+		assertTrue(positions.contains(h8String));
+		assertTrue(ConvertUtils.getPositionsAsStrings(0L).isEmpty());
+	}
+	
+	@Test
+	public void test_squareIterator() {
+		SquareIterator squares = new SquareIterator(a1Long | a8Long | h1Long);
+		assertEquals(h1Long, squares.nextPosition());
+		assertEquals(7, squares.nextSquare());
+		assertEquals(a8Long, squares.nextPosition());
+		assertFalse(squares.hasNext());
+		try {
+			squares.nextSquare();
+			fail("SquareIterator.nextSquare() failed to throw an IndexOutOfBoundsException.");
+		}
+		catch (IndexOutOfBoundsException e) {
+		}
+		assertTrue(squares.reset(h8Long).hasNext());
+		assertEquals(56, squares.nextSquare());
+	}
 }
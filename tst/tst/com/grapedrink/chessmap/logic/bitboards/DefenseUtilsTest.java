@@ -0,0 +1,49 @@
+package tst.com.grapedrink.chessmap.logic.bitboards;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.utils.BoardUtils;
+import com.grapedrink.chessmap.logic.utils.ConvertUtils;
+import com.grapedrink.chessmap.logic.utils.DefenseUtils;
+
+public class DefenseUtilsTest {
+
+	private static long squares(String... positions) {
+		long squares = 0L;
+		for (String position : positions) {
+			squares |= ConvertUtils.getPositionAsLong(position);
+		}
+		return squares;
+	}
+
+	@Test
+	public void test_getKnightDefense() {
+		assertEquals(squares("b3", "c2"), DefenseUtils.getKnightDefense(squares("a1")));
+		assertEquals(squares("f7", "g6"), DefenseUtils.getKnightDefense(squares("h8")));
+		assertEquals(squares("c3", "c5", "d2", "d6", "f2", "f6", "g3", "g5"), DefenseUtils.getKnightDefense(squares("e4")));
+		for (int square=0; square<64; ++square) {
+			assertEquals(BoardUtils.getKnightSquares(1L << square), DefenseUtils.getKnightDefense(1L << square));
+		}
+	}
+
+	@Test
+	public void test_getKingDefense() {
+		assertEquals(squares("a2", "b1", "b2"), DefenseUtils.getKingDefense(squares("a1")));
+		assertEquals(squares("g1", "g2", "h2"), DefenseUtils.getKingDefense(squares("h1")));
+		for (int square=0; square<64; ++square) {
+			assertEquals(BoardUtils.getAdjacentSquares(1L << square), DefenseUtils.getKingDefense(1L << square));
+		}
+	}
+
+	@Test
+	public void test_getPawnDefense() {
+		assertEquals(squares("b3"), DefenseUtils.getPawnDefense(squares("a2"), 0));
+		assertEquals(squares("d5", "f5"), DefenseUtils.getPawnDefense(squares("e4"), 0));
+		assertEquals(squares("g6"), DefenseUtils.getPawnDefense(squares("h7"), 4));
+		assertEquals(squares("d4", "f4"), DefenseUtils.getPawnDefense(squares("e5"), 4));
+		assertEquals(0L, DefenseUtils.getPawnDefense(squares("e8"), 0));
+		assertEquals(0L, DefenseUtils.getPawnDefense(squares("e1"), 4));
+	}
+}
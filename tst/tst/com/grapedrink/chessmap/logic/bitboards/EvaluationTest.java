@@ -0,0 +1,83 @@
+package tst.com.grapedrink.chessmap.logic.bitboards;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
+import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.PieceContainer;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+import com.grapedrink.chessmap.logic.utils.EvaluationUtils;
+import com.grapedrink.chessmap.logic.utils.FenUtils;
+import com.grapedrink.chessmap.logic.utils.MoveGenerator;
+
+public class EvaluationTest {
+
+	private static void assertScores(PieceContainer container) {
+		PieceBoard pieces = new PieceBoard();
+		for (Map.Entry<String, Long> entry : container.getPieces().entrySet()) {
+			pieces.set(PieceBoard.getIndex(entry.getKey()), entry.getValue());
+		}
+		for (boolean isBlack : new boolean[] {true, false}) {
+			PieceColor color = isBlack ? PieceColor.BLACK : PieceColor.WHITE;
+			int material = EvaluationUtils.getMaterial(pieces, isBlack);
+			assertEquals(material, container.getMaterial(color));
+			assertEquals(material + EvaluationUtils.getPlacement(pieces, isBlack), container.getScore(color));
+		}
+	}
+
+	@Test
+	public void test_startPosition() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		assertEquals(4000, engine.getMaterial(PieceColor.WHITE));
+		assertEquals(4000, engine.getMaterial(PieceColor.BLACK));
+		assertEquals(0, engine.getNetScore());
+		assertEquals(Integer.valueOf(80), engine.getPointDistribution(PieceColor.WHITE).get("e2"));
+		assertEquals(Integer.valueOf(-80), engine.getNetPointDistribution().get("e7"));
+		assertEquals(32, engine.getNetPointDistribution().size());
+
+		engine.setMove("e2", "e4");
+		engine.setMove("d7", "d5");
+		engine.setMove("e4", "d5");
+		assertEquals(4000, engine.getMaterial(PieceColor.WHITE));
+		assertEquals(3900, engine.getMaterial(PieceColor.BLACK));
+		engine.setPly(2);
+		assertEquals(4000, engine.getMaterial(PieceColor.BLACK));
+	}
+
+	@Test
+	public void test_makeMove() {
+		Random random = new Random(21L);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		for (String fen : new String[] {
+				FenUtils.START_POSITION,
+				"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+				"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"}) {
+			PieceBoard pieces = new PieceBoard();
+			FenUtils.getPieces(fen, pieces);
+			PieceContainer container = new PieceContainer();
+			container.setPosition(pieces, FenUtils.getCastlingRights(fen.split(" ")[2]), -1);
+			assertScores(container);
+			int startScore = container.getScore(PieceColor.WHITE) - container.getScore(PieceColor.BLACK);
+			boolean isBlacksTurn = fen.contains(" b ");
+			int plies = 0;
+			int count;
+			while (plies < 100 && (count = container.getLegalMoves(isBlacksTurn, moves)) > 0) {
+				container.makeMove(moves[random.nextInt(count)]);
+				assertScores(container);
+				isBlacksTurn = !isBlacksTurn;
+				++plies;
+			}
+			while (plies-- > 0) {
+				container.unmakeMove();
+				assertScores(container);
+			}
+			assertEquals(startScore, container.getScore(PieceColor.WHITE) - container.getScore(PieceColor.BLACK));
+		}
+	}
+}
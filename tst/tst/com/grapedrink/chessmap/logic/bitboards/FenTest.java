@@ -0,0 +1,104 @@
+package tst.com.grapedrink.chessmap.logic.bitboards;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.PieceContainer;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+import com.grapedrink.chessmap.logic.utils.FenUtils;
+
+public class FenTest {
+
+	@Test
+	public void test_roundTrip() {
+		String[] fens = {
+			FenUtils.START_POSITION,
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			"8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1",
+			"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 12 20",
+			"4k3/8/8/8/8/8/8/4K2R b K - 3 41",
+		};
+		RulesEngine engine = new RulesEngine();
+		for (String fen : fens) {
+			engine.setFen(fen);
+			assertEquals(fen, engine.getFen());
+		}
+	}
+
+	@Test
+	public void test_getFen() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		assertEquals(FenUtils.START_POSITION, engine.getFen());
+		engine.setMove("e2", "e4");
+		assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", engine.getFen());
+		engine.setMove("g8", "f6");
+		engine.setMove("g1", "f3");
+		assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 2 2", engine.getFen());
+		engine.setMove("f6", "e4");
+		assertEquals("rnbqkb1r/pppppppp/8/8/4n3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 0 3", engine.getFen());
+		engine.setPly(1);
+		assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", engine.getFen());
+	}
+
+	@Test
+	public void test_setFen() {
+		RulesEngine engine = new RulesEngine();
+		engine.setFen("8/8/1k6/2b5/2pP4/8/5K2/8 b - d3");
+		assertEquals(PieceColor.BLACK, engine.getActivePlayer());
+		assertEquals(0, engine.getPlyCount());
+		assertFalse(engine.hasPrevMove());
+		engine.setMove("c4", "d3");
+		assertEquals("8/8/1k6/2b5/8/3p4/5K2/8 w - - 0 2", engine.getFen());
+		engine.setPly(0);
+		assertEquals("8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1", engine.getFen());
+
+		RulesEngine newGame = new RulesEngine();
+		newGame.setNewGame();
+		engine.setFen(FenUtils.START_POSITION);
+		assertEquals(newGame.getZobristKey(), engine.getZobristKey());
+		assertEquals(newGame.getBoard(), engine.getBoard());
+
+		String[] invalid = {
+			"",
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+			"rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+			"rnbqkbnr/ppppxppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkx - 0 1",
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq",
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - a 1",
+		};
+		for (String fen : invalid) {
+			try {
+				engine.setFen(fen);
+				fail(fen);
+			}
+			catch (IllegalArgumentException e) {
+			}
+		}
+	}
+
+	@Test
+	public void test_setPosition() {
+		RulesEngine engine = new RulesEngine();
+		engine.setFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+		Map<String, String> board = engine.getBoard();
+		long key = engine.getZobristKey();
+
+		RulesEngine copy = new RulesEngine();
+		copy.setNewGame();
+		copy.setMove("e2", "e4");
+		copy.setPosition(board, false, PieceContainer.CASTLE_A1 | PieceContainer.CASTLE_H1 | PieceContainer.CASTLE_A8 | PieceContainer.CASTLE_H8);
+		assertEquals(0, copy.getPlyCount());
+		assertEquals(board, copy.getBoard());
+		assertEquals(key, copy.getZobristKey());
+		assertEquals(97862L, copy.perft(3));
+	}
+}
@@ -0,0 +1,134 @@
+package tst.com.grapedrink.chessmap.logic.bitboards;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.bitboards.GameStatus;
+import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.Position;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+
+public class GameStatusTest {
+
+	private static RulesEngine getEngine(String fen) {
+		RulesEngine engine = new RulesEngine();
+		engine.setFen(fen);
+		return engine;
+	}
+
+	@Test
+	public void test_checkmate() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		assertEquals(GameStatus.ONGOING, engine.getGameStatus());
+		engine.setMove("f2", "f3");
+		engine.setMove("e7", "e5");
+		engine.setMove("g2", "g4");
+		assertNull(engine.getWinner());
+		engine.setMove("d8", "h4");
+		assertEquals(GameStatus.CHECKMATE, engine.getGameStatus());
+		assertEquals(PieceColor.BLACK, engine.getWinner());
+		assertFalse(engine.getGameStatus().isDraw());
+
+		engine.setPly(3);
+		assertEquals(GameStatus.ONGOING, engine.getGameStatus());
+
+		// black's only legal move is taking the pawn en passant
+		assertEquals(GameStatus.ONGOING, getEngine("8/8/8/8/3Pp3/2N1P3/2K5/k7 b - d3 0 1").getGameStatus());
+		assertEquals(GameStatus.STALEMATE, getEngine("8/8/8/8/3Pp3/2N1P3/2K5/k7 b - - 0 1").getGameStatus());
+	}
+
+	@Test
+	public void test_stalemate() {
+		RulesEngine engine = getEngine("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+		assertEquals(GameStatus.STALEMATE, engine.getGameStatus());
+		assertTrue(engine.getGameStatus().isDraw());
+		assertNull(engine.getWinner());
+		assertEquals(GameStatus.ONGOING, getEngine("7k/5Q2/6K1/8/8/8/8/8 w - - 0 1").getGameStatus());
+		assertEquals(GameStatus.CHECKMATE, getEngine("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1").getGameStatus());
+	}
+
+	@Test
+	public void test_repetition() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		for (int i=0; i<2; ++i) {
+			assertEquals(GameStatus.ONGOING, engine.getGameStatus());
+			engine.setMove("g1", "f3");
+			engine.setMove("g8", "f6");
+			engine.setMove("f3", "g1");
+			engine.setMove("f6", "g8");
+		}
+		assertEquals(GameStatus.REPETITION, engine.getGameStatus());
+		engine.setPly(7);
+		assertEquals(GameStatus.ONGOING, engine.getGameStatus());
+		engine.setPly(8);
+		assertEquals(GameStatus.REPETITION, engine.getGameStatus());
+
+		// a pawn move in between means the earlier positions cannot come back
+		engine.setPly(4);
+		engine.setMove("e2", "e4");
+		engine.setMove("e7", "e5");
+		for (int i=0; i<2; ++i) {
+			engine.setMove("g1", "f3");
+			engine.setMove("g8", "f6");
+			engine.setMove("f3", "g1");
+			engine.setMove("f6", "g8");
+		}
+		assertEquals(GameStatus.REPETITION, engine.getGameStatus());
+		engine.setPly(10);
+		assertEquals(GameStatus.ONGOING, engine.getGameStatus());
+	}
+
+	@Test
+	public void test_fiftyMoveRule() {
+		RulesEngine engine = getEngine("4k3/8/8/8/8/8/4P3/R3K3 w - - 99 80");
+		assertEquals(GameStatus.ONGOING, engine.getGameStatus());
+		engine.setMove("a1", "a2");
+		assertEquals(GameStatus.FIFTY_MOVE_RULE, engine.getGameStatus());
+		engine.setPly(0);
+		engine.setMove("e2", "e4");
+		assertEquals(GameStatus.ONGOING, engine.getGameStatus());
+
+		// checkmate on the hundredth ply still wins
+		engine = getEngine("4k3/R7/8/8/8/8/8/1R2K3 w - - 99 80");
+		engine.setMove("b1", "b8");
+		assertEquals(GameStatus.CHECKMATE, engine.getGameStatus());
+	}
+
+	@Test
+	public void test_insufficientMaterial() {
+		assertEquals(GameStatus.INSUFFICIENT_MATERIAL, getEngine("4k3/8/8/8/8/8/8/4K3 w - - 0 1").getGameStatus());
+		assertEquals(GameStatus.INSUFFICIENT_MATERIAL, getEngine("4k3/8/8/8/8/8/8/4KN2 w - - 0 1").getGameStatus());
+		assertEquals(GameStatus.INSUFFICIENT_MATERIAL, getEngine("4kb2/8/8/8/8/8/8/2B1K3 w - - 0 1").getGameStatus());
+		assertEquals(GameStatus.ONGOING, getEngine("4k1b1/8/8/8/8/8/8/2B1K3 w - - 0 1").getGameStatus());
+		assertEquals(GameStatus.ONGOING, getEngine("4kn2/8/8/8/8/8/8/4KN2 w - - 0 1").getGameStatus());
+		assertEquals(GameStatus.ONGOING, getEngine("4k3/8/8/8/8/8/8/3NKN2 w - - 0 1").getGameStatus());
+		assertEquals(GameStatus.ONGOING, getEngine("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1").getGameStatus());
+	}
+
+	@Test
+	public void test_position() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		for (int i=0; i<2; ++i) {
+			engine.setMove("g1", "f3");
+			engine.setMove("g8", "f6");
+			engine.setMove("f3", "g1");
+			assertEquals(GameStatus.ONGOING, engine.getPosition().getGameStatus());
+			engine.setMove("f6", "g8");
+		}
+		Position position = engine.getPosition();
+		assertEquals(3, position.getRepetitionCount());
+		assertEquals(GameStatus.REPETITION, position.getGameStatus());
+		assertEquals(GameStatus.ONGOING, Position.fromFen(position.getFen()).getGameStatus());
+
+		assertEquals(GameStatus.STALEMATE, getEngine("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1").getPosition().getGameStatus());
+		assertEquals(GameStatus.FIFTY_MOVE_RULE, getEngine("4k3/8/8/8/8/8/4P3/R3K3 b - - 100 80").getPosition().getGameStatus());
+		assertEquals(GameStatus.INSUFFICIENT_MATERIAL, getEngine("4k3/8/8/8/8/8/8/4KN2 w - - 0 1").getPosition().getGameStatus());
+	}
+}
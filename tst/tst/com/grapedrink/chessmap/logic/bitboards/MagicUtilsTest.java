@@ -0,0 +1,55 @@
+package tst.com.grapedrink.chessmap.logic.bitboards;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.utils.ConvertUtils;
+import com.grapedrink.chessmap.logic.utils.MagicGenerator;
+import com.grapedrink.chessmap.logic.utils.MagicUtils;
+import com.grapedrink.chessmap.logic.utils.RayUtils;
+
+public class MagicUtilsTest {
+
+	private static long getRayDefense(int square, long allPieces, int... directions) {
+		long defense = 0L;
+		for (int direction : directions) {
+			defense |= RayUtils.getDefendedRay(1L << square, allPieces, direction);
+		}
+		return defense;
+	}
+
+	@Test
+	public void test_magicsAreValid() {
+		for (int square=0; square<64; ++square) {
+			assertTrue(MagicGenerator.isMagic(square, MagicUtils.getRookMagic(square), true));
+			assertTrue(MagicGenerator.isMagic(square, MagicUtils.getBishopMagic(square), false));
+		}
+	}
+
+	@Test
+	public void test_slidingDefenseMatchesRayWalking() {
+		Random random = new Random(1L);
+		long allPieces;
+		for (int i=0; i<2000; ++i) {
+			allPieces = random.nextLong() & random.nextLong();
+			for (int square=0; square<64; ++square) {
+				assertEquals(getRayDefense(square, allPieces, 0, 2, 4, 6), MagicUtils.getRookDefense(square, allPieces));
+				assertEquals(getRayDefense(square, allPieces, 1, 3, 5, 7), MagicUtils.getBishopDefense(square, allPieces));
+				assertEquals(getRayDefense(square, allPieces, 0, 1, 2, 3, 4, 5, 6, 7), MagicUtils.getQueenDefense(square, allPieces));
+			}
+		}
+	}
+
+	@Test
+	public void test_getRookDefense() {
+		int a1 = Long.numberOfTrailingZeros(ConvertUtils.getPositionAsLong("a1"));
+		long blockers = ConvertUtils.getPositionAsLong("a3") | ConvertUtils.getPositionAsLong("c1");
+		long expected = ConvertUtils.getPositionAsLong("a2") | ConvertUtils.getPositionAsLong("a3")
+				| ConvertUtils.getPositionAsLong("b1") | ConvertUtils.getPositionAsLong("c1");
+		assertEquals(expected, MagicUtils.getRookDefense(a1, blockers));
+	}
+}
@@ -0,0 +1,128 @@
+package tst.com.grapedrink.chessmap.logic.bitboards;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceBoard;
+import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.PieceType;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+import com.grapedrink.chessmap.logic.utils.ConvertUtils;
+import com.grapedrink.chessmap.logic.utils.FenUtils;
+import com.grapedrink.chessmap.logic.utils.LegalityContext;
+import com.grapedrink.chessmap.logic.utils.MoveGenerator;
+import com.grapedrink.chessmap.logic.utils.PackedMove;
+
+public class MoveGeneratorTest {
+
+	private static Set<String> getLegalMoves(RulesEngine engine) {
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = engine.getLegalMoves(moves);
+		Set<String> legalMoves = new HashSet<>();
+		for (int i=0; i<count; ++i) {
+			legalMoves.add(PackedMove.toString(moves[i]));
+		}
+		return legalMoves;
+	}
+
+	@Test
+	public void test_packedMove() {
+		int e7 = ConvertUtils.getPositionAsSquare("e7");
+		int d8 = ConvertUtils.getPositionAsSquare("d8");
+		int move = PackedMove.encode(e7, d8, PieceType.KNIGHT, PackedMove.CAPTURE | PackedMove.PROMOTION);
+		assertEquals(e7, PackedMove.getSrc(move));
+		assertEquals(d8, PackedMove.getDst(move));
+		assertEquals(PieceType.KNIGHT, PackedMove.getPromotion(move));
+		assertTrue(PackedMove.isCapture(move));
+		assertFalse(PackedMove.isEnPassant(move));
+		assertEquals("e7d8n", PackedMove.toString(move));
+		assertEquals(PieceType.NONE, PackedMove.getPromotion(PackedMove.encode(e7, d8, PackedMove.QUIET)));
+	}
+
+	@Test
+	public void test_startingPosition() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		Set<String> moves = getLegalMoves(engine);
+		assertEquals(20, moves.size());
+		assertTrue(moves.contains("e2e4"));
+		assertTrue(moves.contains("g1f3"));
+		engine.setMove("e2", "e4");
+		assertEquals(20, getLegalMoves(engine).size());
+	}
+
+	@Test
+	public void test_checkEvasions() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		engine.setMove("f2", "f3");
+		engine.setMove("e7", "e5");
+		engine.setMove("g2", "g4");
+		engine.setMove("d8", "h4");
+		assertTrue(getLegalMoves(engine).isEmpty());
+	}
+
+	@Test
+	public void test_enPassant() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		engine.setMove("e2", "e4");
+		engine.setMove("a7", "a6");
+		engine.setMove("e4", "e5");
+		engine.setMove("d7", "d5");
+		assertTrue(getLegalMoves(engine).contains("e5d6"));
+		engine.setMove("a2", "a3");
+		engine.setMove("a6", "a5");
+		assertFalse(getLegalMoves(engine).contains("e5d6"));
+
+		// a raw en passant square for the wrong side is ignored by both generators
+		PieceBoard pieces = new PieceBoard();
+		FenUtils.getPieces("4k3/8/8/8/8/4p3/3P4/4K3", pieces);
+		int e3 = ConvertUtils.getPositionAsSquare("e3");
+		int d2 = ConvertUtils.getPositionAsSquare("d2");
+		LegalityContext context = new LegalityContext(pieces, false);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		assertEquals(MoveGenerator.getLegalMoves(pieces, context, 0, -1, moves),
+				MoveGenerator.getLegalMoves(pieces, context, 0, e3, moves));
+		assertEquals(MoveGenerator.getLegalDestinations(pieces, context, d2, 0, -1),
+				MoveGenerator.getLegalDestinations(pieces, context, d2, 0, e3));
+	}
+
+	@Test
+	public void test_getValidMoves() {
+		String[] fens = {
+			"r3kbnr/pp1npppp/2p5/q7/3P2b1/2N2N2/PPP1BPPP/R1BQK2R w KQkq - 4 7",
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/Pp2P3/2N2Q1p/1PPBBPPP/R3K2R b KQkq a3 0 1",
+			"8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+			"r3k2r/8/3Q4/8/8/5q2/8/R3K2R b KQkq - 0 1",
+			"8/8/1P2K3/8/2n5/1q6/8/5k2 b - - 0 1",
+			"4k3/8/8/8/8/8/4q3/4K3 w - - 0 1",
+			"3k4/8/8/8/3r4/8/3R4/2rK3q w - - 0 1",
+		};
+		RulesEngine engine = new RulesEngine();
+		for (String fen : fens) {
+			engine.setFen(fen);
+			Set<String> validMoves = new HashSet<>();
+			for (String src : engine.getBoard().keySet()) {
+				for (String dst : engine.getValidMoves(src)) {
+					if (engine.getBoard().get(src).charAt(0) == (engine.getActivePlayer() == PieceColor.BLACK ? 'b' : 'w')) {
+						validMoves.add(src + dst);
+					}
+				}
+			}
+			Set<String> legalMoves = new HashSet<>();
+			for (String move : getLegalMoves(engine)) {
+				legalMoves.add(move.substring(0, 4));
+			}
+			assertEquals(fen, legalMoves, validMoves);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package tst.com.grapedrink.chessmap.logic.bitboards;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.bitboards.Perft;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+import com.grapedrink.chessmap.logic.utils.FenUtils;
+
+/**
+ * Perft counts for the standard test positions, kept shallow enough
+ * to run with the rest of the suite.  Run Perft directly for deeper
+ * searches and throughput numbers.
+ */
+public class PerftTest {
+
+	private static final PrintStream NO_OUTPUT = new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b) {}
+	});
+
+	private static void assertPerft(long expected, String fen, int depth) {
+		RulesEngine engine = Perft.getEngine(fen);
+		Map<String, String> board = engine.getBoard();
+		assertEquals(fen, expected, Perft.run(engine, depth, NO_OUTPUT));
+		assertEquals(board, engine.getBoard());
+	}
+
+	@Test
+	public void test_startPosition() {
+		assertPerft(20L, FenUtils.START_POSITION, 1);
+		assertPerft(400L, FenUtils.START_POSITION, 2);
+		assertPerft(8902L, FenUtils.START_POSITION, 3);
+		assertPerft(197281L, FenUtils.START_POSITION, 4);
+	}
+
+	@Test
+	public void test_kiwipete() {
+		assertPerft(97862L, "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -", 3);
+	}
+
+	@Test
+	public void test_standardPositions() {
+		assertPerft(43238L, "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -", 4);
+		assertPerft(9467L, "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq -", 3);
+		assertPerft(62379L, "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ -", 3);
+		assertPerft(89890L, "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - -", 3);
+	}
+
+	@Test
+	public void test_enPassant() {
+		assertPerft(1134888L, "3k4/3p4/8/K1P4r/8/8/8/8 b - -", 6);
+		assertPerft(1015133L, "8/8/4k3/8/2p5/8/B2P2K1/8 w - -", 6);
+
+		assertPerft(1440467L, "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1", 6);
+	}
+
+	@Test
+	public void test_castling() {
+		assertPerft(661072L, "5k2/8/8/8/8/8/8/4K2R w K -", 6);
+		assertPerft(803711L, "3k4/8/8/8/8/8/8/R3K3 w Q -", 6);
+		assertPerft(1274206L, "r3k2r/1b4bq/8/8/8/8/7B/R3K2R w KQkq -", 4);
+		assertPerft(1720476L, "r3k2r/8/3Q4/8/8/5q2/8/R3K2R b KQkq -", 4);
+	}
+
+	@Test
+	public void test_promotion() {
+		assertPerft(3821001L, "2K2r2/4P3/8/8/8/8/8/3k4 w - -", 6);
+		assertPerft(217342L, "4k3/1P6/8/8/8/8/K7/8 w - -", 6);
+		assertPerft(92683L, "8/P1k5/K7/8/8/8/8/8 w - -", 6);
+	}
+
+	@Test
+	public void test_checkAndStalemate() {
+		assertPerft(1004658L, "8/8/1P2K3/8/2n5/1q6/8/5k2 b - -", 5);
+		assertPerft(2217L, "K1k5/8/P7/8/8/8/8/8 w - -", 6);
+		assertPerft(567584L, "8/k1P5/8/1K6/8/8/8/8 w - -", 7);
+		assertPerft(23527L, "8/8/2k5/5q2/5n2/8/5K2/8 b - -", 4);
+	}
+
+	@Test
+	public void test_perftDivide() {
+		RulesEngine engine = Perft.getEngine(FenUtils.START_POSITION);
+		Map<String, Long> divide = engine.perftDivide(3);
+		assertEquals(20, divide.size());
+		assertEquals(Long.valueOf(600L), divide.get("e2e4"));
+		assertEquals(8902L, divide.values().stream().mapToLong(Long::longValue).sum());
+	}
+}
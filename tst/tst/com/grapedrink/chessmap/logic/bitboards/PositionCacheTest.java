@@ -0,0 +1,55 @@
+package tst.com.grapedrink.chessmap.logic.bitboards;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.PositionCache;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+
+public class PositionCacheTest {
+
+	@Test
+	public void test_hitsAndEviction() {
+		PositionCache cache = new PositionCache(2);
+		assertEquals(3L, cache.getValidMoves(1L, 12, () -> 3L));
+		assertEquals(3L, cache.getValidMoves(1L, 12, () -> 4L));
+		assertEquals(9L, cache.getValidMoves(1L, 13, () -> 9L));
+		assertTrue(cache.hasLegalMoves(1L, () -> true));
+		assertTrue(cache.hasLegalMoves(1L, () -> false));
+		assertEquals(2L, cache.getHits());
+		assertEquals(3L, cache.getMisses());
+
+		cache.getValidMoves(2L, 0, () -> 0L);
+		cache.getValidMoves(1L, 12, () -> 8L);
+		cache.getValidMoves(3L, 0, () -> 0L);
+		assertEquals(2, cache.size());
+		assertEquals(3L, cache.getValidMoves(1L, 12, () -> 8L));
+		assertEquals(5L, cache.getValidMoves(2L, 0, () -> 5L));
+	}
+
+	@Test
+	public void test_rulesEngine() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		Set<String> defense = new HashSet<>(engine.getTotalDefense(PieceColor.WHITE));
+		Set<String> moves = new HashSet<>();
+		engine.getValidMoves("g1").forEach(moves::add);
+		engine.setMove("g1", "f3");
+		engine.setMove("g8", "f6");
+		engine.setMove("f3", "g1");
+		engine.setMove("f6", "g8");
+		long misses = engine.getPositionCache().getMisses();
+		assertEquals(defense, new HashSet<>(engine.getTotalDefense(PieceColor.WHITE)));
+		Set<String> repeated = new HashSet<>();
+		engine.getValidMoves("g1").forEach(repeated::add);
+		assertEquals(moves, repeated);
+		assertEquals(misses, engine.getPositionCache().getMisses());
+		assertEquals(1L, engine.getPositionCache().getHits());
+	}
+}
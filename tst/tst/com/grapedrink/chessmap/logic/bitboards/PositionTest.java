@@ -0,0 +1,109 @@
+package tst.com.grapedrink.chessmap.logic.bitboards;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceColor;
+import com.grapedrink.chessmap.logic.bitboards.Position;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+import com.grapedrink.chessmap.logic.utils.ConvertUtils;
+import com.grapedrink.chessmap.logic.utils.FenUtils;
+import com.grapedrink.chessmap.logic.utils.MoveGenerator;
+
+public class PositionTest {
+
+	private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+	@Test
+	public void test_snapshot() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		engine.setMove("e2", "e4");
+		Position position = engine.getPosition();
+		assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", position.getFen());
+		assertEquals(engine.getZobristKey(), position.getZobristKey());
+
+		engine.setMove("e7", "e5");
+		assertTrue(position.isBlacksTurn());
+		assertEquals(0L, position.getPieces(PieceColor.BLACK) & ConvertUtils.getPositionAsLong("e5"));
+		assertEquals(20, position.getLegalMoves(new int[MoveGenerator.MAX_MOVES]));
+		assertFalse(position.isInCheck());
+
+		engine.setPosition(position);
+		assertEquals(position, engine.getPosition());
+		assertEquals(position, Position.fromFen(position.getFen()));
+		assertNotEquals(position, Position.fromFen(FenUtils.START_POSITION));
+	}
+
+	@Test
+	public void test_play() {
+		Random random = new Random(23L);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		RulesEngine engine = new RulesEngine();
+		engine.setFen(KIWIPETE);
+		Position position = engine.getPosition();
+		for (int ply=0; ply<60; ++ply) {
+			int count = position.getLegalMoves(moves);
+			assertEquals(engine.getLegalMoves(new int[MoveGenerator.MAX_MOVES]), count);
+			if (count == 0) {
+				break;
+			}
+			int move = moves[random.nextInt(count)];
+			position = position.play(move);
+			engine.setMove(move);
+			assertEquals(engine.getFen(), position.getFen());
+			assertEquals(engine.getZobristKey(), position.getZobristKey());
+			assertEquals(engine.getDefendedSquares(PieceColor.WHITE), position.getDefendedSquares(PieceColor.WHITE));
+			assertEquals(engine.getScore(PieceColor.BLACK), position.getScore(PieceColor.BLACK));
+		}
+	}
+
+	@Test
+	public void test_concurrentReads() throws InterruptedException {
+		RulesEngine engine = new RulesEngine();
+		engine.setFen(KIWIPETE);
+		Position position = engine.getPosition();
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = position.getLegalMoves(moves);
+		long expected = 0L;
+		for (int i=0; i<count; ++i) {
+			expected += position.play(moves[i]).getLegalMoves(new int[MoveGenerator.MAX_MOVES]);
+		}
+		assertEquals(2039L, expected);
+
+		long[] totals = new long[4];
+		List<Thread> threads = new ArrayList<>();
+		for (int t=0; t<totals.length; ++t) {
+			int thread = t;
+			threads.add(new Thread(() -> {
+				int[] threadMoves = new int[MoveGenerator.MAX_MOVES];
+				int[] replies = new int[MoveGenerator.MAX_MOVES];
+				for (int repeat=0; repeat<10; ++repeat) {
+					int rootCount = position.getLegalMoves(threadMoves);
+					for (int i=0; i<rootCount; ++i) {
+						totals[thread] += position.play(threadMoves[i]).getLegalMoves(replies);
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+			engine.setMove("e1", "g1");
+			engine.setPly(0);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (long total : totals) {
+			assertEquals(10L * expected, total);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package tst.com.grapedrink.chessmap.logic.bitboards;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.bitboards.Perft;
+import com.grapedrink.chessmap.logic.bitboards.PieceContainer;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+import com.grapedrink.chessmap.logic.utils.ConvertUtils;
+import com.grapedrink.chessmap.logic.utils.MoveGenerator;
+import com.grapedrink.chessmap.logic.utils.PackedMove;
+
+public class ZobristTest {
+
+	private static void play(RulesEngine engine, String... moves) {
+		for (String move : moves) {
+			engine.setMove(move.substring(0, 2), move.substring(2, 4));
+		}
+	}
+
+	@Test
+	public void test_transpositions() {
+		RulesEngine a = new RulesEngine();
+		RulesEngine b = new RulesEngine();
+		a.setNewGame();
+		b.setNewGame();
+		long start = a.getZobristKey();
+		assertEquals(start, b.getZobristKey());
+
+		play(a, "e2e4", "e7e5", "g1f3");
+		play(b, "g1f3", "e7e5", "e2e4");
+		assertEquals(a.getZobristKey(), b.getZobristKey());
+
+		play(a, "g8f6");
+		assertNotEquals(a.getZobristKey(), b.getZobristKey());
+		play(a, "f3g1", "f6g8", "g1f3");
+		assertEquals(a.getZobristKey(), b.getZobristKey());
+	}
+
+	@Test
+	public void test_castlingAndEnPassant() {
+		String kiwipete = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w ";
+		RulesEngine a = Perft.getEngine(kiwipete + "KQkq -");
+		long start = a.getZobristKey();
+		play(a, "e1f1", "e8f8", "f1e1", "f8e8");
+		assertNotEquals(start, a.getZobristKey());
+		assertEquals(Perft.getEngine(kiwipete + "- -").getZobristKey(), a.getZobristKey());
+
+		RulesEngine b = Perft.getEngine(kiwipete + "KQkq -");
+		play(b, "a2a4");
+		RulesEngine c = Perft.getEngine("r3k2r/p1ppqpb1/bn2pnp1/3PN3/Pp2P3/2N2Q1p/1PPBBPPP/R3K2R b KQkq -");
+		assertNotEquals(c.getZobristKey(), b.getZobristKey());
+		play(b, "e8f8");
+		play(c, "e8f8");
+		assertEquals(c.getZobristKey(), b.getZobristKey());
+	}
+
+	@Test
+	public void test_undo() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		Random random = new Random(9L);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		List<Long> keys = new ArrayList<>();
+		int count;
+		while (keys.size() < 200 && (count = engine.getLegalMoves(moves)) > 0) {
+			keys.add(engine.getZobristKey());
+			int move = moves[random.nextInt(count)];
+			engine.setMove(ConvertUtils.getSquareAsString(PackedMove.getSrc(move)), ConvertUtils.getSquareAsString(PackedMove.getDst(move)));
+		}
+		for (int i=keys.size()-1; i>=0; --i) {
+			engine.getPrevMove();
+			assertEquals(keys.get(i).longValue(), engine.getZobristKey());
+		}
+		for (int i=1; i<keys.size(); ++i) {
+			engine.getNextMove();
+			assertEquals(keys.get(i).longValue(), engine.getZobristKey());
+		}
+	}
+
+	@Test
+	public void test_makeMove() {
+		PieceContainer made = new PieceContainer();
+		PieceContainer set = new PieceContainer();
+		made.setNewGame();
+		set.setNewGame();
+		Map<String, Long> start = made.getPieces();
+		long startKey = made.getZobristKey();
+		Random random = new Random(11L);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		boolean isBlacksTurn = false;
+		int plies = 0;
+		int count;
+		while (plies < 300 && (count = made.getLegalMoves(isBlacksTurn, moves)) > 0) {
+			int move = moves[random.nextInt(count)];
+			made.makeMove(move);
+			set.setMove(move);
+			assertEquals(set.getPieces(), made.getPieces());
+			assertEquals(set.getZobristKey(), made.getZobristKey());
+			assertEquals(set.getCastlingRights(), made.getCastlingRights());
+			isBlacksTurn = !isBlacksTurn;
+			++plies;
+		}
+		while (plies-- > 0) {
+			made.unmakeMove();
+		}
+		assertEquals(start, made.getPieces());
+		assertEquals(startKey, made.getZobristKey());
+	}
+}
@@ -2,10 +2,19 @@ package tst.com.grapedrink.chessmap.logic.history;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
 import org.junit.Test;
 
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
 import com.grapedrink.chessmap.logic.history.MoveHistory;
 import com.grapedrink.chessmap.logic.history.Turn;
+import com.grapedrink.chessmap.logic.utils.ConvertUtils;
+import com.grapedrink.chessmap.logic.utils.MoveGenerator;
+import com.grapedrink.chessmap.logic.utils.PackedMove;
 
 public class MoveHistoryTest {
 
@@ -117,4 +126,52 @@ public class MoveHistoryTest {
 		assertFalse(game.hasPrev());
 		assertFalse(new MoveHistory().hasPrev());
 	}
+
+	@Test
+	public void test_get() {
+		MoveHistory game = getRuyLopez();
+		assertEquals(5, game.size());
+		assertEquals("c6", game.get(4).getDst());
+		game.getPrev();
+		game.getPrev();
+		game.addMove(new Turn("f1", "c4"));
+		assertEquals(4, game.size());
+		assertEquals("c4", game.get(4).getDst());
+		assertEquals(MoveHistory.NO_MOVE, game.getPackedMove(4));
+		try {
+			game.get(5);
+			fail("MoveHistory.get() failed to throw an IndexOutOfBoundsException.");
+		}
+		catch (IndexOutOfBoundsException e) {
+		}
+		for (int i=0; i<500; ++i) {
+			game.addMove(new Turn("g1", "f3"));
+		}
+		assertEquals(504, game.size());
+	}
+	
+	@Test
+	public void test_setPly() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		Random random = new Random(3L);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		List<Map<String, String>> boards = new ArrayList<>();
+		int count;
+		boards.add(engine.getBoard());
+		while (boards.size() <= 120 && (count = engine.getLegalMoves(moves)) > 0) {
+			int move = moves[random.nextInt(count)];
+			engine.setMove(ConvertUtils.getSquareAsString(PackedMove.getSrc(move)), ConvertUtils.getSquareAsString(PackedMove.getDst(move)));
+			boards.add(engine.getBoard());
+		}
+		assertEquals(boards.size() - 1, engine.getPlyCount());
+		for (int i=0; i<50; ++i) {
+			int ply = random.nextInt(boards.size());
+			engine.setPly(ply);
+			assertEquals(ply, engine.getPly());
+			assertEquals(boards.get(ply), engine.getBoard());
+		}
+		engine.setPly(0);
+		assertEquals(boards.get(0), engine.getBoard());
+	}
 }
@@ -0,0 +1,170 @@
+package tst.com.grapedrink.chessmap.logic.pgn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+import com.grapedrink.chessmap.logic.pgn.PgnReader;
+import com.grapedrink.chessmap.logic.utils.MoveGenerator;
+
+public class PgnReaderTest {
+
+	private static final String GAMES =
+			"[Event \"Paris\"]\n"
+			+ "[White \"Morphy, Paul\"]\n"
+			+ "[Black \"Duke Karl / Count Isouard\"]\n"
+			+ "[Result \"1-0\"]\n"
+			+ "\n"
+			+ "1. e4 e5 2. Nf3 d6 3. d4 Bg4 4. dxe5 Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 Qe7\n"
+			+ "8. Nc3 c6 9. Bg5 b5 10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7\n"
+			+ "14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8# 1-0\n"
+			+ "\n"
+			+ "[Event \"Annotated\"]\n"
+			+ "1. e4 {best by test} e5 (1... c5 2. Nf3 (2. c3) d6) 2. Nf3 $1 Nc6 ; a comment\n"
+			+ "3. Bb5 a6 4.Ba4 Nf6 5.0-0 1/2-1/2\n"
+			+ "\n"
+			+ "[Event \"Illegal\"]\n"
+			+ "1. e4 e5 2. Ke3 Nf6 0-1\n"
+			+ "\n"
+			+ "[Event \"Promotions\"]\n"
+			+ "1. e4 Nf6 2. e5 d5 3. exd6 Nc6 4. dxc7 Nd5 5. cxd8=N Kxd8 *\n"
+			+ "\n"
+			+ "[Event \"Setup\"]\n"
+			+ "[SetUp \"1\"]\n"
+			+ "[FEN \"8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 40\"]\n"
+			+ "40... cxd3 41. Kg1 0-1\n"
+			+ "\n"
+			+ "[Event \"Unfinished\"]\n"
+			+ "1. d4 d5\n";
+
+	@Test
+	public void test_readGame() throws IOException {
+		RulesEngine engine = new RulesEngine();
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		try (PgnReader pgn = new PgnReader(new StringReader(GAMES))) {
+			assertTrue(pgn.readGame(engine));
+			assertEquals("Morphy, Paul", pgn.getTags().get("White"));
+			assertEquals("1-0", pgn.getResult());
+			assertEquals(33, engine.getPly());
+			assertEquals(0, engine.getLegalMoves(moves));
+			assertEquals("wR", engine.getBoard().get("d8"));
+
+			assertTrue(pgn.readGame(engine));
+			assertEquals("1/2-1/2", pgn.getResult());
+			assertEquals(9, engine.getPly());
+			assertEquals("wK", engine.getBoard().get("g1"));
+			assertEquals("wR", engine.getBoard().get("f1"));
+
+			try {
+				pgn.readGame(engine);
+				fail("PgnReader.readGame() failed to throw an IllegalArgumentException.");
+			}
+			catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage().startsWith("Game 3, ply 3"));
+			}
+
+			assertTrue(pgn.readGame(engine));
+			assertEquals("Promotions", pgn.getTags().get("Event"));
+			assertEquals("*", pgn.getResult());
+			assertEquals(10, engine.getPly());
+			assertNull(engine.getBoard().get("d6"));
+			assertEquals("bK", engine.getBoard().get("d8"));
+
+			try {
+				pgn.readGame(engine);
+				fail("PgnReader.readGame() failed to throw an IllegalArgumentException.");
+			}
+			catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage().startsWith("Game 5, ply 2"));
+			}
+			assertEquals("8/8/1k6/2b5/8/3p4/5K2/8 w - - 0 41", engine.getFen());
+
+			assertTrue(pgn.readGame(engine));
+			assertNull(pgn.getResult());
+			assertEquals(2, engine.getPly());
+			assertFalse(pgn.readGame(engine));
+			assertEquals(6, pgn.getGameCount());
+		}
+	}
+
+	@Test
+	public void test_readGameText() throws IOException {
+		RulesEngine engine = new RulesEngine();
+		try (PgnReader pgn = new PgnReader(new StringReader(GAMES))) {
+			String first = pgn.readGameText();
+			assertTrue(first.startsWith("[Event \"Paris\"]"));
+			assertTrue(first.endsWith("17. Rd8# 1-0"));
+			assertEquals("Morphy, Paul", pgn.getTags().get("White"));
+			assertEquals("1-0", pgn.getResult());
+
+			assertTrue(pgn.readGame(engine));
+			assertEquals(9, engine.getPly());
+
+			String third = pgn.readGameText();
+			assertTrue(third.startsWith("[Event \"Illegal\"]"));
+			pgn.readGameText();
+			pgn.readGameText();
+			assertTrue(pgn.readGameText().endsWith("1. d4 d5"));
+			assertNull(pgn.readGameText());
+			assertEquals(6, pgn.getGameCount());
+
+			try (PgnReader copy = new PgnReader(new StringReader(first))) {
+				assertTrue(copy.readGame(engine));
+				assertEquals(33, engine.getPly());
+			}
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void test_strayBrace() throws IOException {
+		RulesEngine engine = new RulesEngine();
+		try (PgnReader pgn = new PgnReader(new StringReader("[Event \"x\"]\n\n1. e4 } e5 ) 2. Nf3 1-0\n"))) {
+			assertTrue(pgn.readGame(engine));
+			assertEquals("1-0", pgn.getResult());
+			assertEquals(3, engine.getPly());
+			assertFalse(pgn.readGame(engine));
+		}
+	}
+
+	@Test
+	public void test_getSanMove() {
+		RulesEngine engine = new RulesEngine();
+		engine.setNewGame();
+		for (String move : new String[] {"Nf3", "Nf6", "Nc3", "Nc6", "Nb5", "Nb4"}) {
+			engine.setMove(engine.getSanMove(move));
+		}
+		try {
+			engine.getSanMove("Nd4");
+			fail("RulesEngine.getSanMove() failed to throw on an ambiguous move.");
+		}
+		catch (IllegalArgumentException e) {
+		}
+		engine.setMove(engine.getSanMove("Nfd4"));
+		engine.setMove(engine.getSanMove("Nbd5"));
+	}
+
+	@Test
+	public void test_loadGame() {
+		Map<Integer, Map.Entry<String, String>> game = new HashMap<>();
+		game.put(1, new AbstractMap.SimpleEntry<>("e2", "e4"));
+		game.put(2, new AbstractMap.SimpleEntry<>("e7", "e5"));
+		game.put(3, new AbstractMap.SimpleEntry<>("g1", "f3"));
+		RulesEngine engine = new RulesEngine();
+		engine.loadGame(game);
+		assertEquals(0, engine.getPly());
+		assertEquals(3, engine.getPlyCount());
+		engine.setPly(3);
+		assertEquals("wN", engine.getBoard().get("f3"));
+	}
+}
@@ -0,0 +1,86 @@
+package tst.com.grapedrink.chessmap.logic.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.bitboards.GameStatus;
+import com.grapedrink.chessmap.logic.bitboards.Position;
+import com.grapedrink.chessmap.logic.search.PrincipalVariation;
+import com.grapedrink.chessmap.logic.search.Search;
+import com.grapedrink.chessmap.logic.search.SearchLimits;
+import com.grapedrink.chessmap.logic.utils.FenUtils;
+import com.grapedrink.chessmap.logic.utils.MoveGenerator;
+import com.grapedrink.chessmap.logic.utils.PackedMove;
+
+public class SearchTest {
+
+	private static String getBestMove(String fen, int depth) {
+		return PackedMove.toString(Search.analyze(Position.fromFen(fen), SearchLimits.ofDepth(depth)).getBestMove());
+	}
+
+	private static boolean isLegal(Position position, int move) {
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = position.getLegalMoves(moves);
+		for (int i=0; i<count; ++i) {
+			if (moves[i] == move) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void test_mate() {
+		Position position = Position.fromFen("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1");
+		PrincipalVariation pv = Search.analyze(position, SearchLimits.ofDepth(4));
+		assertEquals("a1a8", PackedMove.toString(pv.getBestMove()));
+		assertEquals(1, pv.getMovesToMate());
+		assertEquals(GameStatus.CHECKMATE, position.play(pv.getBestMove()).getGameStatus());
+
+		// with black to move, a pawn move makes room for the king
+		pv = Search.analyze(Position.fromFen("6k1/5ppp/8/8/8/8/5PPP/R5K1 b - - 0 1"), SearchLimits.ofDepth(4));
+		assertFalse(pv.isMate());
+
+		pv = Search.analyze(Position.fromFen("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1"), SearchLimits.ofDepth(4));
+		assertTrue(pv.isMate());
+		assertEquals(0, pv.getBestMove());
+		pv = Search.analyze(Position.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"), SearchLimits.ofDepth(4));
+		assertEquals(0, pv.getScore());
+		assertEquals(0, pv.getBestMove());
+	}
+
+	@Test
+	public void test_material() {
+		assertEquals("d2d5", getBestMove("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1", 3));
+		// the knight is defended by a pawn, so taking it loses the queen
+		assertFalse("d1d5".equals(getBestMove("4k3/8/2p5/3n4/8/8/8/3QK3 w - - 0 1", 3)));
+	}
+
+	@Test
+	public void test_iterations() {
+		Position position = Position.fromFen(FenUtils.START_POSITION);
+		List<PrincipalVariation> iterations = new ArrayList<>();
+		PrincipalVariation result = Search.analyze(position, SearchLimits.ofDepth(4), iterations::add);
+		assertEquals(4, iterations.size());
+		assertEquals(result, iterations.get(3));
+		for (int depth=1; depth<=4; ++depth) {
+			PrincipalVariation pv = iterations.get(depth - 1);
+			assertEquals(depth, pv.getDepth());
+			Position next = position;
+			for (int move : pv.getMoves()) {
+				assertTrue(isLegal(next, move));
+				next = next.play(move);
+			}
+		}
+
+		result = Search.analyze(position, SearchLimits.ofNodes(5000L));
+		assertTrue(result.getNodes() <= 5000L);
+		assertTrue(isLegal(position, result.getBestMove()));
+	}
+}
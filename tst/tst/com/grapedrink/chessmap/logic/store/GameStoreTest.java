@@ -0,0 +1,114 @@
+package tst.com.grapedrink.chessmap.logic.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.grapedrink.chessmap.logic.bitboards.PieceType;
+import com.grapedrink.chessmap.logic.bitboards.RulesEngine;
+import com.grapedrink.chessmap.logic.pgn.PgnReader;
+import com.grapedrink.chessmap.logic.store.GameStore;
+import com.grapedrink.chessmap.logic.store.GameStoreWriter;
+import com.grapedrink.chessmap.logic.utils.ConvertUtils;
+
+public class GameStoreTest {
+
+	private static final String GAMES =
+			"[Event \"Paris\"]\n"
+			+ "1. e4 e5 2. Nf3 d6 3. d4 Bg4 4. dxe5 Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 Qe7\n"
+			+ "8. Nc3 c6 9. Bg5 b5 10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7\n"
+			+ "14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8# 1-0\n"
+			+ "\n"
+			+ "[Event \"Illegal\"]\n"
+			+ "1. e4 e5 2. Ke3 Nf6 0-1\n"
+			+ "\n"
+			+ "[Event \"Promotions\"]\n"
+			+ "1. e4 Nf6 2. e5 d5 3. exd6 Nc6 4. dxc7 Nd5 5. cxd8=N Kxd8 *\n"
+			+ "\n"
+			+ "[FEN \"8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 40\"]\n"
+			+ "40... cxd3 41. Kf3 *\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void test_writeAndRead() throws IOException {
+		Path path = folder.getRoot().toPath().resolve("games.cms");
+		assertEquals(3, GameStoreWriter.write(new StringReader(GAMES), path));
+
+		RulesEngine expected = new RulesEngine();
+		RulesEngine actual = new RulesEngine();
+		try (GameStore store = GameStore.open(path); PgnReader pgn = new PgnReader(new StringReader(GAMES))) {
+			assertEquals(3, store.getGameCount());
+			assertEquals(33, store.getPlyCount(0));
+			assertEquals(10, store.getPlyCount(1));
+			assertEquals(2, store.getPlyCount(2));
+			assertNull(store.getStartFen(0));
+			assertEquals("8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 40", store.getStartFen(2));
+			assertEquals(ConvertUtils.getPositionAsSquare("e2"), store.getSrc(0, 1));
+			assertEquals(ConvertUtils.getPositionAsSquare("e4"), store.getDst(0, 1));
+			assertEquals(PieceType.KNIGHT, store.getPromotion(1, 9));
+			assertEquals(PieceType.NONE, store.getPromotion(1, 10));
+
+			for (int game=0; game<store.getGameCount(); ++game) {
+				try {
+					pgn.readGame(expected);
+				}
+				catch (IllegalArgumentException e) {
+					pgn.readGame(expected);
+				}
+				store.loadGame(game, store.getPlyCount(game), actual);
+				assertEquals(expected.getFen(), actual.getFen());
+				for (int ply=0; ply<=store.getPlyCount(game); ++ply) {
+					expected.setPly(ply);
+					actual.setPly(ply);
+					assertEquals(expected.getFen(), actual.getFen());
+				}
+			}
+
+			store.loadGame(0, 12, actual);
+			assertEquals(12, actual.getPly());
+			assertEquals(33, actual.getPlyCount());
+
+			try {
+				store.getSrc(0, 34);
+				fail("GameStore.getSrc() failed to throw an IndexOutOfBoundsException.");
+			}
+			catch (IndexOutOfBoundsException e) {
+			}
+			try {
+				store.getPlyCount(3);
+				fail("GameStore.getPlyCount() failed to throw an IndexOutOfBoundsException.");
+			}
+			catch (IndexOutOfBoundsException e) {
+			}
+		}
+	}
+
+	@Test
+	public void test_open() throws IOException {
+		Path path = folder.newFile("games.pgn").toPath();
+		Files.write(path, GAMES.getBytes("UTF-8"));
+		try {
+			GameStore.open(path).close();
+			fail("GameStore.open() failed to throw an IOException.");
+		}
+		catch (IOException e) {
+		}
+
+		Path empty = folder.getRoot().toPath().resolve("empty.cms");
+		new GameStoreWriter(empty).close();
+		try (GameStore store = GameStore.open(empty)) {
+			assertEquals(0, store.getGameCount());
+		}
+	}
+}
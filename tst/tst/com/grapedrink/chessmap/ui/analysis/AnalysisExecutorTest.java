@@ -0,0 +1,55 @@
+package tst.com.grapedrink.chessmap.ui.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+import com.grapedrink.chessmap.logic.bitboards.Position;
+import com.grapedrink.chessmap.ui.analysis.AnalysisExecutor;
+
+public class AnalysisExecutorTest {
+
+	@Test
+	public void test_staleResultsDropped() throws Exception {
+		AnalysisExecutor executor = new AnalysisExecutor();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		List<String> results = new CopyOnWriteArrayList<>();
+		SwingUtilities.invokeAndWait(() -> {
+			executor.submit(() -> {
+				started.countDown();
+				try {
+					Thread.sleep(10000L);
+				}
+				catch (InterruptedException e) {
+					interrupted.countDown();
+				}
+				return "stale";
+			}, results::add);
+		});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		SwingUtilities.invokeAndWait(() -> {
+			executor.submit(() -> "skipped", results::add);
+			executor.submit(() -> Position.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1").getGameStatus().toString(), result -> {
+				assertTrue(SwingUtilities.isEventDispatchThread());
+				results.add(result);
+				done.countDown();
+			});
+		});
+		assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		SwingUtilities.invokeAndWait(() -> {});
+		assertEquals(1, results.size());
+		assertEquals("STALEMATE", results.get(0));
+		executor.shutdown();
+	}
+}